@@ -34,7 +34,7 @@ public class BuildDto {
     
     private BuildStatus status;
     
-    private String buildLog;
+    private Long logLength;
     
     private Date startedAt;
     
@@ -6,7 +6,10 @@ import org.knullci.knull.application.interfaces.CancelBuildCommandHandler;
 import org.knullci.knull.domain.enums.BuildStatus;
 import org.knullci.knull.domain.enums.BuildStepStatus;
 import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildStep;
+import org.knullci.knull.domain.repository.BuildLogRepository;
 import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.infrastructure.service.BuildEventBus;
 import org.knullci.knull.infrastructure.service.NecroswordExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +17,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.Date;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Handler for cancelling running builds.
@@ -26,12 +30,18 @@ public class CancelBuildCommandHandlerImpl implements CancelBuildCommandHandler
     private static final Logger logger = LoggerFactory.getLogger(CancelBuildCommandHandlerImpl.class);
 
     private final BuildRepository buildRepository;
+    private final BuildLogRepository buildLogRepository;
     private final NecroswordExecutor necroswordExecutor;
+    private final BuildEventBus buildEventBus;
 
     public CancelBuildCommandHandlerImpl(BuildRepository buildRepository,
-            NecroswordExecutor necroswordExecutor) {
+            BuildLogRepository buildLogRepository,
+            NecroswordExecutor necroswordExecutor,
+            BuildEventBus buildEventBus) {
         this.buildRepository = buildRepository;
+        this.buildLogRepository = buildLogRepository;
         this.necroswordExecutor = necroswordExecutor;
+        this.buildEventBus = buildEventBus;
     }
 
     @Override
@@ -54,32 +64,46 @@ public class CancelBuildCommandHandlerImpl implements CancelBuildCommandHandler
             return CancelBuildResult.failure("Build is not in progress. Current status: " + build.getStatus().name());
         }
 
-        // Signal cancellation to the executor
-        boolean cancelled = necroswordExecutor.cancelBuild(buildId);
+        // Signal cancellation and set the status under the build's lock, so the
+        // executor's failure handling cannot mark the build FAILURE in between.
+        // Only the in-memory flag is set here; the executor is called after the lock is released.
+        AtomicBoolean updated = new AtomicBoolean();
+        buildRepository.modifyBuild(buildId, current -> {
+            if (current.getStatus() != BuildStatus.IN_PROGRESS) {
+                return;
+            }
+            if (!necroswordExecutor.markCancelled(buildId)) {
+                return;
+            }
 
-        if (cancelled) {
             // Update build status
-            build.setStatus(BuildStatus.CANCELLED);
-            build.setCompletedAt(new Date());
-            if (build.getStartedAt() != null) {
-                build.setDuration(build.getCompletedAt().getTime() - build.getStartedAt().getTime());
+            current.setStatus(BuildStatus.CANCELLED);
+            current.setCompletedAt(new Date());
+            if (current.getStartedAt() != null) {
+                current.setDuration(current.getCompletedAt().getTime() - current.getStartedAt().getTime());
             }
 
             // Mark any IN_PROGRESS steps as cancelled
-            build.getSteps().stream()
-                    .filter(step -> step.getStatus() == BuildStepStatus.IN_PROGRESS)
-                    .forEach(step -> {
-                        step.setStatus(BuildStepStatus.FAILURE);
-                        step.setErrorMessage("Build cancelled by user");
-                        step.setCompletedAt(new Date());
-                    });
+            for (int i = 0; i < current.getSteps().size(); i++) {
+                BuildStep step = current.getSteps().get(i);
+                if (step.getStatus() == BuildStepStatus.IN_PROGRESS) {
+                    step.setStatus(BuildStepStatus.FAILURE);
+                    step.setErrorMessage("Build cancelled by user");
+                    step.setCompletedAt(new Date());
+                    buildEventBus.publishStepCompleted(buildId, i, step);
+                }
+            }
 
             // Append cancellation log
-            build.setBuildLog(build.getBuildLog() + "\n\n=== BUILD CANCELLED ===\nBuild was cancelled by user.");
-
-            // Persist changes
-            buildRepository.updateBuild(build);
-
+            String cancelLog = "\n\n=== BUILD CANCELLED ===\nBuild was cancelled by user.";
+            current.setLogLength(buildLogRepository.append(buildId, cancelLog));
+            buildEventBus.publishLog(buildId, current.getLogLength(), cancelLog, null);
+            buildEventBus.publishStatus(current);
+            updated.set(true);
+        });
+
+        if (updated.get()) {
+            necroswordExecutor.cancelPipeline(buildId);
             logger.info("Build {} cancelled successfully", buildId);
             return CancelBuildResult.success("Build cancelled successfully");
         } else {
@@ -5,17 +5,22 @@ import org.knullci.knull.application.constant.KnullConstant;
 import org.knullci.knull.application.interfaces.ExecuteBuildCommandHandler;
 import org.knullci.knull.domain.enums.BuildStatus;
 import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.repository.BuildLogRepository;
 import org.knullci.knull.domain.repository.BuildRepository;
 import org.knullci.knull.infrastructure.dto.UpdateCommitStatusDto;
 import org.knullci.knull.infrastructure.enums.GHCommitState;
+import org.knullci.knull.infrastructure.service.BuildEventBus;
+import org.knullci.knull.infrastructure.service.BuildLogArchiver;
 import org.knullci.knull.infrastructure.service.GithubService;
 import org.knullci.knull.infrastructure.service.KnullExecutor;
+import org.knullci.knull.infrastructure.service.LogIndexService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class ExecuteBuildCommandHandlerImpl implements ExecuteBuildCommandHandler {
@@ -23,15 +28,27 @@ public class ExecuteBuildCommandHandlerImpl implements ExecuteBuildCommandHandle
     private static final Logger logger = LoggerFactory.getLogger(ExecuteBuildCommandHandlerImpl.class);
 
     private final BuildRepository buildRepository;
+    private final BuildLogRepository buildLogRepository;
     private final GithubService githubService;
     private final KnullExecutor knullExecutor;
+    private final BuildEventBus buildEventBus;
+    private final LogIndexService logIndexService;
+    private final BuildLogArchiver buildLogArchiver;
 
     public ExecuteBuildCommandHandlerImpl(BuildRepository buildRepository,
+            BuildLogRepository buildLogRepository,
             GithubService githubService,
-            KnullExecutor knullExecutor) {
+            KnullExecutor knullExecutor,
+            BuildEventBus buildEventBus,
+            LogIndexService logIndexService,
+            BuildLogArchiver buildLogArchiver) {
         this.buildRepository = buildRepository;
+        this.buildLogRepository = buildLogRepository;
         this.githubService = githubService;
         this.knullExecutor = knullExecutor;
+        this.buildEventBus = buildEventBus;
+        this.logIndexService = logIndexService;
+        this.buildLogArchiver = buildLogArchiver;
     }
 
     @Override
@@ -53,10 +70,12 @@ public class ExecuteBuildCommandHandlerImpl implements ExecuteBuildCommandHandle
         build.setStatus(BuildStatus.IN_PROGRESS);
         build.setStartedAt(new Date());
         build.setTriggeredBy(command.getTriggeredBy());
-        build.setBuildLog("Build started...\n");
 
         // Save initial build
         build = buildRepository.saveBuild(build);
+        build.setLogLength(buildLogRepository.append(build.getId(), "Build started...\n"));
+        buildEventBus.publishStatus(build);
+        buildEventBus.publishLog(build.getId(), build.getLogLength(), "Build started...\n", null);
 
         // Update GitHub status to IN_PROGRESS
         githubService.updateCommitStatus(new UpdateCommitStatusDto(
@@ -68,29 +87,35 @@ public class ExecuteBuildCommandHandlerImpl implements ExecuteBuildCommandHandle
                 "Build #" + build.getId() + " is in progress...",
                 KnullConstant.BUILD_CONTEXT));
 
+        final Long buildId = build.getId();
+        final Build executedBuild = build;
         try {
             logger.info("Executing build for job: {}", command.getJob().getName());
             knullExecutor.executeBuild(build, command.getJob());
 
-            // Consolidate build logs from steps
-            StringBuilder consolidatedLog = new StringBuilder(build.getBuildLog());
-            build.getSteps().forEach(step -> {
-                consolidatedLog.append("\n=== ").append(step.getName()).append(" ===\n");
-                consolidatedLog.append("Status: ").append(step.getStatus()).append("\n");
-                if (step.getOutput() != null) {
-                    consolidatedLog.append(step.getOutput()).append("\n");
+            // Update build status to SUCCESS, unless the build was cancelled meanwhile
+            AtomicBoolean succeeded = new AtomicBoolean();
+            Build finishedBuild = buildRepository.modifyBuild(buildId, current -> {
+                current.setSteps(executedBuild.getSteps());
+                if (current.getStatus() != BuildStatus.IN_PROGRESS) {
+                    return;
                 }
-                if (step.getErrorMessage() != null) {
-                    consolidatedLog.append("Error: ").append(step.getErrorMessage()).append("\n");
-                }
-            });
-
-            // Update build status to SUCCESS
-            build.setStatus(BuildStatus.SUCCESS);
-            build.setCompletedAt(new Date());
-            build.setDuration(build.getCompletedAt().getTime() - build.getStartedAt().getTime());
-            build.setBuildLog(consolidatedLog.toString() + "\nBuild completed successfully!");
-            buildRepository.updateBuild(build);
+                current.setStatus(BuildStatus.SUCCESS);
+                current.setCompletedAt(new Date());
+                current.setDuration(current.getCompletedAt().getTime() - current.getStartedAt().getTime());
+                // Step output is already in the build log, written as the steps ran
+                String summary = "\nBuild completed successfully!";
+                current.setLogLength(buildLogRepository.append(buildId, summary));
+                buildEventBus.publishLog(buildId, current.getLogLength(), summary, null);
+                buildEventBus.publishStatus(current);
+                succeeded.set(true);
+            }).orElse(build);
+
+            if (!succeeded.get()) {
+                logger.info("Build {} finished with status {}, not marking it successful",
+                        buildId, finishedBuild.getStatus());
+                return;
+            }
 
             // Update GitHub status to SUCCESS
             githubService.updateCommitStatus(new UpdateCommitStatusDto(
@@ -98,41 +123,33 @@ public class ExecuteBuildCommandHandlerImpl implements ExecuteBuildCommandHandle
                     command.getRepositoryName(),
                     command.getCommitSha(),
                     GHCommitState.SUCCESS,
-                    "http://localhost:8080/builds/" + build.getId() + "/pipeline",
-                    "Build #" + build.getId() + " passed",
+                    "http://localhost:8080/builds/" + buildId + "/pipeline",
+                    "Build #" + buildId + " passed",
                     KnullConstant.BUILD_CONTEXT));
 
-            logger.info("Build {} completed successfully", build.getId());
+            logger.info("Build {} completed successfully", buildId);
 
         } catch (Exception e) {
             logger.error("Build {} failed: {}", build.getId(), e.getMessage(), e);
 
-            // Check if the build was cancelled - if so, don't overwrite the status
-            Build currentBuild = buildRepository.findById(build.getId()).orElse(build);
-            boolean wasCancelled = currentBuild.getStatus() == BuildStatus.CANCELLED;
-
-            // Consolidate build logs from steps even on failure
-            StringBuilder consolidatedLog = new StringBuilder(currentBuild.getBuildLog());
-            currentBuild.getSteps().forEach(step -> {
-                consolidatedLog.append("\n=== ").append(step.getName()).append(" ===\n");
-                consolidatedLog.append("Status: ").append(step.getStatus()).append("\n");
-                if (step.getOutput() != null) {
-                    consolidatedLog.append(step.getOutput()).append("\n");
+            // Only mark the build failed if it was not cancelled; checked and set atomically
+            AtomicBoolean failed = new AtomicBoolean();
+            Build currentBuild = buildRepository.modifyBuild(buildId, current -> {
+                current.setSteps(executedBuild.getSteps());
+                if (current.getStatus() == BuildStatus.CANCELLED) {
+                    return;
                 }
-                if (step.getErrorMessage() != null) {
-                    consolidatedLog.append("Error: ").append(step.getErrorMessage()).append("\n");
-                }
-            });
-
-            // Only update status if not already cancelled
-            if (!wasCancelled) {
-                currentBuild.setStatus(BuildStatus.FAILURE);
-                currentBuild.setCompletedAt(new Date());
-                currentBuild
-                        .setDuration(currentBuild.getCompletedAt().getTime() - currentBuild.getStartedAt().getTime());
-                currentBuild.setBuildLog(consolidatedLog.toString() + "\nBuild failed: " + e.getMessage());
-                buildRepository.updateBuild(currentBuild);
-
+                current.setStatus(BuildStatus.FAILURE);
+                current.setCompletedAt(new Date());
+                current.setDuration(current.getCompletedAt().getTime() - current.getStartedAt().getTime());
+                String summary = "\nBuild failed: " + e.getMessage();
+                current.setLogLength(buildLogRepository.append(buildId, summary));
+                buildEventBus.publishLog(buildId, current.getLogLength(), summary, null);
+                buildEventBus.publishStatus(current);
+                failed.set(true);
+            }).orElse(build);
+
+            if (failed.get()) {
                 // Update GitHub status to FAILURE
                 githubService.updateCommitStatus(new UpdateCommitStatusDto(
                         command.getRepositoryOwner(),
@@ -145,6 +162,11 @@ public class ExecuteBuildCommandHandlerImpl implements ExecuteBuildCommandHandle
             } else {
                 logger.info("Build {} was cancelled, not overwriting status to FAILURE", currentBuild.getId());
             }
+        } finally {
+            buildLogRepository.close(build.getId());
+            buildEventBus.complete(buildId);
+            logIndexService.submit(buildId);
+            buildLogArchiver.submit(buildId);
         }
     }
 }
@@ -40,7 +40,7 @@ public class GetBuildsByJobIdQueryHandlerImpl implements GetBuildsByJobIdQueryHa
                         build.getRepositoryOwner(),
                         build.getRepositoryName(),
                         build.getStatus(),
-                        build.getBuildLog(),
+                        build.getLogLength(),
                         build.getStartedAt(),
                         build.getCompletedAt(),
                         build.getDuration(),
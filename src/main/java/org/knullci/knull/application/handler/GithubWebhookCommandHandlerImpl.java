@@ -3,11 +3,11 @@ package org.knullci.knull.application.handler;
 import lombok.SneakyThrows;
 import org.knullci.knull.application.command.ExecuteBuildCommand;
 import org.knullci.knull.application.command.GithubWebhookCommand;
+import org.knullci.knull.application.dto.GithubWebhookRepository;
 import org.knullci.knull.application.dto.GithubWebhookResponseDto;
 import org.knullci.knull.application.interfaces.ExecuteBuildCommandHandler;
 import org.knullci.knull.application.interfaces.GithubWebhookCommandHandler;
-import org.knullci.knull.domain.enums.JobType;
-import org.knullci.knull.domain.model.SimpleJobConfig;
+import org.knullci.knull.domain.model.Job;
 import org.knullci.knull.domain.repository.JobRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -31,37 +31,47 @@ public class GithubWebhookCommandHandlerImpl implements GithubWebhookCommandHand
     @SneakyThrows
     public GithubWebhookResponseDto handle(GithubWebhookCommand command) {
 
-        // check if the job available for the incoming repo
-        String repoName = command.getGithubWebhook().getRepository().getName();
-        var job = this.jobRepository.getJobByRepoName(repoName);
-        if (job.isEmpty()) {
-            logger.info("No job found for repo: {}, skipping pipeline", repoName);
+        var webhook = command.getGithubWebhook();
+        String repoName = webhook.getRepository().getName();
+        String currentBranch = webhook.getRef().replace("refs/heads/", "");
+
+        // Every job of the repository whose branch filter accepts the pushed branch
+        var jobs = this.jobRepository.findJobsForPush(repositoryUrlOf(webhook.getRepository()), currentBranch);
+        if (jobs.isEmpty()) {
+            logger.info("No job found for repo: {} and branch: {}, skipping pipeline", repoName, currentBranch);
             return null;
         }
 
-        String currentBranch = command.getGithubWebhook().getRef().replace("refs/heads/", "");
-
-        if (job.get().getJobType().equals(JobType.SIMPLE)
-                && job.get().getJobConfig() instanceof SimpleJobConfig simpleJobConfig) {
-            if (!simpleJobConfig.getBranch().contains(currentBranch)) {
-                logger.info("Branch {} not in the job config, skipping pipeline", currentBranch);
-                return null;
+        for (Job job : jobs) {
+            // Trigger build execution asynchronously
+            logger.info("Triggering build for job: {} from repository: {}", job.getName(), repoName);
+            try {
+                executeBuildCommandHandler.handle(new ExecuteBuildCommand(
+                        job,
+                        webhook.getHeadCommit().getId(),
+                        webhook.getHeadCommit().getMessage(),
+                        currentBranch,
+                        webhook.getRepository().getOwner().getName(),
+                        repoName,
+                        webhook.getRepository().getHtmlUrl(),
+                        webhook.getSender().getLogin()));
+            } catch (Exception e) {
+                // One job failing to start must not keep the other jobs of the repository from building
+                logger.error("Failed to trigger build for job: {}", job.getName(), e);
             }
         }
 
-        // Trigger build execution asynchronously
-        logger.info("Triggering build for job: {} from repository: {}", job.get().getName(), repoName);
-
-        executeBuildCommandHandler.handle(new ExecuteBuildCommand(
-                job.get(),
-                command.getGithubWebhook().getHeadCommit().getId(),
-                command.getGithubWebhook().getHeadCommit().getMessage(),
-                currentBranch,
-                command.getGithubWebhook().getRepository().getOwner().getName(),
-                command.getGithubWebhook().getRepository().getName(),
-                command.getGithubWebhook().getRepository().getHtmlUrl(),
-                command.getGithubWebhook().getSender().getLogin()));
-
         return null;
     }
+
+    /**
+     * URL of the pushed repository; its host tells github.com and GitHub
+     * Enterprise repositories with the same owner/repo apart
+     */
+    private static String repositoryUrlOf(GithubWebhookRepository repository) {
+        if (repository.getHtmlUrl() != null) {
+            return repository.getHtmlUrl();
+        }
+        return repository.getCloneUrl() != null ? repository.getCloneUrl() : repository.getSshUrl();
+    }
 }
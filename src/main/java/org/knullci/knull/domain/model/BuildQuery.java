@@ -0,0 +1,41 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.knullci.knull.domain.enums.BuildStatus;
+
+import java.util.Date;
+
+/**
+ * Filter and keyset pagination parameters for listing builds.
+ * Every filter is optional; a null value matches all builds.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BuildQuery {
+
+    private Long jobId;
+
+    private BuildStatus status;
+
+    private String branch;
+
+    private String repositoryOwner;
+
+    private String repositoryName;
+
+    private String triggeredBy;
+
+    private Date startedFrom;
+
+    private Date startedTo;
+
+    private Long cursor; // return builds with an id lower than this one
+
+    private int limit = 10;
+
+}
@@ -18,6 +18,9 @@ public class BuildStep {
     
     private BuildStepStatus status;
     
+    /**
+     * Output of steps recorded before outputs became ranges of the build log
+     */
     private String output;
     
     private Date startedAt;
@@ -27,5 +30,19 @@ public class BuildStep {
     private Long duration; // in milliseconds
     
     private String errorMessage;
-    
+
+    /**
+     * Byte offset in the build log at which the output of the step starts
+     */
+    private Long logOffset;
+
+    /**
+     * Length in bytes of the output of the step, or null while it is running
+     */
+    private Long logLength;
+
+    public BuildStep(String name, BuildStepStatus status, String output, Date startedAt, Date completedAt,
+            Long duration, String errorMessage) {
+        this(name, status, output, startedAt, completedAt, duration, errorMessage, null, null);
+    }
 }
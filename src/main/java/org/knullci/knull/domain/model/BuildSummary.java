@@ -0,0 +1,46 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.knullci.knull.domain.enums.BuildStatus;
+
+import java.util.Date;
+
+/**
+ * Build metadata needed to list builds, without steps or logs.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BuildSummary {
+
+    private Long id;
+
+    private Long jobId;
+
+    private String jobName;
+
+    private String commitSha;
+
+    private String commitMessage;
+
+    private String branch;
+
+    private String repositoryOwner;
+
+    private String repositoryName;
+
+    private BuildStatus status;
+
+    private Date startedAt;
+
+    private Date completedAt;
+
+    private Long duration; // in milliseconds
+
+    private String triggeredBy;
+
+}
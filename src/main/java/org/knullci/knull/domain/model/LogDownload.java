@@ -0,0 +1,25 @@
+package org.knullci.knull.domain.model;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Stored bytes of a complete build log, ready to be copied to a client.
+ */
+public interface LogDownload extends AutoCloseable {
+
+    /**
+     * Whether the bytes are gzip-compressed, as stored for archived logs
+     */
+    boolean isGzip();
+
+    /**
+     * Number of bytes transferred
+     */
+    long getLength();
+
+    void transferTo(WritableByteChannel target) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,23 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A window of consecutive lines of a build log.
+ */
+@Getter
+@AllArgsConstructor
+public class LogLines {
+
+    private long fromLine; // zero-based number of the first line in the window
+
+    private long totalLines;
+
+    private long endOffset; // byte offset in the log just after the window
+
+    private List<String> lines;
+
+}
@@ -0,0 +1,23 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A log line matching a search, with the lines around it.
+ */
+@Getter
+@AllArgsConstructor
+public class LogMatch {
+
+    private long lineNumber; // zero-based, as in LogLines
+
+    private String line;
+
+    private List<String> before;
+
+    private List<String> after;
+
+}
@@ -0,0 +1,21 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * A build whose log contains lines matching a cross-build search.
+ */
+@Getter
+@AllArgsConstructor
+public class LogSearchHit {
+
+    private Long buildId;
+
+    private int matchCount;
+
+    private List<Long> lines; // zero-based line numbers, at most the requested number per build
+
+}
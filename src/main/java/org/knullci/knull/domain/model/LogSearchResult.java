@@ -0,0 +1,23 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Result of searching a build log.
+ */
+@Getter
+@AllArgsConstructor
+public class LogSearchResult {
+
+    private List<LogMatch> matches;
+
+    private boolean truncated; // the match limit was reached before the end of the log
+
+    private long logLength; // bytes of log searched; output appended during the search is not included
+
+    private boolean timedOut; // the time limit was reached first; the matches found until then are returned
+
+}
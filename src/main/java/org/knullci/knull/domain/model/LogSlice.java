@@ -0,0 +1,17 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * A byte range of a build log, decoded as text.
+ */
+@Getter
+@AllArgsConstructor
+public class LogSlice {
+
+    private long endOffset; // byte offset in the log just after the bytes read
+
+    private String text;
+
+}
@@ -0,0 +1,23 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated result.
+ */
+@Getter
+@AllArgsConstructor
+public class Page<T> {
+
+    private List<T> items;
+
+    private Long nextCursor; // null when this is the last page
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+}
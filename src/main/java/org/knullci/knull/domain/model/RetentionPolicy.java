@@ -0,0 +1,28 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Retention override of a single job. A null value falls back to the
+ * global setting.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RetentionPolicy {
+
+    private Long jobId;
+
+    // The most recent finished builds are always kept, whatever their age
+    private Integer keepLast;
+
+    private Integer keepDays;
+
+    // Failed builds are kept this long instead of keepDays
+    private Integer keepFailuresDays;
+
+}
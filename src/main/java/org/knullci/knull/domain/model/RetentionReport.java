@@ -0,0 +1,31 @@
+package org.knullci.knull.domain.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Date;
+
+/**
+ * Outcome of one retention run.
+ */
+@Getter
+@AllArgsConstructor
+public class RetentionReport {
+
+    private Date startedAt;
+
+    private Date completedAt;
+
+    private int buildsScanned;
+
+    private int buildsDeleted;
+
+    private int logsArchived;
+
+    private int workspacesDeleted;
+
+    private long bytesReclaimed; // logs and workspaces; build documents are not counted
+
+    private boolean complete; // false if the run stopped at its deletion limit
+
+}
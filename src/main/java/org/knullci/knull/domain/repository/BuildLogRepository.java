@@ -0,0 +1,120 @@
+package org.knullci.knull.domain.repository;
+
+import org.knullci.knull.domain.model.LogDownload;
+import org.knullci.knull.domain.model.LogLines;
+import org.knullci.knull.domain.model.LogSearchResult;
+import org.knullci.knull.domain.model.LogSlice;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+/**
+ * Repository interface for build log storage.
+ * Each build has a single append-only log, kept separately from the build
+ * metadata so that appending a line never rewrites the build document.
+ */
+public interface BuildLogRepository {
+
+    /**
+     * Append text to the end of a build log
+     *
+     * @return the log length in bytes after the append
+     */
+    long append(Long buildId, String text);
+
+    /**
+     * Append UTF-8 encoded bytes to the end of a build log as they are, e.g.
+     * the buffers of a received message, without decoding them first. The
+     * buffers' positions are left unchanged.
+     *
+     * @return the log length in bytes after the append
+     */
+    long append(Long buildId, List<ByteBuffer> chunks);
+
+    /**
+     * Read the complete log of a build
+     *
+     * @return the log content, or an empty string if nothing was logged yet
+     */
+    String read(Long buildId);
+
+    /**
+     * Read a build log starting from the given byte offset
+     */
+    String read(Long buildId, long offset);
+
+    /**
+     * Read a byte range of a build log, e.g. the output of one step. The end
+     * offset counts the bytes read, which may differ from the length of the
+     * decoded text when the range holds malformed or split characters.
+     *
+     * @param length maximum number of bytes to read
+     */
+    LogSlice read(Long buildId, long offset, long length);
+
+    /**
+     * Read a window of lines without reading the rest of the log
+     *
+     * @param fromLine zero-based number of the first line; negative values count from the end
+     * @param count    maximum number of lines to read
+     */
+    LogLines readLines(Long buildId, long fromLine, int count);
+
+    /**
+     * Find the lines of a build log matching a pattern. A running build's
+     * log is searched up to its length when the search starts.
+     *
+     * @param contextLines number of lines to include before and after each match
+     * @param maxMatches   number of matches after which the search stops
+     * @param timeoutMs    time after which the search stops, even inside a
+     *                     match, and returns what it found so far
+     */
+    LogSearchResult search(Long buildId, Pattern pattern, int contextLines, int maxMatches, long timeoutMs);
+
+    /**
+     * Stream the complete log; archived logs are decompressed while reading
+     */
+    InputStream openStream(Long buildId);
+
+    /**
+     * Open the complete log for copying to a client
+     *
+     * @param acceptGzip whether the client accepts gzip-compressed bytes, in
+     *                   which case archived logs are sent without inflating them
+     * @return the stored log, or empty if nothing was logged
+     */
+    Optional<LogDownload> openDownload(Long buildId, boolean acceptGzip);
+
+    /**
+     * Get the current log length in bytes
+     */
+    long length(Long buildId);
+
+    /**
+     * Get the location of the log file backing a build
+     */
+    String getLogPath(Long buildId);
+
+    /**
+     * Release any resources held open for appending to a build log
+     */
+    void close(Long buildId);
+
+    /**
+     * Compress the log of a finished build. The log stays readable through
+     * every method of this repository.
+     *
+     * @return false if there was no uncompressed log to archive
+     */
+    boolean archive(Long buildId);
+
+    /**
+     * Delete the log of a build, archived or not, with its line index
+     *
+     * @return the number of bytes freed on disk
+     */
+    long delete(Long buildId);
+}
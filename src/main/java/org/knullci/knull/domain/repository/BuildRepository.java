@@ -1,9 +1,15 @@
 package org.knullci.knull.domain.repository;
 
+import org.knullci.knull.domain.enums.BuildStatus;
 import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.domain.model.BuildSummary;
+import org.knullci.knull.domain.model.Page;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface BuildRepository {
 
@@ -31,6 +37,63 @@ public interface BuildRepository {
      */
     long countAll();
 
+    /**
+     * Count builds that are in any of the given statuses
+     * 
+     * @param statuses Statuses to count
+     * @return Number of builds in those statuses
+     */
+    long countByStatus(BuildStatus... statuses);
+
+    /**
+     * Find builds matching the query filters, newest first, using keyset
+     * pagination on the build id
+     * 
+     * @param query Filters, cursor and page size
+     * @return Matching build summaries and the cursor of the next page
+     */
+    Page<BuildSummary> findBuilds(BuildQuery query);
+
+    /**
+     * Get the ids of the builds in any of the given statuses grouped by job,
+     * newest first, without reading any build document
+     * 
+     * @param statuses Statuses to include
+     * @return Build ids by job id; builds without a job are under a null key
+     */
+    Map<Long, List<Long>> findIdsByJob(BuildStatus... statuses);
+
+    /**
+     * Write a build as given, without checking its version. Builds that other
+     * threads may change at the same time should use compareAndSet or modifyBuild.
+     */
     void updateBuild(Build build);
 
+    /**
+     * Write the build only if the stored version still equals build.getVersion()
+     * 
+     * @param build Build to write; its version is incremented on success
+     * @return false if another writer changed the build first
+     */
+    boolean compareAndSet(Build build);
+
+    /**
+     * Atomically read the latest state of a build, apply a change and write it.
+     * The change runs exactly once, while holding the lock of that build, so
+     * it may decide based on the current status.
+     * 
+     * @param id Build ID
+     * @param modification Change applied to the latest state
+     * @return The written build, or empty if it does not exist
+     */
+    Optional<Build> modifyBuild(Long id, Consumer<Build> modification);
+
+    /**
+     * Delete a build with its steps, step output and log
+     * 
+     * @param id Build ID
+     * @return Number of log bytes freed
+     */
+    long deleteBuild(Long id);
+
 }
@@ -8,7 +8,12 @@ import java.util.Optional;
 public interface JobRepository {
     List<Job> getAllJobs();
     Optional<Job> getJobId(Long jobId);
-    Optional<Job> getJobByRepoName(String repoName);
+    /**
+     * Jobs building the given repository whose branch filter accepts the branch
+     *
+     * @param repositoryUrl URL of the pushed repository; host, owner and name are compared
+     */
+    List<Job> findJobsForPush(String repositoryUrl, String branch);
     void saveJob(Job job);
     void updateJob(Job job);
     void deleteJobById(Long jobId);
@@ -0,0 +1,28 @@
+package org.knullci.knull.domain.repository;
+
+import org.knullci.knull.domain.model.LogSearchHit;
+
+import java.util.List;
+
+/**
+ * Full-text index over the logs of completed builds.
+ */
+public interface LogIndexRepository {
+
+    /**
+     * Add the complete log of a finished build to the index
+     */
+    void index(Long buildId);
+
+    /**
+     * Drop a deleted build from search results
+     */
+    void remove(Long buildId);
+
+    /**
+     * Find the lines containing every word of the query, across all indexed builds
+     *
+     * @return matching builds, most recent first
+     */
+    List<LogSearchHit> search(String query, int maxBuilds, int maxLinesPerBuild);
+}
@@ -0,0 +1,18 @@
+package org.knullci.knull.domain.repository;
+
+import org.knullci.knull.domain.model.RetentionPolicy;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface RetentionPolicyRepository {
+
+    List<RetentionPolicy> findAll();
+
+    Optional<RetentionPolicy> findByJobId(Long jobId);
+
+    RetentionPolicy save(RetentionPolicy policy);
+
+    void deleteByJobId(Long jobId);
+
+}
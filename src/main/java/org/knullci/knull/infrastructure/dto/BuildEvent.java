@@ -0,0 +1,49 @@
+package org.knullci.knull.infrastructure.dto;
+
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.enums.BuildStepStatus;
+
+import java.util.Date;
+
+/**
+ * Live update of a build, published on the build event bus.
+ *
+ * @param id      position in the build's event stream, increasing from 1
+ * @param buildId build the event belongs to
+ * @param type    kind of update, one of the type constants
+ * @param data    payload matching the type, serialized as JSON for subscribers
+ */
+public record BuildEvent(
+        long id,
+        Long buildId,
+        String type,
+        Object data
+) {
+    /**
+     * Complete build state, sent to viewers that cannot resume from their last event
+     */
+    public static final String SNAPSHOT = "snapshot";
+    public static final String STEP_STARTED = "step-started";
+    public static final String LOG_CHUNK = "log-chunk";
+    public static final String STEP_COMPLETED = "step-completed";
+    public static final String STATUS_CHANGED = "status-changed";
+
+    public record StepStarted(int index, String name, Date startedAt) {
+    }
+
+    /**
+     * @param offset    byte offset of the text in the build log
+     * @param length    number of log bytes the text was decoded from; viewers
+     *                  advance by it, as re-encoding replaced malformed bytes differs
+     * @param stepIndex step that produced the text, or null for build level output
+     */
+    public record LogChunk(long offset, long length, LogText text, Integer stepIndex) {
+    }
+
+    public record StepCompleted(int index, String name, BuildStepStatus status, Date completedAt, Long duration,
+            String errorMessage) {
+    }
+
+    public record StatusChanged(BuildStatus status, Date completedAt, Long duration) {
+    }
+}
@@ -0,0 +1,49 @@
+package org.knullci.knull.infrastructure.dto;
+
+import com.fasterxml.jackson.annotation.JsonValue;
+import com.google.protobuf.ByteString;
+
+/**
+ * Text of a log chunk. Output received as bytes is kept as bytes and decoded
+ * once, when the first subscriber serializes the event; malformed UTF-8 is
+ * replaced then, the same way as when the log file is read.
+ */
+public final class LogText {
+
+    private final ByteString bytes;
+    private volatile String text;
+
+    private LogText(ByteString bytes, String text) {
+        this.bytes = bytes;
+        this.text = text;
+    }
+
+    public static LogText of(String text) {
+        return new LogText(null, text);
+    }
+
+    public static LogText of(ByteString bytes) {
+        return new LogText(bytes, null);
+    }
+
+    @JsonValue
+    @Override
+    public String toString() {
+        String decoded = text;
+        if (decoded == null) {
+            decoded = bytes.toStringUtf8();
+            text = decoded;
+        }
+        return decoded;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof LogText logText && toString().equals(logText.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return toString().hashCode();
+    }
+}
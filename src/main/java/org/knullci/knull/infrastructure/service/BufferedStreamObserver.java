@@ -0,0 +1,110 @@
+package org.knullci.knull.infrastructure.service;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import io.grpc.stub.StreamObserver;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Response observer of a server streaming call that hands the messages over
+ * to the thread calling {@link #drain}, so that slow handlers (log appends,
+ * build document writes) never run on the gRPC callback thread shared by all
+ * builds on the channel.
+ * <p>
+ * Inbound flow control is manual: at most {@code capacity} messages are
+ * requested ahead of the consumer and one more is requested for each message
+ * handled. When the consumer falls behind the server is made to wait instead
+ * of the buffer growing.
+ */
+final class BufferedStreamObserver<ReqT, RespT> implements ClientResponseObserver<ReqT, RespT> {
+
+    private final StreamObserver<RespT> delegate;
+    private final int capacity;
+    // One extra slot for the terminal event, which is never requested
+    private final BlockingQueue<Runnable> events;
+    private volatile ClientCallStreamObserver<ReqT> call;
+    private volatile boolean finished;
+
+    BufferedStreamObserver(StreamObserver<RespT> delegate, int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.delegate = delegate;
+        this.capacity = capacity;
+        this.events = new ArrayBlockingQueue<>(capacity + 1);
+    }
+
+    @Override
+    public void beforeStart(ClientCallStreamObserver<ReqT> requestStream) {
+        this.call = requestStream;
+        requestStream.disableAutoRequestWithInitial(capacity);
+    }
+
+    @Override
+    public void onNext(RespT value) {
+        enqueue(() -> {
+            try {
+                delegate.onNext(value);
+            } finally {
+                call.request(1);
+            }
+        });
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        enqueue(() -> {
+            finished = true;
+            delegate.onError(t);
+        });
+    }
+
+    @Override
+    public void onCompleted() {
+        enqueue(() -> {
+            finished = true;
+            delegate.onCompleted();
+        });
+    }
+
+    private void enqueue(Runnable event) {
+        if (!events.offer(event)) {
+            // Only possible if the server ignores flow control; failing the call beats dropping output
+            throw new IllegalStateException("Stream buffer of " + capacity + " messages overflowed");
+        }
+    }
+
+    /**
+     * Handle buffered events on the calling thread, waiting up to the timeout
+     * for the first one. Returns after at most one buffer's worth of events,
+     * so the caller gets to check for cancellation regularly.
+     *
+     * @return true once the stream has completed or failed
+     */
+    boolean drain(long timeout, TimeUnit unit) throws InterruptedException {
+        Runnable event = events.poll(timeout, unit);
+        int handled = 0;
+        while (event != null) {
+            event.run();
+            if (finished || ++handled >= capacity) {
+                break;
+            }
+            event = events.poll();
+        }
+        return finished;
+    }
+
+    /**
+     * Cancel the call, e.g. when the build is cancelled and the remaining
+     * messages will not be consumed
+     */
+    void cancel(String message) {
+        ClientCallStreamObserver<ReqT> current = call;
+        if (current != null && !finished) {
+            current.cancel(message, null);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package org.knullci.knull.infrastructure.service;
+
+import com.google.protobuf.ByteString;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildStep;
+import org.knullci.knull.infrastructure.dto.BuildEvent;
+import org.knullci.knull.infrastructure.dto.LogText;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process publish/subscribe bus for live build updates.
+ * <p>
+ * Each build has one ring buffer of recent events shared by all of its
+ * subscribers. Publishing only stores the event in the ring; a small
+ * dispatcher pool then wakes every subscriber, which sends the events after
+ * its own position on a virtual thread of its own. A viewer with a slow
+ * connection therefore holds up neither the dispatcher nor other viewers,
+ * and watching a build costs neither disk I/O nor a platform thread per
+ * viewer. What a subscriber has yet to send is bounded by the ring: one that
+ * falls further behind is told so and continues from the oldest retained
+ * event.
+ */
+@Service
+public class BuildEventBus {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildEventBus.class);
+
+    private final int bufferSize;
+    private final long retentionMs;
+    private final Map<Long, EventStream> streams = new ConcurrentHashMap<>();
+    private final ExecutorService dispatcher;
+    private final ExecutorService senders;
+    private final ScheduledExecutorService reaper;
+
+    public BuildEventBus(@Value("${knull.events.buffer-size:1024}") int bufferSize,
+            @Value("${knull.events.dispatcher-threads:2}") int dispatcherThreads,
+            @Value("${knull.events.retention-ms:60000}") long retentionMs) {
+        this.bufferSize = bufferSize;
+        this.retentionMs = retentionMs;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.dispatcher = Executors.newFixedThreadPool(dispatcherThreads, runnable -> {
+            Thread thread = new Thread(runnable, "build-events-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.senders = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("build-events-sender-", 1).factory());
+        this.reaper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "build-events-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Receives the events of one build. Calls may block, e.g. on a socket
+     * write; they are made from a thread of the subscriber's own, never
+     * concurrently for the same listener.
+     */
+    public interface Listener {
+
+        void onEvent(BuildEvent event) throws Exception;
+
+        /**
+         * The build finished and every event was delivered
+         */
+        void onComplete();
+
+        /**
+         * Events were overwritten before they could be delivered; the
+         * listener continues with the oldest retained event
+         */
+        default void onEventsDropped() throws Exception {
+        }
+    }
+
+    /**
+     * Publish an event for a build
+     *
+     * @return the published event
+     */
+    public BuildEvent publish(Long buildId, String type, Object data) {
+        EventStream stream = streams.computeIfAbsent(buildId, EventStream::new);
+        BuildEvent event = stream.append(type, data);
+        scheduleDispatch(stream);
+        return event;
+    }
+
+    public BuildEvent publishStepStarted(Long buildId, int index, BuildStep step) {
+        return publish(buildId, BuildEvent.STEP_STARTED,
+                new BuildEvent.StepStarted(index, step.getName(), step.getStartedAt()));
+    }
+
+    /**
+     * Publish text that was appended to the build log
+     *
+     * @param logLength log length in bytes after the append
+     * @param stepIndex step that produced the text, or null for build level output
+     */
+    public BuildEvent publishLog(Long buildId, long logLength, String text, Integer stepIndex) {
+        int length = text.getBytes(StandardCharsets.UTF_8).length;
+        return publish(buildId, BuildEvent.LOG_CHUNK,
+                new BuildEvent.LogChunk(logLength - length, length, LogText.of(text), stepIndex));
+    }
+
+    /**
+     * Publish output appended to the log as bytes. The bytes are decoded only
+     * if a subscriber serializes the event.
+     */
+    public BuildEvent publishLog(Long buildId, long logLength, ByteString bytes, Integer stepIndex) {
+        return publish(buildId, BuildEvent.LOG_CHUNK,
+                new BuildEvent.LogChunk(logLength - bytes.size(), bytes.size(), LogText.of(bytes), stepIndex));
+    }
+
+    public BuildEvent publishStepCompleted(Long buildId, int index, BuildStep step) {
+        return publish(buildId, BuildEvent.STEP_COMPLETED, new BuildEvent.StepCompleted(index, step.getName(),
+                step.getStatus(), step.getCompletedAt(), step.getDuration(), step.getErrorMessage()));
+    }
+
+    public BuildEvent publishStatus(Build build) {
+        return publish(build.getId(), BuildEvent.STATUS_CHANGED,
+                new BuildEvent.StatusChanged(build.getStatus(), build.getCompletedAt(), build.getDuration()));
+    }
+
+    /**
+     * Mark the event stream of a build as finished. Subscribers are completed
+     * once they received every event; the stream is dropped after the
+     * retention time so that late viewers still see the final events.
+     */
+    public void complete(Long buildId) {
+        EventStream stream = streams.get(buildId);
+        if (stream == null) {
+            return;
+        }
+        stream.completed = true;
+        scheduleDispatch(stream);
+        reaper.schedule(() -> streams.remove(buildId, stream), retentionMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Subscribe to the events of a build published after the given event id.
+     * A stream is opened for builds that have not published anything yet.
+     */
+    public void subscribe(Long buildId, long lastEventId, Listener listener) {
+        EventStream stream = streams.computeIfAbsent(buildId, EventStream::new);
+        stream.subscribers.add(new Subscriber(listener, lastEventId));
+        scheduleDispatch(stream);
+    }
+
+    public void unsubscribe(Long buildId, Listener listener) {
+        EventStream stream = streams.get(buildId);
+        if (stream != null) {
+            stream.subscribers.removeIf(subscriber -> subscriber.listener == listener);
+        }
+    }
+
+    /**
+     * Whether every event after the given id is still retained, so that a
+     * subscriber can resume from it without missing anything
+     */
+    public boolean canResume(Long buildId, long lastEventId) {
+        EventStream stream = streams.get(buildId);
+        return stream != null && stream.retains(lastEventId);
+    }
+
+    /**
+     * Id of the latest event published for a build, or 0 if there is none
+     */
+    public long lastEventId(Long buildId) {
+        EventStream stream = streams.get(buildId);
+        return stream != null ? stream.lastId() : 0;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        reaper.shutdownNow();
+        dispatcher.shutdown();
+        senders.shutdownNow();
+    }
+
+    private void scheduleDispatch(EventStream stream) {
+        // At most one pending dispatch per stream; it picks up every event published before it runs
+        if (stream.dispatchScheduled.compareAndSet(false, true)) {
+            dispatcher.execute(() -> dispatch(stream));
+        }
+    }
+
+    private void dispatch(EventStream stream) {
+        stream.dispatchScheduled.set(false);
+        for (Subscriber subscriber : stream.subscribers) {
+            // A subscriber still sending picks the new events up before it stops
+            if (subscriber.wakeups.getAndIncrement() == 0) {
+                senders.execute(() -> send(stream, subscriber));
+            }
+        }
+    }
+
+    private void send(EventStream stream, Subscriber subscriber) {
+        int wakeups = subscriber.wakeups.get();
+        do {
+            // Completion is read first, so that the events delivered include the last one
+            if (!subscriber.deliver(stream, stream.completed)) {
+                stream.subscribers.remove(subscriber);
+            }
+            wakeups = subscriber.wakeups.addAndGet(-wakeups);
+        } while (wakeups != 0);
+    }
+
+    private final class EventStream {
+
+        private final Long buildId;
+        private final BuildEvent[] ring = new BuildEvent[bufferSize];
+        private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+        private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+        private long lastId;
+        private volatile boolean completed;
+
+        private EventStream(Long buildId) {
+            this.buildId = buildId;
+        }
+
+        private synchronized BuildEvent append(String type, Object data) {
+            BuildEvent event = new BuildEvent(++lastId, buildId, type, data);
+            ring[(int) (event.id() % ring.length)] = event;
+            return event;
+        }
+
+        private synchronized long lastId() {
+            return lastId;
+        }
+
+        private synchronized boolean retains(long afterId) {
+            return afterId <= lastId && afterId >= lastId - ring.length;
+        }
+
+        /**
+         * Events after the given id that are still in the ring
+         */
+        private synchronized List<BuildEvent> eventsAfter(long id) {
+            long first = Math.max(id + 1, lastId - ring.length + 1);
+            List<BuildEvent> events = new ArrayList<>();
+            for (long next = Math.max(first, 1); next <= lastId; next++) {
+                events.add(ring[(int) (next % ring.length)]);
+            }
+            return events;
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final Listener listener;
+        // Dispatches since the subscriber last caught up, non-zero while it is sending
+        private final AtomicInteger wakeups = new AtomicInteger();
+        private long position;
+        private boolean done;
+
+        private Subscriber(Listener listener, long position) {
+            this.listener = listener;
+            this.position = position;
+        }
+
+        /**
+         * Deliver every event after this subscriber's position. Only called
+         * by the subscriber's sender, one at a time; not synchronized, as a
+         * virtual thread blocked inside a monitor would pin its carrier.
+         *
+         * @return false if the subscriber is done, either completed or failed
+         */
+        private boolean deliver(EventStream stream, boolean completed) {
+            if (done) {
+                return false;
+            }
+            try {
+                List<BuildEvent> events = stream.eventsAfter(position);
+                if (!events.isEmpty() && events.get(0).id() > position + 1) {
+                    listener.onEventsDropped();
+                }
+                for (BuildEvent event : events) {
+                    listener.onEvent(event);
+                    position = event.id();
+                }
+            } catch (Exception e) {
+                logger.debug("Dropping subscriber of build {}: {}", stream.buildId, e.getMessage());
+                done = true;
+                return false;
+            }
+            if (completed) {
+                done = true;
+                listener.onComplete();
+                return false;
+            }
+            return true;
+        }
+    }
+}
@@ -7,7 +7,6 @@ import org.knullci.knull.domain.model.BuildStep;
 import org.knullci.knull.domain.model.Credentials;
 import org.knullci.knull.domain.model.Job;
 import org.knullci.knull.domain.model.JobConfig;
-import org.knullci.knull.domain.repository.BuildRepository;
 import org.knullci.knull.domain.repository.CredentialRepository;
 import org.knullci.knull.infrastructure.dto.ProcessResult;
 import org.knullci.knull.infrastructure.enums.Tool;
@@ -33,19 +32,22 @@ public class BuildExecutorService {
     private static final String WORKSPACE_BASE = "workspace";
     private final KnullProcessRunner processRunner;
     private final CredentialRepository credentialRepository;
-    private final BuildRepository buildRepository;
+    private final BuildLogWriter buildLogWriter;
     private final EncryptionService encryptionService;
+    private final BuildEventBus buildEventBus;
     private final ObjectMapper yamlObjectMapper;
 
     public BuildExecutorService(KnullProcessRunner processRunner,
             CredentialRepository credentialRepository,
             EncryptionService encryptionService,
-            BuildRepository buildRepository,
+            BuildLogWriter buildLogWriter,
+            BuildEventBus buildEventBus,
             @Qualifier("yamlObjectMapper") ObjectMapper yamlObjectMapper) {
         this.processRunner = processRunner;
         this.credentialRepository = credentialRepository;
         this.encryptionService = encryptionService;
-        this.buildRepository = buildRepository;
+        this.buildLogWriter = buildLogWriter;
+        this.buildEventBus = buildEventBus;
         this.yamlObjectMapper = yamlObjectMapper;
     }
 
@@ -98,44 +100,42 @@ public class BuildExecutorService {
         step.setStartedAt(new Date());
 
         build.getSteps().add(step);
+        int stepIndex = build.getSteps().size() - 1;
         logger.info("Executing step: {}", stepName);
+        buildEventBus.publishStepStarted(build.getId(), stepIndex, step);
 
         StringBuilder output = new StringBuilder();
         long startTime = System.currentTimeMillis();
-        // Append step header to incremental build log and persist
-        StringBuilder incLog = new StringBuilder(build.getBuildLog() == null ? "" : build.getBuildLog());
-        incLog.append("\n=== ").append(stepName).append(" ===\n");
-        build.setBuildLog(incLog.toString());
-        buildRepository.updateBuild(build);
+        // Append step header to the build log and persist
+        buildLogWriter.append(build, "\n=== " + stepName + " ===\n", null);
+        long logOffset = build.getLogLength() != null ? build.getLogLength() : 0;
+        step.setLogOffset(logOffset);
+        buildLogWriter.persistSteps(build);
 
         try {
             String result = executor.execute();
             output.append(result);
 
             step.setStatus(BuildStepStatus.SUCCESS);
-            step.setOutput(output.toString());
             logger.info("Step completed successfully: {}", stepName);
-            // Append output to incremental log and persist
-            incLog.append(output);
-            build.setBuildLog(incLog.toString());
-            buildRepository.updateBuild(build);
+            // Append output to the build log
+            buildLogWriter.append(build, output.toString(), stepIndex);
 
         } catch (Exception e) {
             step.setStatus(BuildStepStatus.FAILURE);
             step.setErrorMessage(e.getMessage());
             output.append("\nError: ").append(e.getMessage());
-            step.setOutput(output.toString());
             logger.error("Step failed: {}", stepName, e);
-            // Append error to incremental log and persist before rethrow
-            incLog.append(output);
-            build.setBuildLog(incLog.toString());
-            buildRepository.updateBuild(build);
+            // Append error to the build log before rethrow
+            buildLogWriter.append(build, output.toString(), stepIndex);
             throw e;
         } finally {
+            step.setLogLength(build.getLogLength() - logOffset);
             step.setCompletedAt(new Date());
             step.setDuration(System.currentTimeMillis() - startTime);
             // Persist step timing and status changes
-            buildRepository.updateBuild(build);
+            buildLogWriter.persistSteps(build);
+            buildEventBus.publishStepCompleted(build.getId(), stepIndex, step);
         }
     }
 
@@ -0,0 +1,65 @@
+package org.knullci.knull.infrastructure.service;
+
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compresses the logs of finished builds on a background thread. Archived
+ * logs stay readable through the build log repository, so archiving can
+ * happen at any time after a build stopped writing to its log.
+ */
+@Service
+public class BuildLogArchiver {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildLogArchiver.class);
+
+    private final BuildLogRepository buildLogRepository;
+    private final boolean enabled;
+    private final ExecutorService archiver;
+
+    public BuildLogArchiver(BuildLogRepository buildLogRepository,
+            @Value("${knull.logs.archive.enabled:true}") boolean enabled) {
+        this.buildLogRepository = buildLogRepository;
+        this.enabled = enabled;
+        this.archiver = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-archiver");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue the log of a build that reached a terminal state for archiving
+     */
+    public void submit(Long buildId) {
+        if (!enabled) {
+            return;
+        }
+        archiver.execute(() -> {
+            try {
+                buildLogRepository.archive(buildId);
+            } catch (Exception e) {
+                logger.error("Failed to archive log of build {}", buildId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // A log left unarchived is still complete, so pending work is simply dropped
+        archiver.shutdownNow();
+        try {
+            archiver.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.knullci.knull.infrastructure.service;
+
+import com.google.protobuf.ByteString;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.knullci.knull.domain.repository.BuildRepository;
+import org.springframework.stereotype.Component;
+
+/**
+ * Writes the output of a running build, shared by the build executors.
+ * Output goes to the build's log file and to its live viewers; the build
+ * document is only persisted on step transitions.
+ */
+@Component
+public class BuildLogWriter {
+
+    private final BuildRepository buildRepository;
+    private final BuildLogRepository buildLogRepository;
+    private final BuildEventBus buildEventBus;
+
+    public BuildLogWriter(BuildRepository buildRepository,
+            BuildLogRepository buildLogRepository,
+            BuildEventBus buildEventBus) {
+        this.buildRepository = buildRepository;
+        this.buildLogRepository = buildLogRepository;
+        this.buildEventBus = buildEventBus;
+    }
+
+    /**
+     * Append text to the build log and record the new log length on the build
+     *
+     * @param stepIndex step that produced the text, or null for build level output
+     */
+    public void append(Build build, String text, Integer stepIndex) {
+        build.setLogLength(buildLogRepository.append(build.getId(), text));
+        buildEventBus.publishLog(build.getId(), build.getLogLength(), text, stepIndex);
+    }
+
+    /**
+     * Append output received as bytes without decoding it. Malformed UTF-8,
+     * including a character split across two batches, is kept as is and
+     * replaced only where the log is decoded for reading.
+     */
+    public void append(Build build, ByteString data, Integer stepIndex) {
+        build.setLogLength(buildLogRepository.append(build.getId(), data.asReadOnlyByteBufferList()));
+        buildEventBus.publishLog(build.getId(), build.getLogLength(), data, stepIndex);
+    }
+
+    /**
+     * Persist the steps and log length tracked by an executor. The status is
+     * left as stored, so a concurrent cancel is never overwritten.
+     */
+    public void persistSteps(Build build) {
+        buildRepository.modifyBuild(build.getId(), current -> {
+            current.setSteps(build.getSteps());
+            if (build.getLogLength() != null
+                    && (current.getLogLength() == null || build.getLogLength() > current.getLogLength())) {
+                current.setLogLength(build.getLogLength());
+            }
+        });
+    }
+}
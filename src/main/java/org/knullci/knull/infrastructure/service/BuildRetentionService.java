@@ -0,0 +1,369 @@
+package org.knullci.knull.infrastructure.service;
+
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.domain.model.BuildSummary;
+import org.knullci.knull.domain.model.RetentionPolicy;
+import org.knullci.knull.domain.model.RetentionReport;
+import org.knullci.knull.domain.model.Settings;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.domain.repository.LogIndexRepository;
+import org.knullci.knull.domain.repository.RetentionPolicyRepository;
+import org.knullci.knull.domain.repository.SettingsRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Enforces the build retention settings on a background thread.
+ * <p>
+ * A run takes the finished builds of every job from the build catalog,
+ * newest first. The newest keepLast of them are kept; older ones are deleted
+ * with their log and workspace once they are older than the retention
+ * period, which can be longer for failed builds. Kept builds whose log is still
+ * uncompressed get it archived. Global values come from the settings and
+ * the properties below, and each job can override them. Builds without a
+ * job are never deleted.
+ * <p>
+ * Scheduled runs are off unless knull.retention.enabled is set, as they
+ * delete data; {@link #trigger()} still starts a run on demand.
+ * <p>
+ * The run pauses after every batch in which it changed anything and stops
+ * after a maximum number of deletions, so pruning a large backlog is spread
+ * over several runs instead of competing with running builds for I/O.
+ */
+@Service
+public class BuildRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildRetentionService.class);
+
+    private static final int DEFAULT_RETENTION_DAYS = 30;
+    private static final String WORKSPACE_PREFIX = "build-";
+    private static final Set<BuildStatus> FINISHED_STATUSES = EnumSet.of(
+            BuildStatus.SUCCESS, BuildStatus.FAILURE, BuildStatus.CANCELLED);
+
+    private final BuildRepository buildRepository;
+    private final BuildLogRepository buildLogRepository;
+    private final LogIndexRepository logIndexRepository;
+    private final SettingsRepository settingsRepository;
+    private final RetentionPolicyRepository retentionPolicyRepository;
+    private final Path workspaceBasePath;
+    private final int defaultKeepLast;
+    private final int defaultKeepFailuresDays;
+    private final int batchSize;
+    private final long batchPauseMs;
+    private final int maxDeletesPerRun;
+    private final long workspaceGraceMs;
+    private final ScheduledExecutorService scheduler;
+    private volatile RetentionReport lastReport;
+
+    public BuildRetentionService(BuildRepository buildRepository,
+            BuildLogRepository buildLogRepository,
+            LogIndexRepository logIndexRepository,
+            SettingsRepository settingsRepository,
+            RetentionPolicyRepository retentionPolicyRepository,
+            @Value("${knull.workspace.base-path:/tmp/knull-workspace}") String workspaceBasePath,
+            @Value("${knull.retention.enabled:false}") boolean enabled,
+            @Value("${knull.retention.interval-ms:3600000}") long intervalMs,
+            @Value("${knull.retention.keep-last:10}") int defaultKeepLast,
+            @Value("${knull.retention.keep-failures-days:0}") int defaultKeepFailuresDays,
+            @Value("${knull.retention.batch-size:100}") int batchSize,
+            @Value("${knull.retention.batch-pause-ms:1000}") long batchPauseMs,
+            @Value("${knull.retention.max-deletes-per-run:1000}") int maxDeletesPerRun,
+            @Value("${knull.retention.workspace-grace-hours:24}") long workspaceGraceHours) {
+        this.buildRepository = buildRepository;
+        this.buildLogRepository = buildLogRepository;
+        this.logIndexRepository = logIndexRepository;
+        this.settingsRepository = settingsRepository;
+        this.retentionPolicyRepository = retentionPolicyRepository;
+        this.workspaceBasePath = Paths.get(workspaceBasePath).toAbsolutePath().normalize();
+        this.defaultKeepLast = defaultKeepLast;
+        this.defaultKeepFailuresDays = defaultKeepFailuresDays;
+        this.batchSize = Math.max(1, batchSize);
+        this.batchPauseMs = batchPauseMs;
+        this.maxDeletesPerRun = Math.max(1, maxDeletesPerRun);
+        this.workspaceGraceMs = TimeUnit.HOURS.toMillis(workspaceGraceHours);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "build-retention");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        if (enabled) {
+            this.scheduler.scheduleWithFixedDelay(this::runSafely, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Queue a run on the retention thread, after any run in progress
+     */
+    public void trigger() {
+        scheduler.execute(this::runSafely);
+    }
+
+    public Optional<RetentionReport> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    /**
+     * Apply the retention rules once
+     */
+    public RetentionReport run() {
+        Date startedAt = new Date();
+        Settings settings = settingsRepository.getSettings().orElseGet(Settings::new);
+        int keepDays = settings.getBuildRetentionDays() != null
+                ? settings.getBuildRetentionDays() : DEFAULT_RETENTION_DAYS;
+        boolean cleanupWorkspaces = settings.getAutoCleanupWorkspace() == null
+                || settings.getAutoCleanupWorkspace();
+        Map<Long, RetentionPolicy> overrides = retentionPolicyRepository.findAll().stream()
+                .collect(Collectors.toMap(RetentionPolicy::getJobId, Function.identity(), (a, b) -> b));
+
+        long now = startedAt.getTime();
+        int scanned = 0;
+        int deleted = 0;
+        int archived = 0;
+        long reclaimed = 0;
+        boolean complete = true;
+        boolean changed = false;
+
+        // Candidates come from the catalog; only summaries of builds that may have expired are read
+        Map<Long, List<Long>> finishedByJob = buildRepository.findIdsByJob(
+                FINISHED_STATUSES.toArray(BuildStatus[]::new));
+        jobs:
+        for (Map.Entry<Long, List<Long>> job : finishedByJob.entrySet()) {
+            RetentionPolicy policy = overrides.get(job.getKey());
+            Set<Long> expired = job.getKey() != null
+                    ? findExpired(job.getKey(), job.getValue(), policy, keepDays, now, maxDeletesPerRun - deleted)
+                    : Set.of();
+            for (Long buildId : job.getValue()) {
+                scanned++;
+                if (expired.contains(buildId)) {
+                    if (deleted >= maxDeletesPerRun) {
+                        complete = false;
+                        break jobs;
+                    }
+                    reclaimed += buildRepository.deleteBuild(buildId);
+                    logIndexRepository.remove(buildId);
+                    reclaimed += deleteWorkspace(buildId);
+                    deleted++;
+                    changed = true;
+                } else if (buildLogRepository.archive(buildId)) {
+                    archived++;
+                    changed = true;
+                }
+                if (scanned % batchSize == 0 && changed) {
+                    changed = false;
+                    if (!pause()) {
+                        complete = false;
+                        break jobs;
+                    }
+                }
+            }
+        }
+
+        int workspacesDeleted = 0;
+        if (cleanupWorkspaces && !Thread.currentThread().isInterrupted()) {
+            long[] workspaces = deleteLeftoverWorkspaces(now);
+            workspacesDeleted = (int) workspaces[0];
+            reclaimed += workspaces[1];
+        }
+
+        RetentionReport report = new RetentionReport(startedAt, new Date(), scanned, deleted, archived,
+                workspacesDeleted, reclaimed, complete);
+        lastReport = report;
+        logger.info("Build retention: scanned {} builds, deleted {}, archived {} logs, removed {} workspaces, "
+                + "reclaimed {} bytes{}", scanned, deleted, archived, workspacesDeleted, reclaimed,
+                complete ? "" : " (stopped early, continuing next run)");
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        // Deleting a build is safe to interrupt between builds, so a run in progress is just stopped
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Find the finished builds of a job that fall outside its retention. The
+     * catalog narrows them down to builds older than the newest keepLast
+     * that started before the retention period, so only their summaries
+     * are read.
+     *
+     * @param finished ids of the finished builds of the job, newest first
+     * @param limit number of deletions left in this run; one more is looked up to tell the run stopped early
+     */
+    private Set<Long> findExpired(Long jobId, List<Long> finished, RetentionPolicy policy, int keepDays,
+            long now, int limit) {
+        int keepLast = policy != null && policy.getKeepLast() != null ? policy.getKeepLast() : defaultKeepLast;
+        int days = policy != null && policy.getKeepDays() != null ? policy.getKeepDays() : keepDays;
+        if (finished.size() <= keepLast || days <= 0) {
+            return Set.of();
+        }
+        // A build finishes after it starts, so one started within the period has not expired
+        Date startedTo = new Date(now - TimeUnit.DAYS.toMillis(days));
+        Long cursor = keepLast > 0 ? finished.get(keepLast - 1) : null;
+        Set<Long> expired = new HashSet<>();
+        do {
+            var page = buildRepository.findBuilds(
+                    new BuildQuery(jobId, null, null, null, null, null, null, startedTo, cursor, batchSize));
+            for (BuildSummary build : page.getItems()) {
+                if (build.getStatus() != null && FINISHED_STATUSES.contains(build.getStatus())
+                        && isExpired(build, policy, keepDays, now)) {
+                    expired.add(build.getId());
+                }
+            }
+            cursor = page.getNextCursor();
+        } while (cursor != null && expired.size() <= limit);
+        return expired;
+    }
+
+    /**
+     * Whether a finished build beyond the newest keepLast of its job is older
+     * than the retention period
+     */
+    private boolean isExpired(BuildSummary build, RetentionPolicy policy, int keepDays, long now) {
+        int days = policy != null && policy.getKeepDays() != null ? policy.getKeepDays() : keepDays;
+        if (build.getStatus() == BuildStatus.FAILURE) {
+            int failureDays = policy != null && policy.getKeepFailuresDays() != null
+                    ? policy.getKeepFailuresDays() : defaultKeepFailuresDays;
+            days = Math.max(days, failureDays);
+        }
+        Date finishedAt = build.getCompletedAt() != null ? build.getCompletedAt() : build.getStartedAt();
+        if (days <= 0 || finishedAt == null) {
+            // No age limit, or no way to tell the age of the build
+            return false;
+        }
+        return now - finishedAt.getTime() > TimeUnit.DAYS.toMillis(days);
+    }
+
+    /**
+     * Remove the workspaces of builds that are finished or gone. Workspaces
+     * changed within the grace period are left alone, as their build may
+     * just have started or a user may be inspecting them.
+     *
+     * @return the number of workspaces removed and the bytes they held
+     */
+    private long[] deleteLeftoverWorkspaces(long now) {
+        long[] result = new long[2];
+        if (!Files.isDirectory(workspaceBasePath)) {
+            return result;
+        }
+        try (DirectoryStream<Path> workspaces = Files.newDirectoryStream(workspaceBasePath, WORKSPACE_PREFIX + "*")) {
+            for (Path workspace : workspaces) {
+                if (result[0] >= maxDeletesPerRun) {
+                    break;
+                }
+                Long buildId = parseBuildId(workspace);
+                if (buildId == null
+                        || now - Files.getLastModifiedTime(workspace).toMillis() < workspaceGraceMs) {
+                    continue;
+                }
+                var build = buildRepository.findById(buildId);
+                if (build.isPresent() && (build.get().getStatus() == null
+                        || !FINISHED_STATUSES.contains(build.get().getStatus()))) {
+                    continue;
+                }
+                result[1] += deleteRecursively(workspace);
+                result[0]++;
+                if (result[0] % batchSize == 0 && !pause()) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to list workspaces in {}", workspaceBasePath, e);
+        }
+        return result;
+    }
+
+    private long deleteWorkspace(Long buildId) {
+        Path workspace = workspaceBasePath.resolve(WORKSPACE_PREFIX + buildId);
+        return Files.isDirectory(workspace) ? deleteRecursively(workspace) : 0;
+    }
+
+    /**
+     * Delete a directory tree, never following symbolic links out of it
+     *
+     * @return the number of bytes freed
+     */
+    private static long deleteRecursively(Path directory) {
+        long freed = 0;
+        try (Stream<Path> files = Files.walk(directory)) {
+            List<Path> paths = files.sorted(Comparator.reverseOrder()).toList();
+            for (Path path : paths) {
+                try {
+                    long size = Files.isRegularFile(path, LinkOption.NOFOLLOW_LINKS) ? Files.size(path) : 0;
+                    Files.delete(path);
+                    freed += size;
+                } catch (IOException e) {
+                    logger.warn("Failed to delete {}", path, e);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to delete workspace {}", directory, e);
+        }
+        return freed;
+    }
+
+    private static Long parseBuildId(Path workspace) {
+        try {
+            return Long.parseLong(workspace.getFileName().toString().substring(WORKSPACE_PREFIX.length()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Give running builds the disk between batches
+     *
+     * @return false if the thread was interrupted
+     */
+    private boolean pause() {
+        if (batchPauseMs <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(batchPauseMs);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void runSafely() {
+        try {
+            run();
+        } catch (Exception e) {
+            logger.error("Build retention run failed", e);
+        }
+    }
+}
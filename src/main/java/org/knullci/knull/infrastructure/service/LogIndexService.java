@@ -0,0 +1,67 @@
+package org.knullci.knull.infrastructure.service;
+
+import org.knullci.knull.domain.repository.LogIndexRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds the logs of finished builds to the cross-build log index on a single
+ * background thread, so indexing never delays a build and index writes
+ * never run concurrently.
+ */
+@Service
+public class LogIndexService {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogIndexService.class);
+
+    private final LogIndexRepository logIndexRepository;
+    private final boolean enabled;
+    private final ExecutorService indexer;
+
+    public LogIndexService(LogIndexRepository logIndexRepository,
+            @Value("${knull.log-index.enabled:true}") boolean enabled) {
+        this.logIndexRepository = logIndexRepository;
+        this.enabled = enabled;
+        this.indexer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "log-indexer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue the log of a finished build for indexing
+     */
+    public void submit(Long buildId) {
+        if (!enabled) {
+            return;
+        }
+        indexer.execute(() -> {
+            try {
+                logIndexRepository.index(buildId);
+            } catch (Exception e) {
+                logger.error("Failed to index log of build {}", buildId, e);
+            }
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        indexer.shutdown();
+        try {
+            // Give queued builds a moment to be indexed; builds still queued afterwards stay unindexed
+            if (!indexer.awaitTermination(5, TimeUnit.SECONDS)) {
+                indexer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
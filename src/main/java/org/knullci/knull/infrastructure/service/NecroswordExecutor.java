@@ -1,8 +1,11 @@
 package org.knullci.knull.infrastructure.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
+import com.google.protobuf.UnsafeByteOperations;
 import io.grpc.ManagedChannel;
 import io.grpc.ManagedChannelBuilder;
+import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
 import io.grpc.stub.StreamObserver;
 import org.knullci.knull.domain.enums.BuildStepStatus;
@@ -10,7 +13,6 @@ import org.knullci.knull.domain.model.Build;
 import org.knullci.knull.domain.model.Credentials;
 import org.knullci.knull.domain.model.Job;
 import org.knullci.knull.domain.model.SecretFile;
-import org.knullci.knull.domain.repository.BuildRepository;
 import org.knullci.knull.domain.repository.CredentialRepository;
 import org.knullci.knull.domain.repository.SecretFileRepository;
 import org.knullci.knull.infrastructure.knullpojo.v1.JobStep;
@@ -28,16 +30,18 @@ import jakarta.annotation.PreDestroy;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPInputStream;
 
 /**
  * NecroswordExecutor - Executes builds using the Necrosword gRPC pipeline
@@ -56,11 +60,16 @@ public class NecroswordExecutor implements KnullExecutor {
     private static final int DEFAULT_STEP_TIMEOUT_SECONDS = 300; // 5 minutes per step
     private static final int DEFAULT_PIPELINE_TIMEOUT_SECONDS = 3600; // 1 hour total
     private static final int CHANNEL_SHUTDOWN_TIMEOUT_SECONDS = 5;
+    private static final int CANCEL_DEADLINE_SECONDS = 10;
+    private static final long RESUME_INITIAL_DELAY_MS = 500;
+    private static final long RESUME_MAX_DELAY_MS = 10_000;
+    private static final ByteString NEWLINE = ByteString.copyFromUtf8("\n");
 
     private final CredentialRepository credentialRepository;
-    private final BuildRepository buildRepository;
+    private final BuildLogWriter buildLogWriter;
     private final SecretFileRepository secretFileRepository;
     private final EncryptionService encryptionService;
+    private final BuildEventBus buildEventBus;
     private final ObjectMapper yamlObjectMapper;
 
     // Track running builds for cancellation support
@@ -83,6 +92,18 @@ public class NecroswordExecutor implements KnullExecutor {
     @Value("${necrosword.grpc.max-inbound-message-size:16777216}")
     private int maxInboundMessageSize; // 16MB default
 
+    @Value("${necrosword.grpc.stream-buffer-messages:256}")
+    private int streamBufferMessages;
+
+    @Value("${necrosword.grpc.batched-output:true}")
+    private boolean batchedOutput;
+
+    @Value("${necrosword.grpc.gzip-output:false}")
+    private boolean gzipOutput;
+
+    @Value("${necrosword.grpc.resume-timeout-ms:120000}")
+    private long resumeTimeoutMs;
+
     private ManagedChannel channel;
     private ExecutorServiceGrpc.ExecutorServiceStub asyncStub;
     private ExecutorServiceGrpc.ExecutorServiceBlockingStub blockingStub;
@@ -90,13 +111,15 @@ public class NecroswordExecutor implements KnullExecutor {
     public NecroswordExecutor(
             CredentialRepository credentialRepository,
             EncryptionService encryptionService,
-            BuildRepository buildRepository,
+            BuildLogWriter buildLogWriter,
             SecretFileRepository secretFileRepository,
+            BuildEventBus buildEventBus,
             @Qualifier("yamlObjectMapper") ObjectMapper yamlObjectMapper) {
         this.credentialRepository = credentialRepository;
         this.encryptionService = encryptionService;
-        this.buildRepository = buildRepository;
+        this.buildLogWriter = buildLogWriter;
         this.secretFileRepository = secretFileRepository;
+        this.buildEventBus = buildEventBus;
         this.yamlObjectMapper = yamlObjectMapper;
     }
 
@@ -203,40 +226,49 @@ public class NecroswordExecutor implements KnullExecutor {
     }
 
     /**
-     * Cancel a running build by ID.
-     * 
+     * Mark a running build as cancelled. Its remaining stream events are
+     * ignored and it stops once the pipeline call returns; the executor is
+     * not contacted, see {@link #cancelPipeline(Long)}.
+     *
      * @param buildId the build ID to cancel
-     * @return true if the build was cancelled, false if not running
+     * @return true if the build was marked, false if not running
      */
-    public boolean cancelBuild(Long buildId) {
+    public boolean markCancelled(Long buildId) {
         AtomicBoolean cancelled = runningBuilds.get(buildId);
         if (cancelled != null) {
             cancelled.set(true);
             logger.info("Build {} marked for cancellation", buildId);
-
-            // Also call gRPC to cancel the pipeline in Necrosword
-            String pipelineId = buildPipelineIds.get(buildId);
-            if (pipelineId != null) {
-                try {
-                    CancelPipelineRequest request = CancelPipelineRequest.newBuilder()
-                            .setPipelineId(pipelineId)
-                            .build();
-                    CancelPipelineResponse response = blockingStub.cancelPipeline(request);
-                    logger.info(
-                            "CancelPipeline gRPC response for build {}: success={}, message={}, cancelledProcesses={}",
-                            buildId, response.getSuccess(), response.getMessage(),
-                            response.getCancelledProcesses());
-                } catch (Exception e) {
-                    logger.warn("Failed to call CancelPipeline gRPC for build {}: {}", buildId, e.getMessage());
-                }
-            }
-
             return true;
         }
         logger.warn("Build {} not found in running builds for cancellation", buildId);
         return false;
     }
 
+    /**
+     * Ask Necrosword to stop the pipeline of a build marked as cancelled,
+     * waiting at most {@value #CANCEL_DEADLINE_SECONDS} seconds for it to answer.
+     */
+    public void cancelPipeline(Long buildId) {
+        String pipelineId = buildPipelineIds.get(buildId);
+        if (pipelineId == null) {
+            return;
+        }
+        try {
+            CancelPipelineRequest request = CancelPipelineRequest.newBuilder()
+                    .setPipelineId(pipelineId)
+                    .build();
+            CancelPipelineResponse response = blockingStub
+                    .withDeadlineAfter(CANCEL_DEADLINE_SECONDS, TimeUnit.SECONDS)
+                    .cancelPipeline(request);
+            logger.info(
+                    "CancelPipeline gRPC response for build {}: success={}, message={}, cancelledProcesses={}",
+                    buildId, response.getSuccess(), response.getMessage(),
+                    response.getCancelledProcesses());
+        } catch (Exception e) {
+            logger.warn("Failed to call CancelPipeline gRPC for build {}: {}", buildId, e.getMessage());
+        }
+    }
+
     /**
      * Check if a build is currently running.
      */
@@ -390,6 +422,10 @@ public class NecroswordExecutor implements KnullExecutor {
 
     /**
      * Execute a pipeline using gRPC streaming for real-time log updates.
+     * Stream events are handled on the calling thread, the gRPC callback
+     * thread only queues them; see {@link BufferedStreamObserver}.
+     * If the stream drops while the pipeline runs, it is resumed after the
+     * last handled event, with backoff, for up to the resume timeout.
      */
     private void executePipelineWithStreaming(Build build, PipelineRequest pipelineRequest, String phaseName,
             AtomicBoolean cancelled)
@@ -400,17 +436,19 @@ public class NecroswordExecutor implements KnullExecutor {
         // Store pipeline ID for cancellation support
         buildPipelineIds.put(build.getId(), pipelineRequest.getId());
 
-        CountDownLatch completionLatch = new CountDownLatch(1);
         AtomicBoolean success = new AtomicBoolean(true);
         AtomicReference<String> errorMessage = new AtomicReference<>();
         AtomicReference<PipelineResponse> pipelineResult = new AtomicReference<>();
+        AtomicLong lastSequence = new AtomicLong();
 
         // Use streaming for real-time updates
-        StreamObserver<PipelineStreamResponse> responseObserver = new StreamObserver<>() {
-            private final StringBuilder currentStepOutput = new StringBuilder();
+        StreamObserver<PipelineStreamResponse> streamHandler = new StreamObserver<>() {
             private String currentStepName = null;
             private org.knullci.knull.domain.model.BuildStep currentBuildStep = null;
             private long stepStartTime = 0;
+            private int currentStepIndex = -1;
+            // The last batch ended inside a line, e.g. inside a character split across two batches
+            private boolean lineOpen = false;
 
             @Override
             public void onNext(PipelineStreamResponse response) {
@@ -419,12 +457,21 @@ public class NecroswordExecutor implements KnullExecutor {
                     logger.debug("Ignoring stream event - build is cancelled");
                     return;
                 }
+                // Events sent again after a resume were already handled
+                if (response.getSequence() != 0) {
+                    if (response.getSequence() <= lastSequence.get()) {
+                        return;
+                    }
+                    lastSequence.set(response.getSequence());
+                }
 
                 try {
                     if (response.hasStepStarted()) {
                         handleStepStarted(response.getStepStarted());
                     } else if (response.hasStepOutput()) {
                         handleStepOutput(response.getStepOutput());
+                    } else if (response.hasStepOutputBatch()) {
+                        handleStepOutputBatch(response.getStepOutputBatch());
                     } else if (response.hasStepCompleted()) {
                         handleStepCompleted(response.getStepCompleted());
                     } else if (response.hasPipelineCompleted()) {
@@ -440,7 +487,6 @@ public class NecroswordExecutor implements KnullExecutor {
                         phaseName, event.getStepName(), event.getStepIndex() + 1, event.getTotalSteps());
 
                 currentStepName = event.getStepName();
-                currentStepOutput.setLength(0);
                 stepStartTime = System.currentTimeMillis();
 
                 // Create and track build step
@@ -449,21 +495,44 @@ public class NecroswordExecutor implements KnullExecutor {
                 currentBuildStep.setStatus(BuildStepStatus.IN_PROGRESS);
                 currentBuildStep.setStartedAt(new Date());
                 build.getSteps().add(currentBuildStep);
+                currentStepIndex = build.getSteps().size() - 1;
+                buildEventBus.publishStepStarted(build.getId(), currentStepIndex, currentBuildStep);
 
                 // Update build log with step header
-                appendToBuildLog(build, "\n=== " + event.getStepName() + " ===\n");
+                endOpenLine(null);
+                appendToBuildLog(build, "\n=== " + event.getStepName() + " ===\n", null);
+                // The output of the step is the part of the build log written from here on
+                currentBuildStep.setLogOffset(currentLogLength(build));
             }
 
             private void handleStepOutput(StepOutputEvent event) {
                 String line = event.hasStdoutLine() ? event.getStdoutLine() : event.getStderrLine();
-                currentStepOutput.append(line).append("\n");
 
-                if (currentBuildStep != null) {
-                    currentBuildStep.setOutput(currentStepOutput.toString());
+                // Real-time log update
+                endOpenLine(currentBuildStep != null ? currentStepIndex : null);
+                appendToBuildLog(build, line + "\n", currentBuildStep != null ? currentStepIndex : null);
+            }
+
+            private void handleStepOutputBatch(StepOutputBatch batch) throws IOException {
+                ByteString data = batch.getCompression() == OutputCompression.OUTPUT_COMPRESSION_GZIP
+                        ? inflate(batch.getData())
+                        : batch.getData();
+                if (data.isEmpty()) {
+                    return;
                 }
+                // Appended as received, the next batch continues an unterminated line
+                appendToBuildLog(build, data, currentBuildStep != null ? currentStepIndex : null);
+                lineOpen = data.byteAt(data.size() - 1) != '\n';
+            }
 
-                // Real-time log update
-                appendToBuildLog(build, line + "\n");
+            /**
+             * Terminate a line left open by the last batch before other text is logged
+             */
+            private void endOpenLine(Integer stepIndex) {
+                if (lineOpen) {
+                    appendToBuildLog(build, NEWLINE, stepIndex);
+                    lineOpen = false;
+                }
             }
 
             private void handleStepCompleted(StepResult result) {
@@ -482,25 +551,30 @@ public class NecroswordExecutor implements KnullExecutor {
                             execResult.getStderr());
                 }
 
+                endOpenLine(currentBuildStep != null ? currentStepIndex : null);
                 if (currentBuildStep != null) {
                     if (execResult != null) {
                         currentBuildStep.setStatus(execResult.getSuccess()
                                 ? BuildStepStatus.SUCCESS
                                 : BuildStepStatus.FAILURE);
-                        currentBuildStep.setOutput(currentStepOutput.toString());
                         if (!execResult.getSuccess()) {
                             currentBuildStep.setErrorMessage(execResult.getError());
                         }
                     }
                     currentBuildStep.setCompletedAt(new Date());
                     currentBuildStep.setDuration(System.currentTimeMillis() - stepStartTime);
+                    endStepOutput(build, currentBuildStep);
                 }
 
                 // Persist step completion
-                buildRepository.updateBuild(build);
+                buildLogWriter.persistSteps(build);
+                if (currentBuildStep != null) {
+                    buildEventBus.publishStepCompleted(build.getId(), currentStepIndex, currentBuildStep);
+                }
             }
 
             private void handlePipelineCompleted(PipelineResponse response) {
+                endOpenLine(null);
                 logger.info("[{}] Pipeline completed - Success: {}, Duration: {}ms",
                         phaseName, response.getSuccess(), response.getTotalDurationMs());
 
@@ -538,33 +612,95 @@ public class NecroswordExecutor implements KnullExecutor {
                 } else {
                     errorMessage.set("Pipeline execution error: " + t.getMessage());
                 }
-                completionLatch.countDown();
             }
 
             @Override
             public void onCompleted() {
                 logger.info("[{}] Pipeline stream completed", phaseName);
-                completionLatch.countDown();
             }
         };
 
-        // Execute the pipeline with streaming
-        asyncStub.executePipelineStream(pipelineRequest, responseObserver);
+        // Schedule a resume instead of failing when the connection drops after the
+        // executor numbered its events; anything else fails the pipeline
+        ReconnectBackoff backoff = new ReconnectBackoff(RESUME_INITIAL_DELAY_MS, RESUME_MAX_DELAY_MS, resumeTimeoutMs);
+        AtomicLong resumeAt = new AtomicLong();
+        StreamObserver<PipelineStreamResponse> resumingHandler = new StreamObserver<>() {
+            @Override
+            public void onNext(PipelineStreamResponse response) {
+                backoff.reset();
+                streamHandler.onNext(response);
+            }
 
-        // Wait for completion with timeout, checking for cancellation
-        while (!completionLatch.await(500, TimeUnit.MILLISECONDS)) {
+            @Override
+            public void onError(Throwable t) {
+                long delay = lastSequence.get() > 0 && !cancelled.get()
+                        && Status.fromThrowable(t).getCode() == Status.Code.UNAVAILABLE
+                        ? backoff.nextDelayMs()
+                        : -1;
+                if (delay < 0) {
+                    streamHandler.onError(t);
+                    return;
+                }
+                logger.warn("[{}] Pipeline stream of build {} lost after event {}, resuming in {}ms: {}",
+                        phaseName, build.getId(), lastSequence.get(), delay, t.getMessage());
+                resumeAt.set(System.currentTimeMillis() + delay);
+            }
+
+            @Override
+            public void onCompleted() {
+                streamHandler.onCompleted();
+            }
+        };
+
+        // Execute the pipeline with streaming
+        BufferedStreamObserver<PipelineRequest, PipelineStreamResponse> started =
+                new BufferedStreamObserver<>(resumingHandler, streamBufferMessages);
+        asyncStub.executePipelineStream(
+                pipelineRequest.toBuilder().setOutputOptions(outputOptions()).build(), started);
+        BufferedStreamObserver<?, PipelineStreamResponse> responseObserver = started;
+
+        // Handle stream events until completion, checking for cancellation
+        while (true) {
+            if (responseObserver == null) {
+                // The stream dropped, resume it once the backoff delay has passed
+                long wait = resumeAt.get() - System.currentTimeMillis();
+                if (wait > 0) {
+                    Thread.sleep(Math.min(wait, 500));
+                } else if (!cancelled.get()) {
+                    resumeAt.set(0);
+                    BufferedStreamObserver<ResumePipelineRequest, PipelineStreamResponse> resumed =
+                            new BufferedStreamObserver<>(resumingHandler, streamBufferMessages);
+                    asyncStub.resumePipelineStream(ResumePipelineRequest.newBuilder()
+                            .setPipelineId(pipelineRequest.getId())
+                            .setAfterSequence(lastSequence.get())
+                            .setOutputOptions(outputOptions())
+                            .build(), resumed);
+                    responseObserver = resumed;
+                }
+            } else if (responseObserver.drain(500, TimeUnit.MILLISECONDS)) {
+                if (resumeAt.get() == 0) {
+                    break;
+                }
+                responseObserver = null;
+                continue;
+            }
             // Check for cancellation
             if (cancelled.get()) {
                 logger.info("Build {} cancelled during {} pipeline", build.getId(), phaseName);
-                // Mark any running step as cancelled
+                // Nothing is consumed from here on, so stop the stream instead of leaving it stalled
+                if (responseObserver != null) {
+                    responseObserver.cancel("Build cancelled by user");
+                }
+                // Mark any running step as cancelled, keeping the output it produced so far
                 build.getSteps().stream()
                         .filter(s -> s.getStatus() == BuildStepStatus.IN_PROGRESS)
                         .forEach(s -> {
+                            endStepOutput(build, s);
                             s.setStatus(BuildStepStatus.FAILURE);
                             s.setErrorMessage("Build cancelled by user");
                             s.setCompletedAt(new Date());
                         });
-                buildRepository.updateBuild(build);
+                buildLogWriter.persistSteps(build);
                 throw new RuntimeException("Build cancelled by user");
             }
         }
@@ -582,15 +718,57 @@ public class NecroswordExecutor implements KnullExecutor {
         logger.info("{} pipeline completed successfully for build ID: {}", phaseName, build.getId());
     }
 
-    private void appendToBuildLog(Build build, String text) {
+    private void appendToBuildLog(Build build, String text, Integer stepIndex) {
         // Don't update if build is cancelled
+        if (!isCancelled(build)) {
+            buildLogWriter.append(build, text, stepIndex);
+        }
+    }
+
+    private void appendToBuildLog(Build build, ByteString data, Integer stepIndex) {
+        if (!isCancelled(build)) {
+            buildLogWriter.append(build, data, stepIndex);
+        }
+    }
+
+    private boolean isCancelled(Build build) {
         AtomicBoolean cancelled = runningBuilds.get(build.getId());
-        if (cancelled != null && cancelled.get()) {
-            return;
+        return cancelled != null && cancelled.get();
+    }
+
+    private OutputOptions outputOptions() {
+        OutputOptions.Builder options = OutputOptions.newBuilder().setBatched(batchedOutput);
+        if (gzipOutput) {
+            options.addAcceptedCompressions(OutputCompression.OUTPUT_COMPRESSION_GZIP);
+        }
+        return options.build();
+    }
+
+    /**
+     * Inflate gzip-compressed step output, refusing more than a gRPC message
+     * may carry uncompressed
+     */
+    private ByteString inflate(ByteString compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(compressed.newInput())) {
+            byte[] data = in.readNBytes(maxInboundMessageSize + 1);
+            if (data.length > maxInboundMessageSize) {
+                throw new IOException("Step output batch inflates to more than " + maxInboundMessageSize + " bytes");
+            }
+            return UnsafeByteOperations.unsafeWrap(data);
+        }
+    }
+
+    private static long currentLogLength(Build build) {
+        return build.getLogLength() != null ? build.getLogLength() : 0;
+    }
+
+    /**
+     * Close the log range of a step at the current end of the build log
+     */
+    private static void endStepOutput(Build build, org.knullci.knull.domain.model.BuildStep step) {
+        if (step.getLogOffset() != null && step.getLogLength() == null) {
+            step.setLogLength(currentLogLength(build) - step.getLogOffset());
         }
-        String currentLog = build.getBuildLog() != null ? build.getBuildLog() : "";
-        build.setBuildLog(currentLog + text);
-        buildRepository.updateBuild(build);
     }
 
     private void cleanupIfRequired(Build build, Job job, String workspaceDir) {
@@ -612,21 +790,21 @@ public class NecroswordExecutor implements KnullExecutor {
 
                 logger.info("Workspace cleanup completed for build ID: {}", build.getId());
 
-                // Re-fetch the build from database to get the latest status (may have been
-                // cancelled)
-                Build currentBuild = buildRepository.findById(build.getId()).orElse(build);
-
                 // Add cleanup step to build
                 org.knullci.knull.domain.model.BuildStep cleanupStep = new org.knullci.knull.domain.model.BuildStep();
                 cleanupStep.setName("Cleanup Workspace");
                 cleanupStep.setStatus(BuildStepStatus.SUCCESS);
-                cleanupStep.setOutput("Workspace cleaned up: " + workspaceDir);
                 cleanupStep.setStartedAt(new Date());
+                build.getSteps().add(cleanupStep);
+                appendToBuildLog(build, "\n=== Cleanup Workspace ===\n", null);
+                cleanupStep.setLogOffset(currentLogLength(build));
+                appendToBuildLog(build, "Workspace cleaned up: " + workspaceDir + "\n", build.getSteps().size() - 1);
+                endStepOutput(build, cleanupStep);
                 cleanupStep.setCompletedAt(new Date());
-                currentBuild.getSteps().add(cleanupStep);
 
-                // Save to repository so it shows in UI
-                buildRepository.updateBuild(currentBuild);
+                // Save to repository so it shows in UI, keeping a status set by a cancel
+                buildLogWriter.persistSteps(build);
+                buildEventBus.publishStepCompleted(build.getId(), build.getSteps().size() - 1, cleanupStep);
             } else {
                 logger.info("Workspace already clean for build ID: {}", build.getId());
             }
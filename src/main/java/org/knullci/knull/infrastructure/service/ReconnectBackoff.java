@@ -0,0 +1,54 @@
+package org.knullci.knull.infrastructure.service;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Exponential backoff between attempts to reconnect a stream, giving up once
+ * the stream has been down for longer than the timeout. Not thread-safe.
+ */
+final class ReconnectBackoff {
+
+    private final long initialDelayMs;
+    private final long maxDelayMs;
+    private final long timeoutMs;
+    private final LongSupplier clock;
+    private long downSince = -1;
+    private long nextDelayMs;
+
+    ReconnectBackoff(long initialDelayMs, long maxDelayMs, long timeoutMs) {
+        this(initialDelayMs, maxDelayMs, timeoutMs, System::currentTimeMillis);
+    }
+
+    ReconnectBackoff(long initialDelayMs, long maxDelayMs, long timeoutMs, LongSupplier clock) {
+        this.initialDelayMs = initialDelayMs;
+        this.maxDelayMs = maxDelayMs;
+        this.timeoutMs = timeoutMs;
+        this.clock = clock;
+    }
+
+    /**
+     * Called when the stream failed, including a failed reconnect attempt
+     *
+     * @return the delay before the next attempt, or -1 to give up
+     */
+    long nextDelayMs() {
+        long now = clock.getAsLong();
+        if (downSince < 0) {
+            downSince = now;
+            nextDelayMs = initialDelayMs;
+        }
+        if (now - downSince >= timeoutMs) {
+            return -1;
+        }
+        long delay = nextDelayMs;
+        nextDelayMs = Math.min(maxDelayMs, nextDelayMs * 2);
+        return delay;
+    }
+
+    /**
+     * Called when the stream delivers events again
+     */
+    void reset() {
+        downSince = -1;
+    }
+}
@@ -36,7 +36,9 @@ public class Build {
     
     private BuildStatus status;
     
-    private String buildLog;
+    private String logPath;
+    
+    private Long logLength;
     
     private List<BuildStep> steps = new ArrayList<>();
     
@@ -48,4 +50,6 @@ public class Build {
     
     private String triggeredBy;
     
+    private Long version;
+    
 }
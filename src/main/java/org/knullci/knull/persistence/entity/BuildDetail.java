@@ -0,0 +1,24 @@
+package org.knullci.knull.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-build detail record holding the steps without their output.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BuildDetail {
+    
+    private Long id;
+    
+    private List<BuildStep> steps = new ArrayList<>();
+    
+}
@@ -27,5 +27,13 @@ public class BuildStep {
     private Long duration;
     
     private String errorMessage;
-    
+
+    private Long logOffset;
+
+    private Long logLength;
+
+    public BuildStep(String name, BuildStepStatus status, String output, Date startedAt, Date completedAt,
+            Long duration, String errorMessage) {
+        this(name, status, output, startedAt, completedAt, duration, errorMessage, null, null);
+    }
 }
@@ -0,0 +1,24 @@
+package org.knullci.knull.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-build record holding the output of each step, in step order.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BuildStepOutputs {
+    
+    private Long id;
+    
+    private List<String> outputs = new ArrayList<>();
+    
+}
@@ -0,0 +1,84 @@
+package org.knullci.knull.persistence.entity;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.knullci.knull.domain.enums.BuildStatus;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Small per-build record used by listings. Steps and step output are kept in
+ * separate {@link BuildDetail} and {@link BuildStepOutputs} documents.
+ */
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class BuildSummary {
+    
+    private Long id;
+    
+    private Long jobId;
+    
+    private String jobName;
+    
+    private String commitSha;
+    
+    private String commitMessage;
+    
+    private String branch;
+    
+    private String repositoryUrl;
+    
+    private String repositoryOwner;
+    
+    private String repositoryName;
+    
+    private BuildStatus status;
+    
+    private String logPath;
+    
+    private Long logLength;
+    
+    private Date startedAt;
+    
+    private Date completedAt;
+    
+    private Long duration;
+    
+    private String triggeredBy;
+    
+    private Long version;
+    
+    /**
+     * Steps of builds written as a single document, before the summary and
+     * detail split. Only read, so that the repository can migrate them.
+     */
+    @JsonProperty(value = "steps", access = JsonProperty.Access.WRITE_ONLY)
+    private List<BuildStep> legacySteps;
+    
+    /**
+     * Inline log of builds written before logs moved to the build log store.
+     * Only read, so that the repository can migrate it on first access.
+     */
+    @JsonProperty(value = "buildLog", access = JsonProperty.Access.WRITE_ONLY)
+    private String legacyBuildLog;
+    
+    public BuildSummary(Long id, Long jobId, String jobName, String commitSha, String commitMessage,
+            String branch, String repositoryUrl, String repositoryOwner, String repositoryName,
+            BuildStatus status, String logPath, Long logLength, Date startedAt, Date completedAt,
+            Long duration, String triggeredBy, Long version) {
+        this(id, jobId, jobName, commitSha, commitMessage, branch, repositoryUrl, repositoryOwner,
+                repositoryName, status, logPath, logLength, startedAt, completedAt, duration,
+                triggeredBy, version, null, null);
+    }
+    
+    public boolean isLegacy() {
+        return legacySteps != null || legacyBuildLog != null;
+    }
+    
+}
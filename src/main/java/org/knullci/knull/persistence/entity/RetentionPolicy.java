@@ -0,0 +1,19 @@
+package org.knullci.knull.persistence.entity;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@AllArgsConstructor
+@NoArgsConstructor
+public class RetentionPolicy {
+
+    private Long jobId;
+    private Integer keepLast;
+    private Integer keepDays;
+    private Integer keepFailuresDays;
+
+}
@@ -1,7 +1,12 @@
 package org.knullci.knull.persistence.mapper;
 
 import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildSummary;
+import org.knullci.knull.persistence.entity.BuildDetail;
+import org.knullci.knull.persistence.entity.BuildStepOutputs;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.stream.Collectors;
 
 public class BuildMapper {
@@ -21,14 +26,16 @@ public class BuildMapper {
                 build.getRepositoryOwner(),
                 build.getRepositoryName(),
                 build.getStatus(),
-                build.getBuildLog(),
+                build.getLogPath(),
+                build.getLogLength(),
                 build.getSteps() != null ? build.getSteps().stream()
                         .map(BuildStepMapper::toEntity)
                         .collect(Collectors.toList()) : null,
                 build.getStartedAt(),
                 build.getCompletedAt(),
                 build.getDuration(),
-                build.getTriggeredBy()
+                build.getTriggeredBy(),
+                build.getVersion()
         );
     }
 
@@ -47,14 +54,166 @@ public class BuildMapper {
                 buildEntity.getRepositoryOwner(),
                 buildEntity.getRepositoryName(),
                 buildEntity.getStatus(),
-                buildEntity.getBuildLog(),
+                buildEntity.getLogPath(),
+                buildEntity.getLogLength(),
                 buildEntity.getSteps() != null ? buildEntity.getSteps().stream()
                         .map(BuildStepMapper::fromEntity)
                         .collect(Collectors.toList()) : null,
                 buildEntity.getStartedAt(),
                 buildEntity.getCompletedAt(),
                 buildEntity.getDuration(),
-                buildEntity.getTriggeredBy()
+                buildEntity.getTriggeredBy(),
+                buildEntity.getVersion()
+        );
+    }
+
+    public static BuildSummary toSummary(Build build) {
+        if (build == null) {
+            return null;
+        }
+        return new BuildSummary(
+                build.getId(),
+                build.getJobId(),
+                build.getJobName(),
+                build.getCommitSha(),
+                build.getCommitMessage(),
+                build.getBranch(),
+                build.getRepositoryOwner(),
+                build.getRepositoryName(),
+                build.getStatus(),
+                build.getStartedAt(),
+                build.getCompletedAt(),
+                build.getDuration(),
+                build.getTriggeredBy()
+        );
+    }
+
+    public static BuildSummary toSummary(org.knullci.knull.persistence.entity.BuildSummary summaryEntity) {
+        if (summaryEntity == null) {
+            return null;
+        }
+        return new BuildSummary(
+                summaryEntity.getId(),
+                summaryEntity.getJobId(),
+                summaryEntity.getJobName(),
+                summaryEntity.getCommitSha(),
+                summaryEntity.getCommitMessage(),
+                summaryEntity.getBranch(),
+                summaryEntity.getRepositoryOwner(),
+                summaryEntity.getRepositoryName(),
+                summaryEntity.getStatus(),
+                summaryEntity.getStartedAt(),
+                summaryEntity.getCompletedAt(),
+                summaryEntity.getDuration(),
+                summaryEntity.getTriggeredBy()
+        );
+    }
+
+    public static org.knullci.knull.persistence.entity.BuildSummary toSummaryEntity(
+            org.knullci.knull.persistence.entity.Build buildEntity) {
+        if (buildEntity == null) {
+            return null;
+        }
+        return new org.knullci.knull.persistence.entity.BuildSummary(
+                buildEntity.getId(),
+                buildEntity.getJobId(),
+                buildEntity.getJobName(),
+                buildEntity.getCommitSha(),
+                buildEntity.getCommitMessage(),
+                buildEntity.getBranch(),
+                buildEntity.getRepositoryUrl(),
+                buildEntity.getRepositoryOwner(),
+                buildEntity.getRepositoryName(),
+                buildEntity.getStatus(),
+                buildEntity.getLogPath(),
+                buildEntity.getLogLength(),
+                buildEntity.getStartedAt(),
+                buildEntity.getCompletedAt(),
+                buildEntity.getDuration(),
+                buildEntity.getTriggeredBy(),
+                buildEntity.getVersion()
+        );
+    }
+
+    /**
+     * Steps of a build without their output, which goes to {@link #toStepOutputsEntity}
+     */
+    public static BuildDetail toDetailEntity(org.knullci.knull.persistence.entity.Build buildEntity) {
+        if (buildEntity == null) {
+            return null;
+        }
+        List<org.knullci.knull.persistence.entity.BuildStep> steps = new ArrayList<>();
+        if (buildEntity.getSteps() != null) {
+            for (var step : buildEntity.getSteps()) {
+                steps.add(new org.knullci.knull.persistence.entity.BuildStep(
+                        step.getName(),
+                        step.getStatus(),
+                        null,
+                        step.getStartedAt(),
+                        step.getCompletedAt(),
+                        step.getDuration(),
+                        step.getErrorMessage(),
+                        step.getLogOffset(),
+                        step.getLogLength()));
+            }
+        }
+        return new BuildDetail(buildEntity.getId(), steps);
+    }
+
+    /**
+     * Outputs of steps stored as text, or null if every step refers to its
+     * range of the build log instead
+     */
+    public static BuildStepOutputs toStepOutputsEntity(org.knullci.knull.persistence.entity.Build buildEntity) {
+        if (buildEntity == null || buildEntity.getSteps() == null
+                || buildEntity.getSteps().stream().allMatch(step -> step.getOutput() == null)) {
+            return null;
+        }
+        List<String> outputs = new ArrayList<>();
+        for (var step : buildEntity.getSteps()) {
+            outputs.add(step.getOutput());
+        }
+        return new BuildStepOutputs(buildEntity.getId(), outputs);
+    }
+
+    /**
+     * Join the summary, detail and step output records of a build.
+     * Detail and outputs may be null if they were never written.
+     */
+    public static org.knullci.knull.persistence.entity.Build fromDocuments(
+            org.knullci.knull.persistence.entity.BuildSummary summary, BuildDetail detail,
+            BuildStepOutputs stepOutputs) {
+        if (summary == null) {
+            return null;
+        }
+        List<org.knullci.knull.persistence.entity.BuildStep> steps = new ArrayList<>();
+        if (detail != null && detail.getSteps() != null) {
+            steps.addAll(detail.getSteps());
+        }
+        if (stepOutputs != null && stepOutputs.getOutputs() != null) {
+            for (int i = 0; i < steps.size() && i < stepOutputs.getOutputs().size(); i++) {
+                steps.get(i).setOutput(stepOutputs.getOutputs().get(i));
+            }
+        }
+        return new org.knullci.knull.persistence.entity.Build(
+                summary.getId(),
+                summary.getJobId(),
+                summary.getJobName(),
+                summary.getCommitSha(),
+                summary.getCommitMessage(),
+                summary.getBranch(),
+                summary.getRepositoryUrl(),
+                summary.getRepositoryOwner(),
+                summary.getRepositoryName(),
+                summary.getStatus(),
+                summary.getLogPath(),
+                summary.getLogLength(),
+                steps,
+                summary.getStartedAt(),
+                summary.getCompletedAt(),
+                summary.getDuration(),
+                summary.getTriggeredBy(),
+                summary.getVersion()
         );
     }
 }
@@ -15,7 +15,9 @@ public class BuildStepMapper {
                 step.getStartedAt(),
                 step.getCompletedAt(),
                 step.getDuration(),
-                step.getErrorMessage()
+                step.getErrorMessage(),
+                step.getLogOffset(),
+                step.getLogLength()
         );
     }
 
@@ -30,7 +32,9 @@ public class BuildStepMapper {
                 stepEntity.getStartedAt(),
                 stepEntity.getCompletedAt(),
                 stepEntity.getDuration(),
-                stepEntity.getErrorMessage()
+                stepEntity.getErrorMessage(),
+                stepEntity.getLogOffset(),
+                stepEntity.getLogLength()
         );
     }
 }
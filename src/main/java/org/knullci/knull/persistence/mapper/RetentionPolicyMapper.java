@@ -0,0 +1,28 @@
+package org.knullci.knull.persistence.mapper;
+
+import org.knullci.knull.domain.model.RetentionPolicy;
+
+public class RetentionPolicyMapper {
+
+    public static org.knullci.knull.persistence.entity.RetentionPolicy toEntity(RetentionPolicy policy) {
+        if (policy == null) {
+            return null;
+        }
+        return new org.knullci.knull.persistence.entity.RetentionPolicy(
+                policy.getJobId(),
+                policy.getKeepLast(),
+                policy.getKeepDays(),
+                policy.getKeepFailuresDays());
+    }
+
+    public static RetentionPolicy fromEntity(org.knullci.knull.persistence.entity.RetentionPolicy policyEntity) {
+        if (policyEntity == null) {
+            return null;
+        }
+        return new RetentionPolicy(
+                policyEntity.getJobId(),
+                policyEntity.getKeepLast(),
+                policyEntity.getKeepDays(),
+                policyEntity.getKeepFailuresDays());
+    }
+}
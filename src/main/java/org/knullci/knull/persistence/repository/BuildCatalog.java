@@ -0,0 +1,435 @@
+package org.knullci.knull.persistence.repository;
+
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.persistence.entity.BuildSummary;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory catalog of build summaries stored column-wise in primitive arrays.
+ * Rows are kept sorted by build id, so listing and paging never touch the
+ * build documents on disk. Only the rows a caller actually asks for are
+ * loaded from storage afterwards.
+ * <p>
+ * Secondary indexes map job, status, branch, repository owner, repository
+ * name and trigger user to the ids of matching builds. A query walks the most selective index from
+ * its cursor downwards and checks the remaining filters against the columns.
+ */
+public class BuildCatalog {
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final int NULL_JOB_ID = -1;
+    private static final byte NULL_STATUS = -1;
+    private static final long NULL_TIME = -1L;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private int[] jobIds = new int[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY];
+    private long[] startedAt = new long[INITIAL_CAPACITY];
+    private int[] branches = new int[INITIAL_CAPACITY];
+    private int[] repositoryOwners = new int[INITIAL_CAPACITY];
+    private int[] repositoryNames = new int[INITIAL_CAPACITY];
+    private int[] triggeredBy = new int[INITIAL_CAPACITY];
+    private int size;
+
+    private final int[] statusCounts = new int[BuildStatus.values().length];
+    private final StringDictionary branchDictionary = new StringDictionary();
+    private final StringDictionary repositoryOwnerDictionary = new StringDictionary();
+    private final StringDictionary repositoryNameDictionary = new StringDictionary();
+    private final StringDictionary triggeredByDictionary = new StringDictionary();
+    private final Map<Integer, NavigableSet<Long>> jobIndex = new HashMap<>();
+    private final Map<Integer, NavigableSet<Long>> statusIndex = new HashMap<>();
+    private final Map<Integer, NavigableSet<Long>> branchIndex = new HashMap<>();
+    private final Map<Integer, NavigableSet<Long>> repositoryOwnerIndex = new HashMap<>();
+    private final Map<Integer, NavigableSet<Long>> repositoryNameIndex = new HashMap<>();
+    private final Map<Integer, NavigableSet<Long>> triggeredByIndex = new HashMap<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Add a build to the catalog or refresh its row if it is already present
+     */
+    public void upsert(BuildSummary build) {
+        lock.writeLock().lock();
+        try {
+            long id = build.getId();
+            int row;
+            if (size == 0 || id > ids[size - 1]) {
+                // Ids are allocated in increasing order, so this is the common case
+                row = size;
+                insertRow(row);
+                ids[row] = id;
+            } else {
+                row = Arrays.binarySearch(ids, 0, size, id);
+                if (row < 0) {
+                    row = -row - 1;
+                    insertRow(row);
+                    ids[row] = id;
+                } else {
+                    unindexRow(row);
+                }
+            }
+            writeRow(row, build);
+            indexRow(row);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a build from the catalog
+     */
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            int row = Arrays.binarySearch(ids, 0, size, id);
+            if (row < 0) {
+                return;
+            }
+            unindexRow(row);
+            int tail = size - row - 1;
+            System.arraycopy(ids, row + 1, ids, row, tail);
+            System.arraycopy(jobIds, row + 1, jobIds, row, tail);
+            System.arraycopy(statuses, row + 1, statuses, row, tail);
+            System.arraycopy(startedAt, row + 1, startedAt, row, tail);
+            System.arraycopy(branches, row + 1, branches, row, tail);
+            System.arraycopy(repositoryOwners, row + 1, repositoryOwners, row, tail);
+            System.arraycopy(repositoryNames, row + 1, repositoryNames, row, tail);
+            System.arraycopy(triggeredBy, row + 1, triggeredBy, row, tail);
+            size--;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public boolean contains(Long id) {
+        lock.readLock().lock();
+        try {
+            return Arrays.binarySearch(ids, 0, size, id) >= 0;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Count builds in any of the given statuses
+     */
+    public long countByStatus(BuildStatus... wanted) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (BuildStatus status : wanted) {
+                count += statusCounts[status.ordinal()];
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get a page of build ids, newest first
+     */
+    public List<Long> findIdsDescending(long offset, int limit) {
+        lock.readLock().lock();
+        try {
+            List<Long> result = new ArrayList<>(Math.max(0, Math.min(limit, size)));
+            for (long row = size - 1 - offset; row >= 0 && result.size() < limit; row--) {
+                result.add(ids[(int) row]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the ids of all builds of a job, newest first
+     */
+    public List<Long> findIdsByJobId(Long jobId) {
+        lock.readLock().lock();
+        try {
+            NavigableSet<Long> postings = jobIndex.get(toJobIdColumn(jobId));
+            return postings != null ? new ArrayList<>(postings.descendingSet()) : new ArrayList<>();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the ids of the builds in any of the given statuses grouped by job,
+     * newest first. Builds without a job are listed under a null key.
+     */
+    public Map<Long, List<Long>> findIdsByJob(BuildStatus... wanted) {
+        lock.readLock().lock();
+        try {
+            boolean[] accepted = new boolean[BuildStatus.values().length];
+            for (BuildStatus status : wanted) {
+                accepted[status.ordinal()] = true;
+            }
+            Map<Long, List<Long>> result = new HashMap<>();
+            for (Map.Entry<Integer, NavigableSet<Long>> job : jobIndex.entrySet()) {
+                List<Long> matching = new ArrayList<>();
+                for (Long id : job.getValue().descendingSet()) {
+                    int row = Arrays.binarySearch(ids, 0, size, id);
+                    if (row >= 0 && statuses[row] != NULL_STATUS && accepted[statuses[row]]) {
+                        matching.add(id);
+                    }
+                }
+                if (!matching.isEmpty()) {
+                    result.put(job.getKey() != NULL_JOB_ID ? Long.valueOf(job.getKey()) : null, matching);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Get the ids of all builds, oldest first
+     */
+    public List<Long> findAllIds() {
+        lock.readLock().lock();
+        try {
+            List<Long> result = new ArrayList<>(size);
+            for (int row = 0; row < size; row++) {
+                result.add(ids[row]);
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find the ids of builds matching a query, newest first, starting below
+     * the query cursor
+     *
+     * @param limit maximum number of ids to return
+     */
+    public List<Long> findIds(BuildQuery query, int limit) {
+        lock.readLock().lock();
+        try {
+            Criteria criteria = toCriteria(query);
+            if (criteria == null) {
+                return Collections.emptyList();
+            }
+            long cursor = query.getCursor() != null ? query.getCursor() : Long.MAX_VALUE;
+            List<Long> result = new ArrayList<>(Math.min(limit, size));
+
+            NavigableSet<Long> driver = mostSelectiveIndex(criteria);
+            if (driver != null) {
+                Iterator<Long> candidates = driver.headSet(cursor, false).descendingIterator();
+                while (candidates.hasNext() && result.size() < limit) {
+                    int row = Arrays.binarySearch(ids, 0, size, candidates.next());
+                    if (row >= 0 && matches(row, criteria)) {
+                        result.add(ids[row]);
+                    }
+                }
+                return result;
+            }
+
+            int start = Arrays.binarySearch(ids, 0, size, cursor);
+            start = start >= 0 ? start - 1 : -start - 2;
+            for (int row = start; row >= 0 && result.size() < limit; row--) {
+                if (matches(row, criteria)) {
+                    result.add(ids[row]);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Criteria toCriteria(BuildQuery query) {
+        Criteria criteria = new Criteria();
+        criteria.jobId = query.getJobId() != null ? toJobIdColumn(query.getJobId()) : null;
+        criteria.status = query.getStatus() != null ? query.getStatus().ordinal() : null;
+        criteria.from = query.getStartedFrom() != null ? query.getStartedFrom().getTime() : null;
+        criteria.to = query.getStartedTo() != null ? query.getStartedTo().getTime() : null;
+        criteria.branch = toCode(branchDictionary, query.getBranch());
+        criteria.triggeredBy = toCode(triggeredByDictionary, query.getTriggeredBy());
+        // Owner and name are separate filters, so either one can be given alone
+        criteria.repositoryOwner = toCode(repositoryOwnerDictionary, query.getRepositoryOwner());
+        criteria.repositoryName = toCode(repositoryNameDictionary, query.getRepositoryName());
+        // A value that never occurred cannot match any build
+        if (isUnknown(criteria.branch) || isUnknown(criteria.triggeredBy)
+                || isUnknown(criteria.repositoryOwner) || isUnknown(criteria.repositoryName)) {
+            return null;
+        }
+        return criteria;
+    }
+
+    private NavigableSet<Long> mostSelectiveIndex(Criteria criteria) {
+        NavigableSet<Long> best = null;
+        for (NavigableSet<Long> candidate : Arrays.asList(
+                lookup(jobIndex, criteria.jobId),
+                lookup(statusIndex, criteria.status),
+                lookup(branchIndex, criteria.branch),
+                lookup(repositoryOwnerIndex, criteria.repositoryOwner),
+                lookup(repositoryNameIndex, criteria.repositoryName),
+                lookup(triggeredByIndex, criteria.triggeredBy))) {
+            if (candidate != null && (best == null || candidate.size() < best.size())) {
+                best = candidate;
+            }
+        }
+        return best;
+    }
+
+    private boolean matches(int row, Criteria criteria) {
+        if (criteria.jobId != null && jobIds[row] != criteria.jobId) {
+            return false;
+        }
+        if (criteria.status != null && statuses[row] != criteria.status) {
+            return false;
+        }
+        if (criteria.branch != null && branches[row] != criteria.branch) {
+            return false;
+        }
+        if (criteria.repositoryOwner != null && repositoryOwners[row] != criteria.repositoryOwner) {
+            return false;
+        }
+        if (criteria.repositoryName != null && repositoryNames[row] != criteria.repositoryName) {
+            return false;
+        }
+        if (criteria.triggeredBy != null && triggeredBy[row] != criteria.triggeredBy) {
+            return false;
+        }
+        if (criteria.from != null && (startedAt[row] == NULL_TIME || startedAt[row] < criteria.from)) {
+            return false;
+        }
+        if (criteria.to != null && (startedAt[row] == NULL_TIME || startedAt[row] > criteria.to)) {
+            return false;
+        }
+        return true;
+    }
+
+    private void indexRow(int row) {
+        long id = ids[row];
+        add(jobIndex, jobIds[row], id);
+        add(branchIndex, branches[row], id);
+        add(repositoryOwnerIndex, repositoryOwners[row], id);
+        add(repositoryNameIndex, repositoryNames[row], id);
+        add(triggeredByIndex, triggeredBy[row], id);
+        if (statuses[row] != NULL_STATUS) {
+            add(statusIndex, (int) statuses[row], id);
+            statusCounts[statuses[row]]++;
+        }
+    }
+
+    private void unindexRow(int row) {
+        long id = ids[row];
+        remove(jobIndex, jobIds[row], id);
+        remove(branchIndex, branches[row], id);
+        remove(repositoryOwnerIndex, repositoryOwners[row], id);
+        remove(repositoryNameIndex, repositoryNames[row], id);
+        remove(triggeredByIndex, triggeredBy[row], id);
+        if (statuses[row] != NULL_STATUS) {
+            remove(statusIndex, (int) statuses[row], id);
+            statusCounts[statuses[row]]--;
+        }
+    }
+
+    private static void add(Map<Integer, NavigableSet<Long>> index, int key, long id) {
+        index.computeIfAbsent(key, k -> new TreeSet<>()).add(id);
+    }
+
+    private static void remove(Map<Integer, NavigableSet<Long>> index, int key, long id) {
+        NavigableSet<Long> postings = index.get(key);
+        if (postings != null) {
+            postings.remove(id);
+            if (postings.isEmpty()) {
+                index.remove(key);
+            }
+        }
+    }
+
+    private static NavigableSet<Long> lookup(Map<Integer, NavigableSet<Long>> index, Integer key) {
+        if (key == null) {
+            return null;
+        }
+        return index.getOrDefault(key, Collections.emptyNavigableSet());
+    }
+
+    private static Integer toCode(StringDictionary dictionary, String value) {
+        return value != null ? dictionary.lookup(value) : null;
+    }
+
+    private static boolean isUnknown(Integer code) {
+        return code != null && code == StringDictionary.UNKNOWN_CODE;
+    }
+
+    private void writeRow(int row, BuildSummary build) {
+        jobIds[row] = toJobIdColumn(build.getJobId());
+        statuses[row] = build.getStatus() != null ? (byte) build.getStatus().ordinal() : NULL_STATUS;
+        startedAt[row] = build.getStartedAt() != null ? build.getStartedAt().getTime() : NULL_TIME;
+        branches[row] = branchDictionary.encode(build.getBranch());
+        repositoryOwners[row] = repositoryOwnerDictionary.encode(build.getRepositoryOwner());
+        repositoryNames[row] = repositoryNameDictionary.encode(build.getRepositoryName());
+        triggeredBy[row] = triggeredByDictionary.encode(build.getTriggeredBy());
+    }
+
+    private void insertRow(int row) {
+        if (size == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            jobIds = Arrays.copyOf(jobIds, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+            startedAt = Arrays.copyOf(startedAt, capacity);
+            branches = Arrays.copyOf(branches, capacity);
+            repositoryOwners = Arrays.copyOf(repositoryOwners, capacity);
+            repositoryNames = Arrays.copyOf(repositoryNames, capacity);
+            triggeredBy = Arrays.copyOf(triggeredBy, capacity);
+        }
+        int tail = size - row;
+        if (tail > 0) {
+            System.arraycopy(ids, row, ids, row + 1, tail);
+            System.arraycopy(jobIds, row, jobIds, row + 1, tail);
+            System.arraycopy(statuses, row, statuses, row + 1, tail);
+            System.arraycopy(startedAt, row, startedAt, row + 1, tail);
+            System.arraycopy(branches, row, branches, row + 1, tail);
+            System.arraycopy(repositoryOwners, row, repositoryOwners, row + 1, tail);
+            System.arraycopy(repositoryNames, row, repositoryNames, row + 1, tail);
+            System.arraycopy(triggeredBy, row, triggeredBy, row + 1, tail);
+        }
+        size++;
+    }
+
+    private static int toJobIdColumn(Long jobId) {
+        return jobId != null ? Math.toIntExact(jobId) : NULL_JOB_ID;
+    }
+
+    /**
+     * Query filters translated to column values
+     */
+    private static class Criteria {
+        private Integer jobId;
+        private Integer status;
+        private Integer branch;
+        private Integer triggeredBy;
+        private Integer repositoryOwner;
+        private Integer repositoryName;
+        private Long from;
+        private Long to;
+    }
+}
@@ -0,0 +1,467 @@
+package org.knullci.knull.persistence.repository;
+
+import lombok.SneakyThrows;
+import org.knullci.knull.domain.model.LogDownload;
+import org.knullci.knull.domain.model.LogLines;
+import org.knullci.knull.domain.model.LogSearchResult;
+import org.knullci.knull.domain.model.LogSlice;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Stores each build log as an append-only file under storage/build-logs.
+ * Channels are kept open while a build is running so that appending a line
+ * is a single write, independent of how large the log already is. A line
+ * index is maintained next to each log, so any window of lines is read
+ * without scanning the log.
+ * <p>
+ * Logs of finished builds can be archived into a {@link LogArchive}, which
+ * replaces the plain file. Every read works on both; the plain file is
+ * preferred while both exist.
+ */
+@Repository
+public class BuildLogRepositoryImpl implements BuildLogRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(BuildLogRepositoryImpl.class);
+
+    private static final String BUILD_LOG_STORAGE_LOCATION = "storage/build-logs";
+
+    private final Path directory;
+    private final Map<Long, OpenLog> openLogs = new ConcurrentHashMap<>();
+    // Serializes indexing, archiving and restoring of logs that are not open for appending
+    private final StripedLock indexLocks = new StripedLock(16);
+
+    public BuildLogRepositoryImpl() {
+        this(BUILD_LOG_STORAGE_LOCATION);
+    }
+
+    @SneakyThrows
+    public BuildLogRepositoryImpl(String directory) {
+        this.directory = Paths.get(directory);
+        Files.createDirectories(this.directory);
+        deleteStaleTempFiles();
+    }
+
+    @Override
+    @SneakyThrows
+    public long append(Long buildId, String text) {
+        OpenLog log = openLogs.computeIfAbsent(buildId, this::openForAppend);
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        synchronized (log) {
+            long offset = log.channel().size();
+            while (buffer.hasRemaining()) {
+                log.channel().write(buffer);
+            }
+            log.lineIndex().record(offset, bytes);
+            return log.channel().size();
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public long append(Long buildId, List<ByteBuffer> chunks) {
+        OpenLog log = openLogs.computeIfAbsent(buildId, this::openForAppend);
+        ByteBuffer[] buffers = chunks.stream().map(ByteBuffer::duplicate).toArray(ByteBuffer[]::new);
+        synchronized (log) {
+            long offset = log.channel().size();
+            // Gathering write, the chunks are never copied into a single array
+            while (Arrays.stream(buffers).anyMatch(ByteBuffer::hasRemaining)) {
+                log.channel().write(buffers);
+            }
+            for (ByteBuffer chunk : chunks) {
+                log.lineIndex().record(offset, chunk);
+                offset += chunk.remaining();
+            }
+            return log.channel().size();
+        }
+    }
+
+    @Override
+    public String read(Long buildId) {
+        return read(buildId, 0);
+    }
+
+    @Override
+    public String read(Long buildId, long offset) {
+        return read(buildId, offset, Long.MAX_VALUE).getText();
+    }
+
+    @Override
+    @SneakyThrows
+    public LogSlice read(Long buildId, long offset, long length) {
+        try (LogContent log = openContent(buildId)) {
+            if (log == null || log.length() <= offset) {
+                return new LogSlice(offset, "");
+            }
+            ByteBuffer buffer = log.chunk(offset, Math.toIntExact(Math.min(length, log.length() - offset)));
+            long endOffset = offset + buffer.remaining();
+            return new LogSlice(endOffset, StandardCharsets.UTF_8.decode(buffer).toString());
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public LogLines readLines(Long buildId, long fromLine, int count) {
+        OpenLog log = openLogs.get(buildId);
+        if (log != null) {
+            synchronized (log) {
+                // Appends wait for the window, so the index and the log length agree
+                try (FileChannel reader = FileChannel.open(resolve(buildId), StandardOpenOption.READ)) {
+                    return readLines(log.lineIndex(), new LogContent.Plain(reader, log.channel().size()),
+                            fromLine, count);
+                }
+            }
+        }
+
+        ReentrantLock lock = indexLocks.get(buildId);
+        lock.lock();
+        try (LogContent content = openContent(buildId)) {
+            if (content == null) {
+                return new LogLines(0, 0, 0, List.of());
+            }
+            try (LineIndex lineIndex = LineIndex.open(resolveIndex(buildId), content)) {
+                return readLines(lineIndex, content, fromLine, count);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public LogSearchResult search(Long buildId, Pattern pattern, int contextLines, int maxMatches, long timeoutMs) {
+        // Appended bytes are never rewritten, so the log can be searched up to its current length without locking
+        try (LogContent log = openContent(buildId)) {
+            if (log == null) {
+                return new LogSearchResult(List.of(), false, 0, false);
+            }
+            return new LogSearcher(pattern, contextLines, maxMatches, timeoutMs).search(log);
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public InputStream openStream(Long buildId) {
+        try {
+            return Files.newInputStream(resolve(buildId));
+        } catch (NoSuchFileException e) {
+            // Archived, or never written
+        }
+        try {
+            return new GZIPInputStream(Files.newInputStream(resolveArchive(buildId)), 64 * 1024);
+        } catch (NoSuchFileException e) {
+            return InputStream.nullInputStream();
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public Optional<LogDownload> openDownload(Long buildId, boolean acceptGzip) {
+        LogContent log = openContent(buildId);
+        if (log == null) {
+            return Optional.empty();
+        }
+        if (log instanceof LogArchive archive && !acceptGzip) {
+            archive.close();
+            return Optional.of(new InflatedLogDownload(openStream(buildId), archive.length()));
+        }
+        return Optional.of(new StoredLogDownload(log));
+    }
+
+    @Override
+    @SneakyThrows
+    public long length(Long buildId) {
+        OpenLog log = openLogs.get(buildId);
+        if (log != null) {
+            return log.channel().size();
+        }
+        try {
+            return Files.size(resolve(buildId));
+        } catch (NoSuchFileException e) {
+            // Archived, or never written
+        }
+        try {
+            return LogArchive.length(resolveFrames(buildId));
+        } catch (NoSuchFileException e) {
+            return 0L;
+        }
+    }
+
+    @Override
+    public String getLogPath(Long buildId) {
+        return resolve(buildId).toString();
+    }
+
+    @Override
+    public void close(Long buildId) {
+        OpenLog log = openLogs.remove(buildId);
+        if (log == null) {
+            return;
+        }
+        try {
+            log.channel().force(false);
+            log.channel().close();
+            log.lineIndex().close();
+        } catch (IOException e) {
+            logger.warn("Failed to close log channel for build {}", buildId, e);
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public boolean archive(Long buildId) {
+        close(buildId);
+        ReentrantLock lock = indexLocks.get(buildId);
+        lock.lock();
+        try {
+            Path logFile = resolve(buildId);
+            long length;
+            try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+                LogContent log = new LogContent.Plain(channel, channel.size());
+                length = log.length();
+                if (length == 0) {
+                    return false;
+                }
+                // The line index must cover the whole log before the plain file goes away
+                LineIndex.open(resolveIndex(buildId), log).close();
+                LogArchive.write(log, resolveArchive(buildId), resolveFrames(buildId));
+            } catch (NoSuchFileException e) {
+                return false;
+            }
+            // Readers that opened the plain file keep reading it; new readers open the archive
+            Files.delete(logFile);
+            logger.info("Archived log of build {} ({} bytes, {} bytes compressed)",
+                    buildId, length, Files.size(resolveArchive(buildId)));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public long delete(Long buildId) {
+        close(buildId);
+        long freed = 0;
+        for (Path file : List.of(resolve(buildId), resolveArchive(buildId), resolveFrames(buildId),
+                resolveIndex(buildId))) {
+            try {
+                long size = Files.size(file);
+                Files.delete(file);
+                freed += size;
+            } catch (NoSuchFileException e) {
+                // Only some of the files exist, depending on whether the log was archived
+            }
+        }
+        logger.info("Deleted log for build id: {} ({} bytes)", buildId, freed);
+        return freed;
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        openLogs.keySet().forEach(this::close);
+    }
+
+    /**
+     * Read lines [fromLine, fromLine + count) with one positional read,
+     * located through the line index. A negative fromLine counts from the end.
+     */
+    private static LogLines readLines(LineIndex lineIndex, LogContent log, long fromLine, int count)
+            throws IOException {
+        long logLength = log.length();
+        long totalLines = lineIndex.lineCount(logLength);
+        long first = fromLine < 0 ? Math.max(0, totalLines + fromLine) : Math.min(fromLine, totalLines);
+        long last = Math.min(totalLines, first + Math.max(0, count));
+        long start = lineIndex.lineStart(first, logLength);
+        long end = lineIndex.lineStart(last, logLength);
+
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+        while (buffer.hasRemaining()) {
+            if (log.read(buffer, start + buffer.position()) < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        String text = StandardCharsets.UTF_8.decode(buffer).toString();
+
+        List<String> lines = new ArrayList<>();
+        if (!text.isEmpty()) {
+            lines.addAll(Arrays.asList(text.split("\n", -1)));
+            if (text.endsWith("\n")) {
+                // The last newline terminates a line rather than starting one
+                lines.remove(lines.size() - 1);
+            }
+        }
+        return new LogLines(first, totalLines, end, lines);
+    }
+
+    /**
+     * Open the stored content of a log, or null if nothing was logged. A
+     * plain log archived meanwhile stays readable through its open channel.
+     */
+    private LogContent openContent(Long buildId) throws IOException {
+        try {
+            FileChannel channel = FileChannel.open(resolve(buildId), StandardOpenOption.READ);
+            return new LogContent.Plain(channel, channel.size());
+        } catch (NoSuchFileException e) {
+            // Archived, or never written
+        }
+        try {
+            return LogArchive.open(resolveArchive(buildId), resolveFrames(buildId));
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @SneakyThrows
+    private OpenLog openForAppend(Long buildId) {
+        ReentrantLock lock = indexLocks.get(buildId);
+        lock.lock();
+        try {
+            Path logFile = resolve(buildId);
+            if (!Files.exists(logFile) && Files.exists(resolveArchive(buildId))) {
+                restore(buildId);
+            }
+            FileChannel channel = FileChannel.open(logFile,
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            return new OpenLog(channel, LineIndex.open(resolveIndex(buildId), logFile));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Turn an archived log back into a plain file, so that it can be appended to
+     */
+    private void restore(Long buildId) throws IOException {
+        Path logFile = resolve(buildId);
+        Path temp = logFile.resolveSibling(logFile.getFileName() + ".tmp");
+        try (InputStream in = openStream(buildId)) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.move(temp, logFile, StandardCopyOption.ATOMIC_MOVE);
+        Files.deleteIfExists(resolveArchive(buildId));
+        Files.deleteIfExists(resolveFrames(buildId));
+        logger.info("Restored archived log of build {} for appending", buildId);
+    }
+
+    private void deleteStaleTempFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*.tmp")) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private Path resolve(Long buildId) {
+        return directory.resolve(buildId + ".log");
+    }
+
+    private Path resolveIndex(Long buildId) {
+        return directory.resolve(buildId + ".idx");
+    }
+
+    private Path resolveArchive(Long buildId) {
+        return directory.resolve(buildId + ".log.gz");
+    }
+
+    private Path resolveFrames(Long buildId) {
+        return directory.resolve(buildId + ".frames");
+    }
+
+    private record OpenLog(FileChannel channel, LineIndex lineIndex) {
+    }
+
+    /**
+     * Log bytes as stored: a plain file, or the gzip stream of an archive
+     */
+    private record StoredLogDownload(LogContent log) implements LogDownload {
+
+        @Override
+        public boolean isGzip() {
+            return log instanceof LogArchive;
+        }
+
+        @Override
+        public long getLength() {
+            return log instanceof LogArchive archive ? archive.archiveLength() : log.length();
+        }
+
+        @Override
+        public void transferTo(WritableByteChannel target) throws IOException {
+            FileChannel channel = log instanceof LogArchive archive
+                    ? archive.channel()
+                    : ((LogContent.Plain) log).channel();
+            long length = getLength();
+            long position = 0;
+            while (position < length) {
+                long transferred = channel.transferTo(position, length - position, target);
+                if (transferred <= 0 && position >= channel.size()) {
+                    throw new IOException("Log ended after " + position + " of " + length + " bytes");
+                }
+                position += transferred;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            log.close();
+        }
+    }
+
+    /**
+     * Archived log inflated on the fly, for clients not accepting gzip
+     */
+    private record InflatedLogDownload(InputStream in, long length) implements LogDownload {
+
+        @Override
+        public boolean isGzip() {
+            return false;
+        }
+
+        @Override
+        public long getLength() {
+            return length;
+        }
+
+        @Override
+        public void transferTo(WritableByteChannel target) throws IOException {
+            in.transferTo(Channels.newOutputStream(target));
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
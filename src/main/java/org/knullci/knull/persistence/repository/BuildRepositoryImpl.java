@@ -1,35 +1,69 @@
 package org.knullci.knull.persistence.repository;
 
+import org.knullci.knull.domain.enums.BuildStatus;
 import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.domain.model.BuildSummary;
+import org.knullci.knull.domain.model.Page;
+import org.knullci.knull.domain.repository.BuildLogRepository;
 import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.persistence.entity.BuildDetail;
+import org.knullci.knull.persistence.entity.BuildStepOutputs;
 import org.knullci.knull.persistence.mapper.BuildMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Repository;
 
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+/**
+ * Each build is stored as three documents: a small summary used by listings,
+ * a detail record with the steps, and a record with the step output. List
+ * views read only summaries.
+ */
 @Repository
 public class BuildRepositoryImpl implements BuildRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(BuildRepositoryImpl.class);
 
-    private final KnullRepository<org.knullci.knull.persistence.entity.Build> knullRepository;
+    private final KnullRepository<org.knullci.knull.persistence.entity.BuildSummary> summaryRepository;
+    private final KnullRepository<BuildDetail> detailRepository;
+    private final KnullRepository<BuildStepOutputs> stepOutputRepository;
+    private final BuildLogRepository buildLogRepository;
+    private final BuildCatalog catalog = new BuildCatalog();
+    private final VersionedBuildWriter versionedWriter;
     private static final String BUILD_STORAGE_LOCATION = "storage/builds";
+    private static final String BUILD_DETAIL_STORAGE_LOCATION = "storage/build-details";
+    private static final String BUILD_STEP_OUTPUT_STORAGE_LOCATION = "storage/build-step-outputs";
 
-    public BuildRepositoryImpl() {
-        this.knullRepository = new JsonKnullRepository<>(
+    public BuildRepositoryImpl(KnullRepositoryFactory repositoryFactory, BuildLogRepository buildLogRepository,
+            VersionedBuildWriter versionedWriter) {
+        this.summaryRepository = repositoryFactory.create(
                 BUILD_STORAGE_LOCATION,
-                org.knullci.knull.persistence.entity.Build.class);
+                org.knullci.knull.persistence.entity.BuildSummary.class);
+        this.detailRepository = repositoryFactory.create(BUILD_DETAIL_STORAGE_LOCATION, BuildDetail.class);
+        this.stepOutputRepository = repositoryFactory.create(
+                BUILD_STEP_OUTPUT_STORAGE_LOCATION,
+                BuildStepOutputs.class);
+        this.buildLogRepository = buildLogRepository;
+        this.versionedWriter = versionedWriter;
+        loadCatalog();
     }
 
     @Override
     public Build saveBuild(Build build) {
         var _build = BuildMapper.toEntity(build);
-        _build.setId(this.knullRepository.getNextFileId());
-        this.knullRepository.save(_build.getId().toString(), _build);
+        _build.setId(this.summaryRepository.getNextFileId());
+        _build.setLogPath(this.buildLogRepository.getLogPath(_build.getId()));
+        _build.setLogLength(this.buildLogRepository.length(_build.getId()));
+        write(_build);
         logger.info("Saved new build with id: {}", _build.getId());
         return BuildMapper.fromEntity(_build);
     }
@@ -37,50 +71,184 @@ public class BuildRepositoryImpl implements BuildRepository {
     @Override
     public Optional<Build> findById(Long id) {
         logger.info("Fetching build by id: {}", id);
-        return Optional.ofNullable(this.knullRepository.getByFileName(id.toString() + ".json"))
+        return Optional.ofNullable(loadById(id))
                 .map(BuildMapper::fromEntity);
     }
 
     @Override
     public List<Build> findByJobId(Long jobId) {
         logger.info("Fetching builds for job id: {}", jobId);
-        return this.knullRepository.getAll()
-                .stream()
-                .filter(build -> build.getJobId().equals(jobId))
-                .map(BuildMapper::fromEntity)
-                .collect(Collectors.toList());
+        return loadAll(this.catalog.findIdsByJobId(jobId));
     }
 
     @Override
     public List<Build> findAll() {
         logger.info("Fetching all builds");
-        return this.knullRepository.getAll()
-                .stream()
-                .map(BuildMapper::fromEntity)
-                .collect(Collectors.toList());
+        return loadAll(this.catalog.findAllIds());
     }
 
     @Override
     public List<Build> findAllPaginated(int page, int size) {
         logger.info("Fetching builds - page: {}, size: {}", page, size);
-        return this.knullRepository.getAll()
-                .stream()
-                .map(BuildMapper::fromEntity)
-                .sorted((b1, b2) -> Long.compare(b2.getId(), b1.getId())) // Sort by ID descending (newest first)
-                .skip((long) page * size)
-                .limit(size)
-                .collect(Collectors.toList());
+        // Only the builds on the requested page are read from disk
+        return loadAll(this.catalog.findIdsDescending((long) page * size, size));
     }
 
     @Override
     public long countAll() {
-        return this.knullRepository.getAll().size();
+        return this.catalog.size();
+    }
+
+    @Override
+    public long countByStatus(BuildStatus... statuses) {
+        return this.catalog.countByStatus(statuses);
+    }
+
+    @Override
+    public Page<BuildSummary> findBuilds(BuildQuery query) {
+        logger.info("Fetching builds - job: {}, status: {}, branch: {}, cursor: {}",
+                query.getJobId(), query.getStatus(), query.getBranch(), query.getCursor());
+        // Ask for one extra id to learn whether another page follows
+        var ids = this.catalog.findIds(query, query.getLimit() + 1);
+        var hasNext = ids.size() > query.getLimit();
+        if (hasNext) {
+            ids = ids.subList(0, query.getLimit());
+        }
+        // Summary documents only: steps and step output are never read here
+        var summaries = ids.stream()
+                .map(this::loadSummary)
+                .filter(Objects::nonNull)
+                .map(BuildMapper::toSummary)
+                .collect(Collectors.toList());
+        return new Page<>(summaries, hasNext ? ids.get(ids.size() - 1) : null);
+    }
+
+    @Override
+    public Map<Long, List<Long>> findIdsByJob(BuildStatus... statuses) {
+        return this.catalog.findIdsByJob(statuses);
     }
 
     @Override
     public void updateBuild(Build build) {
-        var _build = BuildMapper.toEntity(build);
-        this.knullRepository.save(_build.getId().toString(), _build);
-        logger.info("Updated build with id: {}", _build.getId());
+        write(BuildMapper.toEntity(build));
+        logger.info("Updated build with id: {}", build.getId());
+    }
+
+    @Override
+    public boolean compareAndSet(Build build) {
+        return versionedWriter.compareAndSet(this, build);
+    }
+
+    @Override
+    public Optional<Build> modifyBuild(Long id, Consumer<Build> modification) {
+        return versionedWriter.modifyBuild(this, id, modification);
+    }
+
+    /**
+     * Delete the summary first, so that a build is never listed once its
+     * other records start to disappear.
+     */
+    @Override
+    public long deleteBuild(Long id) {
+        ReentrantLock lock = versionedWriter.lockFor(id);
+        lock.lock();
+        try {
+            var fileName = id.toString();
+            this.catalog.remove(id);
+            deleteIfPresent(this.summaryRepository, fileName);
+            deleteIfPresent(this.detailRepository, fileName);
+            deleteIfPresent(this.stepOutputRepository, fileName);
+            long freed = this.buildLogRepository.delete(id);
+            logger.info("Deleted build with id: {}", id);
+            return freed;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write detail and step output before the summary, so a summary on disk
+     * always has the rest of the build behind it. Only builds recorded before
+     * step outputs became build log ranges have a step output record.
+     */
+    private void write(org.knullci.knull.persistence.entity.Build build) {
+        var fileName = build.getId().toString();
+        this.detailRepository.save(fileName, BuildMapper.toDetailEntity(build));
+        var stepOutputs = BuildMapper.toStepOutputsEntity(build);
+        if (stepOutputs != null) {
+            this.stepOutputRepository.save(fileName, stepOutputs);
+        }
+        var summary = BuildMapper.toSummaryEntity(build);
+        this.summaryRepository.save(fileName, summary);
+        this.catalog.upsert(summary);
+    }
+
+    private void loadCatalog() {
+        try (var summaries = this.summaryRepository.load()) {
+            // Upserting in id order appends every row instead of shifting the columns
+            summaries.map(this::migrateLegacyBuild)
+                    .sorted(Comparator.comparing(org.knullci.knull.persistence.entity.BuildSummary::getId))
+                    .forEachOrdered(this.catalog::upsert);
+        }
+        logger.info("Loaded build catalog with {} builds", this.catalog.size());
+    }
+
+    private org.knullci.knull.persistence.entity.BuildSummary loadSummary(Long id) {
+        var summary = this.summaryRepository.getByFileName(id.toString() + ".json");
+        return summary != null ? migrateLegacyBuild(summary) : null;
+    }
+
+    private org.knullci.knull.persistence.entity.Build loadById(Long id) {
+        var summary = loadSummary(id);
+        if (summary == null) {
+            return null;
+        }
+        var fileName = id.toString() + ".json";
+        return BuildMapper.fromDocuments(summary,
+                this.detailRepository.getByFileName(fileName),
+                this.stepOutputRepository.getByFileName(fileName));
+    }
+
+    private List<Build> loadAll(List<Long> ids) {
+        return ids.stream()
+                .map(this::loadById)
+                .filter(Objects::nonNull)
+                .map(BuildMapper::fromEntity)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Builds saved before the summary and detail split are a single document
+     * with the steps, and possibly the log, inline. Split such a build into
+     * its records and move the log into the log store the first time it is read.
+     */
+    private org.knullci.knull.persistence.entity.BuildSummary migrateLegacyBuild(
+            org.knullci.knull.persistence.entity.BuildSummary summary) {
+        if (!summary.isLegacy()) {
+            return summary;
+        }
+        var id = summary.getId();
+        if (summary.getLegacyBuildLog() != null && this.buildLogRepository.length(id) == 0) {
+            this.buildLogRepository.append(id, summary.getLegacyBuildLog());
+            this.buildLogRepository.close(id);
+        }
+        summary.setLogPath(this.buildLogRepository.getLogPath(id));
+        summary.setLogLength(this.buildLogRepository.length(id));
+
+        var build = BuildMapper.fromDocuments(summary,
+                new BuildDetail(id, summary.getLegacySteps() != null ? summary.getLegacySteps() : List.of()),
+                null);
+        write(build);
+        logger.info("Migrated build {} to summary and detail records", id);
+        return BuildMapper.toSummaryEntity(build);
+    }
+
+    private static void deleteIfPresent(KnullRepository<?> repository, String fileName) {
+        try {
+            repository.deleteByFileName(fileName);
+        } catch (RuntimeException e) {
+            // Builds written before the split have no separate detail or step output record
+            logger.debug("Record of build {} was already missing", fileName);
+        }
     }
 }
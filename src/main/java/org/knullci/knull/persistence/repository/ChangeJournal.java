@@ -0,0 +1,122 @@
+package org.knullci.knull.persistence.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Names of the documents written since the last {@link DocumentCheckpoint},
+ * one per line. A name is appended, and synced, before its document is
+ * renamed into place, so every checkpoint entry not named here is current.
+ * <p>
+ * Starting a checkpoint moves the journal aside; the moved file is deleted
+ * once that checkpoint is on disk. If writing the checkpoint fails, the next
+ * one adds to the moved file, so its names are never lost.
+ */
+final class ChangeJournal {
+
+    private static final String ROTATED_SUFFIX = ".old";
+
+    private final Path file;
+    private final Path rotated;
+    private FileChannel channel;
+
+    ChangeJournal(Path file) {
+        this.file = file;
+        this.rotated = file.resolveSibling(file.getFileName() + ROTATED_SUFFIX);
+    }
+
+    synchronized void append(String name, boolean sync) throws IOException {
+        if (channel == null) {
+            boolean created = !Files.exists(file);
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            if (created) {
+                JsonKnullRepository.syncDirectory(file.getParent());
+            }
+        }
+        ByteBuffer line = ByteBuffer.wrap((name + "\n").getBytes(StandardCharsets.UTF_8));
+        while (line.hasRemaining()) {
+            channel.write(line);
+        }
+        if (sync) {
+            channel.force(false);
+        }
+    }
+
+    synchronized void sync() throws IOException {
+        if (channel != null) {
+            channel.force(false);
+        }
+    }
+
+    /**
+     * Move the names written so far aside, before a checkpoint lists the documents
+     */
+    synchronized void rotate() throws IOException {
+        closeChannel();
+        if (!Files.exists(file)) {
+            return;
+        }
+        if (Files.exists(rotated)) {
+            Files.write(rotated, Files.readAllBytes(file), StandardOpenOption.APPEND);
+            try (FileChannel old = FileChannel.open(rotated, StandardOpenOption.WRITE)) {
+                old.force(false);
+            }
+            Files.delete(file);
+        } else {
+            Files.move(file, rotated);
+        }
+    }
+
+    /**
+     * Forget the names moved aside, once the checkpoint covering them is on disk
+     */
+    synchronized void discardRotated() throws IOException {
+        Files.deleteIfExists(rotated);
+    }
+
+    /**
+     * Delete the journal together with a checkpoint that is no longer kept up to date
+     */
+    synchronized void delete() throws IOException {
+        closeChannel();
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(rotated);
+    }
+
+    /**
+     * @return the names in the journal and in the part moved aside
+     */
+    synchronized Set<String> read() throws IOException {
+        Set<String> names = new HashSet<>();
+        for (Path path : new Path[]{rotated, file}) {
+            if (Files.exists(path)) {
+                // A torn last line belongs to a write that never reached its rename
+                for (String line : new String(Files.readAllBytes(path), StandardCharsets.UTF_8).split("\n")) {
+                    if (!line.isEmpty()) {
+                        names.add(line);
+                    }
+                }
+            }
+        }
+        return names;
+    }
+
+    synchronized void close() throws IOException {
+        closeChannel();
+    }
+
+    private void closeChannel() throws IOException {
+        if (channel != null) {
+            channel.close();
+            channel = null;
+        }
+    }
+}
@@ -20,8 +20,8 @@ public class CredentialRepositoryImpl implements CredentialRepository {
 
     private final static String CREDENTIAL_STORAGE_LOCATION = "storage/credentials";
 
-    public CredentialRepositoryImpl() {
-        this.knullRepository = new JsonKnullRepository<>(
+    public CredentialRepositoryImpl(KnullRepositoryFactory repositoryFactory) {
+        this.knullRepository = repositoryFactory.create(
                 CREDENTIAL_STORAGE_LOCATION,
                 org.knullci.knull.persistence.entity.Credentials.class
         );
@@ -46,10 +46,10 @@ public class CredentialRepositoryImpl implements CredentialRepository {
     @Override
     public List<Credentials> findAll() {
         logger.info("Fetching all credentials");
-        return this.knullRepository.getAll()
-                .stream()
-                .map(CredentialsMapper::fromEntity)
-                .collect(Collectors.toList());
+        try (var credentials = this.knullRepository.stream()) {
+            return credentials.map(CredentialsMapper::fromEntity)
+                    .collect(Collectors.toList());
+        }
     }
 
     @Override
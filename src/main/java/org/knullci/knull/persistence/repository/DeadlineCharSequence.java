@@ -0,0 +1,57 @@
+package org.knullci.knull.persistence.repository;
+
+/**
+ * Text that stops a regular expression match once a deadline passed. A
+ * pattern that backtracks catastrophically keeps reading characters, so
+ * checking the clock every few thousand reads bounds any match.
+ */
+final class DeadlineCharSequence implements CharSequence {
+
+    private static final int CHECK_INTERVAL = 4096;
+
+    private final CharSequence text;
+    private final long deadlineNanos;
+    private int reads;
+
+    DeadlineCharSequence(CharSequence text, long deadlineNanos) {
+        this.text = text;
+        this.deadlineNanos = deadlineNanos;
+    }
+
+    @Override
+    public char charAt(int index) {
+        if (++reads == CHECK_INTERVAL) {
+            reads = 0;
+            checkDeadline(deadlineNanos);
+        }
+        return text.charAt(index);
+    }
+
+    @Override
+    public int length() {
+        return text.length();
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new DeadlineCharSequence(text.subSequence(start, end), deadlineNanos);
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+
+    static void checkDeadline(long deadlineNanos) {
+        if (System.nanoTime() - deadlineNanos > 0) {
+            throw new DeadlineExceededException();
+        }
+    }
+
+    static final class DeadlineExceededException extends RuntimeException {
+
+        private DeadlineExceededException() {
+            super("Search time limit reached", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+package org.knullci.knull.persistence.repository;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Snapshot of the documents of a JSON repository in a single gzip file, so
+ * that rebuilding an in-memory index at startup reads one file instead of
+ * opening every document.
+ * <p>
+ * The file holds a header with the high-water mark, the time at which the
+ * checkpoint was started, followed by one entry per document: its name, its
+ * modification time when it was read and its JSON. A load trusts every entry
+ * that the {@link ChangeJournal} does not name. When the next checkpoint is
+ * written, an entry is copied over only while the document still has that
+ * modification time, and only if that time is safely below the high-water
+ * mark: a document written again within the same timestamp tick after being
+ * read would otherwise keep its old entry. The gzip trailer checksums the
+ * whole snapshot.
+ */
+final class DocumentCheckpoint {
+
+    /**
+     * Coarsest file modification time resolution to expect from a file system
+     */
+    private static final long MODIFIED_TIME_SLACK_MS = 2000;
+
+    private static final int MAGIC = 0x4b434b50;
+    // Version 1 checkpoints were written without a change journal
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAX_DOCUMENT_BYTES = 64 * 1024 * 1024;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final long highWaterMark;
+    private final Map<String, Entry> entries;
+
+    DocumentCheckpoint(long highWaterMark, Map<String, Entry> entries) {
+        this.highWaterMark = highWaterMark;
+        this.entries = entries;
+    }
+
+    /**
+     * @return the checkpoint, or null if the file is missing
+     * @throws IOException if the file is truncated, corrupt or of another format
+     */
+    static DocumentCheckpoint read(Path file) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(file))))) {
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Not a document checkpoint: " + file);
+            }
+            long highWaterMark = in.readLong();
+            int count = in.readInt();
+            Map<String, Entry> entries = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                long modified = in.readLong();
+                int length = in.readInt();
+                if (length < 0 || length > MAX_DOCUMENT_BYTES) {
+                    throw new IOException("Corrupt entry " + name + " in document checkpoint: " + file);
+                }
+                byte[] json = new byte[length];
+                in.readFully(json);
+                entries.put(name, new Entry(modified, json));
+            }
+            // Reaching the end makes the gzip stream verify its checksum
+            if (in.read() != -1) {
+                throw new IOException("Trailing data in document checkpoint: " + file);
+            }
+            return new DocumentCheckpoint(highWaterMark, entries);
+        }
+    }
+
+    /**
+     * Write the checkpoint to a temp file and rename it over the target, so a
+     * crash leaves either the old or the new checkpoint
+     */
+    void write(Path file) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + TEMP_SUFFIX);
+        try (OutputStream raw = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new GZIPOutputStream(raw)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(highWaterMark);
+            out.writeInt(entries.size());
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                out.writeUTF(entry.getKey());
+                out.writeLong(entry.getValue().modified());
+                out.writeInt(entry.getValue().json().length);
+                out.write(entry.getValue().json());
+            }
+        }
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * JSON of a document if the checkpoint still holds its current version
+     *
+     * @param modified current modification time of the document
+     * @return null if the document has to be read from its file
+     */
+    byte[] lookup(String name, long modified) {
+        Entry entry = entries.get(name);
+        if (entry == null || entry.modified() != modified
+                || modified >= highWaterMark - MODIFIED_TIME_SLACK_MS) {
+            return null;
+        }
+        return entry.json();
+    }
+
+    /**
+     * JSON of a document as it was when the checkpoint was written
+     *
+     * @return null if the checkpoint has no entry for the document
+     */
+    byte[] get(String name) {
+        Entry entry = entries.get(name);
+        return entry != null ? entry.json() : null;
+    }
+
+    record Entry(long modified, byte[] json) {
+    }
+}
@@ -17,23 +17,25 @@ public class JobRepositoryImpl implements JobRepository {
     private final static Logger logger = LoggerFactory.getLogger(JobRepositoryImpl.class);
 
     private final KnullRepository<org.knullci.knull.persistence.entity.Job> knullRepository;
+    private final JobRoutingTable routingTable = new JobRoutingTable();
 
     private final static String JOB_STORAGE_LOCATION = "storage/jobs";
 
-    public JobRepositoryImpl() {
-        this.knullRepository = new JsonKnullRepository<>(
+    public JobRepositoryImpl(KnullRepositoryFactory repositoryFactory) {
+        this.knullRepository = repositoryFactory.create(
                 JOB_STORAGE_LOCATION,
                 org.knullci.knull.persistence.entity.Job.class
         );
+        loadRoutingTable();
     }
 
     @Override
     public List<Job> getAllJobs() {
         logger.info("Fetching all jobs");
-        return this.knullRepository.getAll()
-                .stream()
-                .map(JobMapper::fromEntity)
-                .collect(Collectors.toList());
+        try (var jobs = this.knullRepository.stream()) {
+            return jobs.map(JobMapper::fromEntity)
+                    .collect(Collectors.toList());
+        }
     }
 
     @Override
@@ -44,19 +46,8 @@ public class JobRepositoryImpl implements JobRepository {
     }
 
     @Override
-    public Optional<Job> getJobByRepoName(String repoName) {
-        logger.info("Fetching job for repoName: {}", repoName);
-        return this.knullRepository.getAll()
-                .stream()
-                .filter(job -> {
-                    String gitRepo = job.getJobConfig().getGitRepository();
-                    // Extract repo name from URL (e.g., https://github.com/owner/repo.git -> repo)
-                    String extractedName = gitRepo.substring(gitRepo.lastIndexOf('/') + 1)
-                            .replace(".git", "");
-                    return extractedName.equalsIgnoreCase(repoName);
-                })
-                .findFirst()
-                .map(JobMapper::fromEntity);
+    public List<Job> findJobsForPush(String repositoryUrl, String branch) {
+        return this.routingTable.find(repositoryUrl, branch);
     }
 
     @Override
@@ -64,18 +55,28 @@ public class JobRepositoryImpl implements JobRepository {
         var _job = JobMapper.toEntity(job);
         _job.setId(this.knullRepository.getNextFileId());
         this.knullRepository.save(_job.getId().toString(), _job);
+        this.routingTable.put(JobMapper.fromEntity(_job));
         logger.info("Saved new job");
     }
 
     @Override
     public void updateJob(Job job) {
-        this.knullRepository.save(job.getId().toString(), JobMapper.toEntity(job));
+        var _job = JobMapper.toEntity(job);
+        this.knullRepository.save(job.getId().toString(), _job);
+        this.routingTable.put(JobMapper.fromEntity(_job));
         logger.info("Updated job with id: {}", job.getId());
     }
 
     @Override
     public void deleteJobById(Long jobId) {
         this.knullRepository.deleteByFileName(jobId.toString());
+        this.routingTable.remove(jobId);
         logger.info("Deleted job with id: {}", jobId);
     }
+
+    private void loadRoutingTable() {
+        try (var jobs = this.knullRepository.load()) {
+            jobs.map(JobMapper::fromEntity).forEach(this.routingTable::put);
+        }
+    }
 }
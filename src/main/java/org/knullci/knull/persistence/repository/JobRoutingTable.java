@@ -0,0 +1,178 @@
+package org.knullci.knull.persistence.repository;
+
+import org.knullci.knull.domain.model.Job;
+import org.knullci.knull.domain.model.MultiBranchJobConfig;
+import org.knullci.knull.domain.model.SimpleJobConfig;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Routes pushes to jobs. Jobs are grouped by the normalized host/owner/repo
+ * of their git repository, so the same owner/repo on github.com and on a
+ * GitHub Enterprise server are told apart, and the branch filter of every job is compiled once
+ * when the job is added, so routing a push costs one map lookup plus one
+ * branch check per job of that repository.
+ */
+public class JobRoutingTable {
+
+    private final Map<String, List<Route>> routesByRepository = new ConcurrentHashMap<>();
+    private final Map<Long, String> repositoryByJobId = new ConcurrentHashMap<>();
+
+    /**
+     * Add a job, or replace its route if the job is already present
+     */
+    public synchronized void put(Job job) {
+        remove(job.getId());
+        String repository = job.getJobConfig() != null
+                ? repositoryKey(job.getJobConfig().getGitRepository()) : null;
+        if (repository == null) {
+            return;
+        }
+        List<Route> routes = new ArrayList<>(routesByRepository.getOrDefault(repository, List.of()));
+        routes.add(new Route(job, branchMatcher(job)));
+        // Readers only ever see complete, immutable lists
+        routesByRepository.put(repository, List.copyOf(routes));
+        repositoryByJobId.put(job.getId(), repository);
+    }
+
+    public synchronized void remove(Long jobId) {
+        String repository = repositoryByJobId.remove(jobId);
+        if (repository == null) {
+            return;
+        }
+        List<Route> routes = routesByRepository.getOrDefault(repository, List.of()).stream()
+                .filter(route -> !route.job().getId().equals(jobId))
+                .toList();
+        if (routes.isEmpty()) {
+            routesByRepository.remove(repository);
+        } else {
+            routesByRepository.put(repository, routes);
+        }
+    }
+
+    /**
+     * Jobs of a repository whose branch filter accepts the branch
+     *
+     * @param repositoryUrl any git or web URL of the repository
+     */
+    public List<Job> find(String repositoryUrl, String branch) {
+        String repository = repositoryKey(repositoryUrl);
+        List<Route> routes = repository != null ? routesByRepository.get(repository) : null;
+        if (routes == null) {
+            return List.of();
+        }
+        List<Job> jobs = new ArrayList<>(routes.size());
+        for (Route route : routes) {
+            if (route.branchMatcher().test(branch)) {
+                jobs.add(route.job());
+            }
+        }
+        return jobs;
+    }
+
+    /**
+     * Lower-case host/owner/repo of a git URL, e.g. github.com/owner/repo for
+     * https://github.com/Owner/repo.git or git@github.com:owner/repo.git.
+     * User and port are dropped, so the https and ssh URLs of a repository
+     * share a key.
+     *
+     * @return null if the URL has no host, owner and repository part
+     */
+    static String repositoryKey(String gitRepository) {
+        if (gitRepository == null) {
+            return null;
+        }
+        String path = gitRepository.trim();
+        String host;
+        int scheme = path.indexOf("://");
+        if (scheme >= 0) {
+            path = path.substring(scheme + 3);
+            int hostEnd = path.indexOf('/');
+            if (hostEnd < 0) {
+                return null;
+            }
+            host = path.substring(0, hostEnd);
+            path = path.substring(hostEnd + 1);
+        } else if (path.indexOf(':') >= 0) {
+            // scp-like syntax: user@host:owner/repo
+            host = path.substring(0, path.indexOf(':'));
+            path = path.substring(path.indexOf(':') + 1);
+        } else {
+            return null;
+        }
+        host = host.substring(host.lastIndexOf('@') + 1);
+        if (host.indexOf(':') >= 0) {
+            host = host.substring(0, host.indexOf(':'));
+        }
+        if (host.isEmpty()) {
+            return null;
+        }
+        while (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+        if (path.endsWith(".git")) {
+            path = path.substring(0, path.length() - 4);
+        }
+        int repoStart = path.lastIndexOf('/');
+        if (repoStart <= 0) {
+            return null;
+        }
+        String owner = path.substring(path.lastIndexOf('/', repoStart - 1) + 1, repoStart);
+        String repo = path.substring(repoStart + 1);
+        if (owner.isEmpty() || repo.isEmpty()) {
+            return null;
+        }
+        return (host + "/" + owner + "/" + repo).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Compile the branch filter of a job. A simple job builds one branch.
+     * A multi-branch pattern is a list of alternatives separated by |, in
+     * which * matches any characters; an empty pattern accepts all branches.
+     */
+    static Predicate<String> branchMatcher(Job job) {
+        if (job.getJobConfig() instanceof SimpleJobConfig simpleJobConfig) {
+            String branch = simpleJobConfig.getBranch() != null ? simpleJobConfig.getBranch().trim() : null;
+            return branch == null || branch.isEmpty() ? candidate -> true : branch::equals;
+        }
+        if (job.getJobConfig() instanceof MultiBranchJobConfig multiBranchJobConfig) {
+            String pattern = multiBranchJobConfig.getBranchPattern();
+            if (pattern == null || pattern.isBlank()) {
+                return candidate -> true;
+            }
+            StringBuilder regex = new StringBuilder();
+            for (String alternative : pattern.split("\\|")) {
+                if (alternative.isBlank()) {
+                    continue;
+                }
+                if (!regex.isEmpty()) {
+                    regex.append('|');
+                }
+                regex.append("(?:");
+                String[] literals = alternative.trim().split("\\*", -1);
+                for (int i = 0; i < literals.length; i++) {
+                    if (i > 0) {
+                        regex.append(".*");
+                    }
+                    regex.append(Pattern.quote(literals[i]));
+                }
+                regex.append(')');
+            }
+            if (regex.isEmpty()) {
+                return candidate -> true;
+            }
+            Pattern compiled = Pattern.compile(regex.toString());
+            return candidate -> compiled.matcher(candidate).matches();
+        }
+        return candidate -> true;
+    }
+
+    private record Route(Job job, Predicate<String> branchMatcher) {
+    }
+}
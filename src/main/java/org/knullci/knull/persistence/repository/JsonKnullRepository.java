@@ -1,25 +1,117 @@
 package org.knullci.knull.persistence.repository;
 
 import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import tools.jackson.databind.ObjectMapper;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
 
-public class JsonKnullRepository<T> implements KnullRepository<T> {
+/**
+ * KnullRepository storing one JSON file per entity.
+ * <p>
+ * Saves never overwrite a file in place: the document is written to a temp
+ * file, synced, and renamed over the target, so a crash leaves either the old
+ * or the new document. With a group commit interval, concurrent writers only
+ * write their temp file and wait; a committer thread syncs and renames all
+ * pending files and syncs each directory once per interval.
+ * <p>
+ * Once {@link #load()} has been used to rebuild an index, the repository
+ * keeps a {@link DocumentCheckpoint} of its documents up to date, rewriting
+ * it periodically when documents changed and on close. Every save is first
+ * recorded in a {@link ChangeJournal}, so the next load uses each checkpoint
+ * entry the journal does not name without looking at its file. A repository
+ * that saves without having been loaded deletes its checkpoint instead.
+ */
+public class JsonKnullRepository<T> implements KnullRepository<T>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(JsonKnullRepository.class);
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final String SEQUENCE_FILE = "id.sequence";
+    private static final String CHECKPOINT_FILE = "documents.checkpoint";
+    private static final String JOURNAL_FILE = "documents.journal";
 
     private final String directory;
     private final Class<T> type;
     private final ObjectMapper mapper;
+    private final AtomicLong tempSequence = new AtomicLong();
+    private final LinkedBlockingQueue<PendingWrite> pendingWrites = new LinkedBlockingQueue<>();
+    private final ScheduledExecutorService committer;
+    private final SequenceAllocator idSequence;
+    private final Path checkpointFile;
+    private final long checkpointIntervalMs;
+    private final Object checkpointLock = new Object();
+    private final AtomicBoolean changedSinceCheckpoint = new AtomicBoolean(true);
+    private ScheduledExecutorService checkpointer;
+    private volatile boolean checkpointsEnabled;
+    private final ChangeJournal journal;
+    // Held shared from journaling a save until its rename, exclusively to snapshot the journal
+    private final ReentrantReadWriteLock journalLock = new ReentrantReadWriteLock();
+    private final AtomicBoolean checkpointDiscarded = new AtomicBoolean();
 
-    @SneakyThrows
     public JsonKnullRepository(String directory, Class<T> type) {
+        this(directory, type, 0);
+    }
+
+    public JsonKnullRepository(String directory, Class<T> type, long groupCommitIntervalMs) {
+        this(directory, type, groupCommitIntervalMs, 0);
+    }
+
+    /**
+     * @param groupCommitIntervalMs interval at which pending writes are synced
+     *                              together, or 0 to sync every write on its own
+     * @param checkpointIntervalMs  how often to check whether the checkpoint is
+     *                              out of date, or 0 to write it only on close
+     */
+    @SneakyThrows
+    public JsonKnullRepository(String directory, Class<T> type, long groupCommitIntervalMs,
+            long checkpointIntervalMs) {
         this.directory = directory;
         this.type = type;
+        this.checkpointFile = new File(directory, CHECKPOINT_FILE).toPath();
+        this.checkpointIntervalMs = checkpointIntervalMs;
+        this.journal = new ChangeJournal(new File(directory, JOURNAL_FILE).toPath());
 
         new File(directory).mkdirs();
+        deleteStaleTempFiles();
 
         this.mapper = new ObjectMapper();
+        this.idSequence = new SequenceAllocator(new File(directory, SEQUENCE_FILE).toPath(),
+                scanMaxFileId(), SequenceAllocator.DEFAULT_BLOCK_SIZE);
+
+        if (groupCommitIntervalMs > 0) {
+            this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "json-group-commit-" + new File(directory).getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.committer.scheduleWithFixedDelay(this::commitPending,
+                    groupCommitIntervalMs, groupCommitIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.committer = null;
+        }
     }
 
     @Override
@@ -30,7 +122,36 @@ public class JsonKnullRepository<T> implements KnullRepository<T> {
         if (parent != null && !parent.exists()) {
             parent.mkdirs();
         }
-        mapper.writeValue(target, object);
+        Path temp = target.toPath().resolveSibling(
+                target.getName() + "." + tempSequence.incrementAndGet() + TEMP_SUFFIX);
+
+        journalLock.readLock().lock();
+        try {
+            recordChange(fileName + ".json", committer == null);
+
+            if (committer == null) {
+                writeTemp(temp, object, true);
+                moveIntoPlace(temp, target.toPath());
+                syncDirectory(temp.getParent());
+                changedSinceCheckpoint.set(true);
+                return;
+            }
+
+            writeTemp(temp, object, false);
+            PendingWrite write = new PendingWrite(temp, target.toPath(), new CompletableFuture<>());
+            pendingWrites.add(write);
+            if (committer.isShutdown()) {
+                commitPending();
+            }
+            try {
+                write.committed().get();
+            } catch (ExecutionException e) {
+                throw e.getCause();
+            }
+            changedSinceCheckpoint.set(true);
+        } finally {
+            journalLock.readLock().unlock();
+        }
     }
 
     @Override
@@ -43,50 +164,334 @@ public class JsonKnullRepository<T> implements KnullRepository<T> {
         return mapper.readValue(file, type);
     }
 
+    /**
+     * Lists the file names once and parses each document only when the
+     * stream reaches it. The name array splits evenly for parallel streams.
+     */
     @Override
-    @SneakyThrows
-    public List<T> getAll() {
-
-        List<T> result = new ArrayList<>();
+    public Stream<T> stream() {
+        return Arrays.stream(listDocuments())
+                .map(this::readOrSkip)
+                .filter(Objects::nonNull);
+    }
 
-        File folder = new File(directory);
-        File[] files = folder.listFiles((dir, name) -> name.endsWith(".json"));
+    /**
+     * Documents in the checkpoint that the change journal does not name are
+     * parsed from it without touching their files; the others are read from
+     * their files. Without a usable checkpoint every file is read. Either way
+     * documents are parsed in parallel on the common fork-join pool.
+     */
+    @Override
+    public Stream<T> load() {
+        DocumentCheckpoint checkpoint;
+        Set<String> changed;
+        String[] names;
+        journalLock.writeLock().lock();
+        try {
+            // No save is between its journal entry and its rename while the journal is read
+            checkpoint = readCheckpoint();
+            changed = checkpoint != null ? readJournal() : null;
+            checkpointsEnabled = true;
+            names = listDocuments();
+        } finally {
+            journalLock.writeLock().unlock();
+        }
+        startCheckpoints();
+        if (checkpoint == null || changed == null) {
+            logger.info("No usable checkpoint in {}, reading {} documents", directory, names.length);
+            return Arrays.stream(names)
+                    .parallel()
+                    .map(this::readOrSkip)
+                    .filter(Objects::nonNull);
+        }
 
-        if (files == null)
-            return result;
+        LongAdder replayed = new LongAdder();
+        return Arrays.stream(names)
+                .parallel()
+                .map(name -> loadOrSkip(checkpoint, changed, name, replayed))
+                .filter(Objects::nonNull)
+                .onClose(() -> logger.info("Loaded {} documents of {} from checkpoint, read {} changed files",
+                        names.length - replayed.sum(), directory, replayed.sum()));
+    }
 
-        for (File file : files) {
-            if (file.isFile()) {
-                result.add(this.getByFileName(file.getName()));
+    /**
+     * Snapshot all documents into the checkpoint. Documents that did not
+     * change since the previous checkpoint are copied from it.
+     */
+    public void writeCheckpoint() {
+        synchronized (checkpointLock) {
+            changedSinceCheckpoint.set(false);
+            try {
+                // Saves journaled from here on may not be in this checkpoint
+                journalLock.writeLock().lock();
+                try {
+                    journal.rotate();
+                } finally {
+                    journalLock.writeLock().unlock();
+                }
+                long highWaterMark = System.currentTimeMillis();
+                DocumentCheckpoint previous = readCheckpoint();
+                Map<String, DocumentCheckpoint.Entry> entries = new HashMap<>();
+                for (String name : listDocuments()) {
+                    File file = new File(directory, name);
+                    // Taken before reading, so the JSON is never older than its recorded time
+                    long modified = file.lastModified();
+                    byte[] json = previous != null ? previous.lookup(name, modified) : null;
+                    if (json == null) {
+                        try {
+                            json = Files.readAllBytes(file.toPath());
+                        } catch (NoSuchFileException e) {
+                            continue;
+                        }
+                    }
+                    entries.put(name, new DocumentCheckpoint.Entry(modified, json));
+                }
+                new DocumentCheckpoint(highWaterMark, entries).write(checkpointFile);
+                syncDirectory(checkpointFile.getParent());
+                journal.discardRotated();
+                logger.debug("Wrote checkpoint of {} documents in {}", entries.size(), directory);
+            } catch (Exception e) {
+                changedSinceCheckpoint.set(true);
+                logger.error("Failed to write checkpoint of {}", directory, e);
             }
         }
+    }
 
-        return result;
+    @Override
+    @SneakyThrows
+    public long count() {
+        long count = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(new File(directory).toPath(), "*.json")) {
+            for (Path ignored : files) {
+                count++;
+            }
+        }
+        return count;
     }
 
     @Override
     @SneakyThrows
     public void deleteByFileName(String fileName) {
+        // A pending write of the same file must not be renamed back after the delete
+        commitPending();
         File file = new File(directory + "/" + fileName + ".json");
         if (!file.delete()) {
             throw new RuntimeException("Failed to delete file: " + fileName);
         }
+        changedSinceCheckpoint.set(true);
     }
 
     @Override
     public Long getNextFileId() {
-        File folder = new File(directory);
-        File[] files = folder.listFiles((dir, name) -> name.endsWith(".json"));
+        return idSequence.next();
+    }
+
+    /**
+     * Sync and rename every pending write, then sync the directories they
+     * were renamed in. Writers of the batch are released afterwards.
+     */
+    public synchronized void commitPending() {
+        List<PendingWrite> batch = new ArrayList<>();
+        pendingWrites.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            // Only the last write of each file in the batch needs to reach the disk
+            Map<Path, PendingWrite> latest = new LinkedHashMap<>();
+            for (PendingWrite write : batch) {
+                PendingWrite superseded = latest.put(write.target(), write);
+                if (superseded != null) {
+                    Files.deleteIfExists(superseded.temp());
+                }
+            }
+            Set<Path> directories = new HashSet<>();
+            for (PendingWrite write : latest.values()) {
+                try (FileChannel channel = FileChannel.open(write.temp(), StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+            journal.sync();
+            for (PendingWrite write : latest.values()) {
+                moveIntoPlace(write.temp(), write.target());
+                directories.add(write.target().getParent());
+            }
+            for (Path dir : directories) {
+                syncDirectory(dir);
+            }
+            batch.forEach(write -> write.committed().complete(null));
+        } catch (Exception e) {
+            logger.error("Failed to commit {} pending writes in {}", batch.size(), directory, e);
+            batch.forEach(write -> write.committed().completeExceptionally(e));
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (checkpointLock) {
+            if (checkpointer != null) {
+                checkpointer.shutdownNow();
+            }
+        }
+        if (committer != null) {
+            committer.shutdown();
+            try {
+                committer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            commitPending();
+        }
+        if (checkpointsEnabled && changedSinceCheckpoint.get()) {
+            writeCheckpoint();
+        }
+        try {
+            journal.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close change journal of {}", directory, e);
+        }
+    }
+
+    private void startCheckpoints() {
+        synchronized (checkpointLock) {
+            if (checkpointer != null) {
+                return;
+            }
+            if (checkpointIntervalMs > 0) {
+                checkpointer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "json-checkpoint-" + new File(directory).getName());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+                checkpointer.scheduleWithFixedDelay(() -> {
+                    if (changedSinceCheckpoint.get()) {
+                        writeCheckpoint();
+                    }
+                }, checkpointIntervalMs, checkpointIntervalMs, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
 
-        if (files == null)
-            return 1L;
+    private DocumentCheckpoint readCheckpoint() {
+        try {
+            return DocumentCheckpoint.read(checkpointFile);
+        } catch (Exception e) {
+            logger.warn("Ignoring unreadable checkpoint {}", checkpointFile, e);
+            return null;
+        }
+    }
 
-        Optional<Long> lastFile = Arrays.stream(files).map(file -> file.getName().replace(".json", ""))
-                .map(Long::parseLong)
-                .sorted(Comparator.reverseOrder())
-                .limit(1)
-                .findFirst();
+    /**
+     * Record a save before its rename. Without checkpoints nothing keeps the
+     * journal short, so an existing checkpoint is deleted instead of trusted
+     * by a later load.
+     */
+    private void recordChange(String name, boolean sync) throws IOException {
+        if (checkpointsEnabled) {
+            journal.append(name, sync);
+        } else if (checkpointDiscarded.compareAndSet(false, true)) {
+            Files.deleteIfExists(checkpointFile);
+            journal.delete();
+        }
+    }
+
+    private Set<String> readJournal() {
+        try {
+            return journal.read();
+        } catch (Exception e) {
+            logger.warn("Ignoring checkpoint of {}: unreadable change journal", directory, e);
+            return null;
+        }
+    }
+
+    private T loadOrSkip(DocumentCheckpoint checkpoint, Set<String> changed, String fileName, LongAdder replayed) {
+        byte[] json = changed.contains(fileName) ? null : checkpoint.get(fileName);
+        if (json != null) {
+            try {
+                return mapper.readValue(json, type);
+            } catch (Exception e) {
+                logger.warn("Unreadable checkpoint entry {}/{}, reading the file", directory, fileName, e);
+            }
+        }
+        replayed.increment();
+        return readOrSkip(fileName);
+    }
+
+    private String[] listDocuments() {
+        String[] names = new File(directory).list((dir, name) -> name.endsWith(".json"));
+        return names != null ? names : new String[0];
+    }
+
+    private T readOrSkip(String fileName) {
+        try {
+            return this.getByFileName(fileName);
+        } catch (Exception e) {
+            // One unreadable document must not break every listing
+            logger.error("Skipping unreadable file {}/{}", directory, fileName, e);
+            return null;
+        }
+    }
+
+    private void writeTemp(Path temp, T object, boolean sync) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(mapper.writeValueAsBytes(object));
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (sync) {
+                channel.force(true);
+            }
+        }
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Make a rename durable. Not every platform can open a directory for
+     * syncing; there the rename is left to the file system.
+     */
+    static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Directory sync not supported for {}", dir);
+        }
+    }
+
+    /**
+     * Highest numeric file name, used once to seed the id sequence of
+     * directories written before it existed
+     */
+    private long scanMaxFileId() {
+        File[] files = new File(directory).listFiles((dir, name) -> name.endsWith(".json"));
+        if (files == null) {
+            return 0;
+        }
+        return Arrays.stream(files)
+                .map(file -> file.getName().replace(".json", ""))
+                .filter(name -> !name.isEmpty() && name.chars().allMatch(Character::isDigit))
+                .mapToLong(Long::parseLong)
+                .max()
+                .orElse(0);
+    }
+
+    private void deleteStaleTempFiles() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(new File(directory).toPath(), "*" + TEMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+                logger.warn("Deleted temp file {} left by an interrupted write", file);
+            }
+        }
+    }
 
-        return lastFile.map(integer -> integer + 1).orElse(1L);
+    private record PendingWrite(Path temp, Path target, CompletableFuture<Void> committed) {
     }
 }
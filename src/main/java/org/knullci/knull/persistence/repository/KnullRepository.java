@@ -1,11 +1,50 @@
 package org.knullci.knull.persistence.repository;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public interface KnullRepository<T> {
     void save(String fileName, T object);
     T getByFileName(String fileName);
-    List<T> getAll();
+
+    /**
+     * Read all entities into a list. Prefer stream() when looking for a
+     * single entity or when not every entity is needed.
+     */
+    default List<T> getAll() {
+        try (Stream<T> entities = stream()) {
+            return entities.collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Lazily read all entities. Each document is only read and parsed when
+     * the stream reaches it, so short-circuiting operations such as
+     * findFirst or anyMatch stop reading early, and parallel streams parse
+     * documents concurrently. Entities saved or deleted while the stream is
+     * consumed may or may not be seen. Unreadable documents are skipped.
+     */
+    Stream<T> stream();
+
+    /**
+     * Read all entities to rebuild an in-memory index at startup. Backends
+     * may serve unchanged entities from a checkpoint and read in parallel,
+     * so the order is unspecified and consumers must be thread safe.
+     */
+    default Stream<T> load() {
+        return stream();
+    }
+
+    /**
+     * Number of stored entities, without reading any of them
+     */
+    long count();
+
     void deleteByFileName(String fileName);
+    /**
+     * Allocate a new numeric id. Never returns the same id twice, also
+     * across restarts and to concurrent callers.
+     */
     Long getNextFileId();
 }
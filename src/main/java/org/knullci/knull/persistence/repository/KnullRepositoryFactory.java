@@ -0,0 +1,73 @@
+package org.knullci.knull.persistence.repository;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Creates the storage backend of each repository.
+ * <p>
+ * The backend is chosen per storage directory with
+ * {@code knull.storage.<directory name>.backend}, falling back to
+ * {@code knull.storage.backend}. Supported values are {@code json}, one file
+ * per entity, and {@code segment}, append-only segment files.
+ */
+@Component
+public class KnullRepositoryFactory {
+
+    private static final Logger logger = LoggerFactory.getLogger(KnullRepositoryFactory.class);
+
+    public static final String JSON_BACKEND = "json";
+    public static final String SEGMENT_BACKEND = "segment";
+
+    private final Environment environment;
+    private final List<AutoCloseable> openRepositories = new CopyOnWriteArrayList<>();
+
+    public KnullRepositoryFactory(Environment environment) {
+        this.environment = environment;
+    }
+
+    public <T> KnullRepository<T> create(String directory, Class<T> type) {
+        String name = Paths.get(directory).getFileName().toString();
+        String backend = environment.getProperty("knull.storage." + name + ".backend",
+                environment.getProperty("knull.storage.backend", JSON_BACKEND));
+
+        switch (backend) {
+            case JSON_BACKEND:
+                var jsonRepository = new JsonKnullRepository<>(directory, type,
+                        environment.getProperty("knull.storage.json.group-commit-interval-ms", Long.class, 0L),
+                        environment.getProperty("knull.storage.json.checkpoint-interval-ms", Long.class, 600_000L));
+                openRepositories.add(jsonRepository);
+                return jsonRepository;
+            case SEGMENT_BACKEND:
+                var segmentRepository = new SegmentKnullRepository<>(directory, type,
+                        environment.getProperty("knull.storage.segment.max-segment-bytes", Long.class,
+                                SegmentKnullRepository.DEFAULT_MAX_SEGMENT_BYTES),
+                        environment.getProperty("knull.storage.segment.compaction-interval-ms", Long.class, 60_000L),
+                        environment.getProperty("knull.storage.segment.group-commit-interval-ms", Long.class, 0L));
+                openRepositories.add(segmentRepository);
+                logger.info("Using segment storage for {}", directory);
+                return segmentRepository;
+            default:
+                throw new IllegalArgumentException("Unknown storage backend '" + backend + "' for " + directory);
+        }
+    }
+
+    @PreDestroy
+    public void closeAll() {
+        for (AutoCloseable repository : openRepositories) {
+            try {
+                repository.close();
+            } catch (Exception e) {
+                logger.error("Failed to close repository", e);
+            }
+        }
+        openRepositories.clear();
+    }
+}
@@ -0,0 +1,160 @@
+package org.knullci.knull.persistence.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Line index of a build log: the byte offset at which every line starts,
+ * stored next to the log as fixed-size entries. Finding where line n starts
+ * is a single positional read, however large the log is.
+ * <p>
+ * Entry 0 is always offset 0. A log ending with a newline has a final entry
+ * equal to its length, which starts no line yet.
+ */
+class LineIndex implements AutoCloseable {
+
+    private static final int ENTRY_BYTES = Long.BYTES;
+    private static final int SCAN_BUFFER_BYTES = 64 * 1024;
+
+    private final FileChannel channel;
+    private long entries;
+    private long lastStart;
+
+    private LineIndex(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Open the index of a log, indexing whatever part of the log it does not
+     * cover yet. Logs written before the index existed are indexed in full.
+     */
+    static LineIndex open(Path indexFile, Path logFile) throws IOException {
+        try (FileChannel log = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            return open(indexFile, new LogContent.Plain(log, log.size()));
+        }
+    }
+
+    static LineIndex open(Path indexFile, LogContent log) throws IOException {
+        LineIndex index = new LineIndex(FileChannel.open(indexFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        try {
+            index.catchUp(log);
+        } catch (IOException e) {
+            index.close();
+            throw e;
+        }
+        return index;
+    }
+
+    /**
+     * Record the line starts in text that was appended at the given offset
+     */
+    void record(long offset, byte[] appended) throws IOException {
+        record(offset, ByteBuffer.wrap(appended));
+    }
+
+    /**
+     * Record the line starts in the remaining bytes of a buffer that was
+     * appended at the given offset; the buffer position is left unchanged
+     */
+    void record(long offset, ByteBuffer appended) throws IOException {
+        ByteBuffer buffer = null;
+        int start = appended.position();
+        for (int i = start; i < appended.limit(); i++) {
+            if (appended.get(i) == '\n') {
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate(countNewlines(appended, i) * ENTRY_BYTES);
+                }
+                buffer.putLong(offset + i - start + 1);
+            }
+        }
+        if (buffer != null) {
+            write(buffer);
+        }
+    }
+
+    long entries() {
+        return entries;
+    }
+
+    /**
+     * Number of lines of a log of the given length
+     */
+    long lineCount(long logLength) {
+        return lastStart == logLength ? entries - 1 : entries;
+    }
+
+    /**
+     * Byte offset at which a line starts, or the log length for the line
+     * after the last one
+     */
+    long lineStart(long line, long logLength) throws IOException {
+        if (line >= entries) {
+            return logLength;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(ENTRY_BYTES);
+        long position = line * ENTRY_BYTES;
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Line index ends before entry " + line);
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void catchUp(LogContent log) throws IOException {
+        long logLength = log.length();
+        // An entry torn by a crash is dropped and found again by the scan below
+        entries = channel.size() / ENTRY_BYTES;
+        channel.truncate(entries * ENTRY_BYTES);
+        if (entries > 0) {
+            lastStart = lineStart(entries - 1, logLength);
+        }
+        if (entries == 0 || lastStart > logLength) {
+            // Missing, or belonging to a log that was replaced: index from scratch
+            channel.truncate(0);
+            entries = 0;
+            lastStart = 0;
+            write(ByteBuffer.allocate(ENTRY_BYTES).putLong(0));
+        }
+
+        long position = lastStart;
+        while (position < logLength) {
+            ByteBuffer chunk = log.chunk(position, SCAN_BUFFER_BYTES);
+            if (!chunk.hasRemaining()) {
+                break;
+            }
+            record(position, chunk);
+            position += chunk.remaining();
+        }
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        long position = entries * ENTRY_BYTES;
+        int count = buffer.remaining() / ENTRY_BYTES;
+        lastStart = buffer.getLong(buffer.limit() - ENTRY_BYTES);
+        while (buffer.hasRemaining()) {
+            position += channel.write(buffer, position);
+        }
+        entries += count;
+    }
+
+    private static int countNewlines(ByteBuffer bytes, int from) {
+        int count = 0;
+        for (int i = from; i < bytes.limit(); i++) {
+            if (bytes.get(i) == '\n') {
+                count++;
+            }
+        }
+        return count;
+    }
+}
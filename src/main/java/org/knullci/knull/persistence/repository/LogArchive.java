@@ -0,0 +1,207 @@
+package org.knullci.knull.persistence.repository;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compressed build log made of independently compressed frames.
+ * <p>
+ * Every frame holds a fixed amount of log and is a complete gzip member.
+ * Concatenated gzip members are themselves a valid gzip stream, so the
+ * archive can be sent as is to clients accepting gzip. A frame table next to
+ * the archive maps log offsets to frame positions, so reading any part of
+ * the log only inflates the frames covering it.
+ * <p>
+ * The frame table holds one pair of longs per frame, the log offset and
+ * the archive offset at which it starts, followed by the log length and the
+ * archive length.
+ */
+final class LogArchive implements LogContent {
+
+    static final int FRAME_BYTES = 64 * 1024;
+
+    private static final String TEMP_SUFFIX = ".tmp";
+    private static final int ENTRY_BYTES = 2 * Long.BYTES;
+
+    private final FileChannel channel;
+    private final long[] offsets;
+    private final long[] archiveOffsets;
+    private int cachedFrame = -1;
+    private byte[] cachedBytes;
+
+    private LogArchive(FileChannel channel, long[] offsets, long[] archiveOffsets) {
+        this.channel = channel;
+        this.offsets = offsets;
+        this.archiveOffsets = archiveOffsets;
+    }
+
+    static LogArchive open(Path archiveFile, Path framesFile) throws IOException {
+        ByteBuffer table = ByteBuffer.wrap(Files.readAllBytes(framesFile));
+        int entries = table.remaining() / ENTRY_BYTES;
+        if (entries == 0) {
+            throw new IOException("Frame table " + framesFile + " is empty");
+        }
+        long[] offsets = new long[entries];
+        long[] archiveOffsets = new long[entries];
+        for (int i = 0; i < entries; i++) {
+            offsets[i] = table.getLong();
+            archiveOffsets[i] = table.getLong();
+        }
+        return new LogArchive(FileChannel.open(archiveFile, StandardOpenOption.READ), offsets, archiveOffsets);
+    }
+
+    /**
+     * Length of an archived log, read from the end of its frame table
+     */
+    static long length(Path framesFile) throws IOException {
+        try (FileChannel channel = FileChannel.open(framesFile, StandardOpenOption.READ)) {
+            ByteBuffer last = ByteBuffer.allocate(ENTRY_BYTES);
+            long position = channel.size() - ENTRY_BYTES;
+            if (position < 0) {
+                throw new IOException("Frame table " + framesFile + " is empty");
+            }
+            while (last.hasRemaining()) {
+                if (channel.read(last, position + last.position()) < 0) {
+                    throw new EOFException();
+                }
+            }
+            return last.getLong(0);
+        }
+    }
+
+    /**
+     * Compress a log into an archive and its frame table. Both only appear
+     * under their final names once complete and synced, the frame table
+     * first, so an archive is never visible without its table.
+     */
+    static void write(LogContent log, Path archiveFile, Path framesFile) throws IOException {
+        Path archiveTemp = archiveFile.resolveSibling(archiveFile.getFileName() + TEMP_SUFFIX);
+        Path framesTemp = framesFile.resolveSibling(framesFile.getFileName() + TEMP_SUFFIX);
+        long length = log.length();
+        ByteBuffer table = ByteBuffer.allocate(Math.toIntExact((length / FRAME_BYTES + 2) * ENTRY_BYTES));
+
+        try (FileChannel archive = FileChannel.open(archiveTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            long position = 0;
+            long archivePosition = 0;
+            while (position < length) {
+                ByteBuffer frame = log.chunk(position, (int) Math.min(FRAME_BYTES, length - position));
+                if (!frame.hasRemaining()) {
+                    break;
+                }
+                table.putLong(position).putLong(archivePosition);
+                int frameLength = frame.remaining();
+                ByteBuffer compressed = ByteBuffer.wrap(compress(frame));
+                archivePosition += compressed.remaining();
+                while (compressed.hasRemaining()) {
+                    archive.write(compressed);
+                }
+                position += frameLength;
+            }
+            table.putLong(position).putLong(archivePosition);
+            archive.force(true);
+        }
+        try (FileChannel frames = FileChannel.open(framesTemp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            table.flip();
+            while (table.hasRemaining()) {
+                frames.write(table);
+            }
+            frames.force(true);
+        }
+        moveIntoPlace(framesTemp, framesFile);
+        moveIntoPlace(archiveTemp, archiveFile);
+    }
+
+    @Override
+    public long length() {
+        return offsets[offsets.length - 1];
+    }
+
+    /**
+     * Length of the archive itself, i.e. of the gzip stream
+     */
+    long archiveLength() {
+        return archiveOffsets[archiveOffsets.length - 1];
+    }
+
+    FileChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public int read(ByteBuffer target, long position) throws IOException {
+        if (position >= length()) {
+            return -1;
+        }
+        int frame = frameAt(position);
+        byte[] bytes = inflate(frame);
+        int from = (int) (position - offsets[frame]);
+        int count = Math.min(target.remaining(), bytes.length - from);
+        target.put(bytes, from, count);
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int frameAt(long position) {
+        int index = Arrays.binarySearch(offsets, 0, offsets.length - 1, position);
+        return index >= 0 ? index : -index - 2;
+    }
+
+    /**
+     * Decompressed content of a frame. The last frame is kept, since reads
+     * are mostly sequential.
+     */
+    private byte[] inflate(int frame) throws IOException {
+        if (frame == cachedFrame) {
+            return cachedBytes;
+        }
+        ByteBuffer compressed = ByteBuffer.allocate(
+                Math.toIntExact(archiveOffsets[frame + 1] - archiveOffsets[frame]));
+        while (compressed.hasRemaining()) {
+            if (channel.read(compressed, archiveOffsets[frame] + compressed.position()) < 0) {
+                throw new EOFException("Archive ends inside frame " + frame);
+            }
+        }
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.array()))) {
+            cachedBytes = in.readAllBytes();
+        }
+        cachedFrame = frame;
+        return cachedBytes;
+    }
+
+    private static byte[] compress(ByteBuffer frame) throws IOException {
+        byte[] bytes = new byte[frame.remaining()];
+        frame.get(bytes);
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static void moveIntoPlace(Path temp, Path target) throws IOException {
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package org.knullci.knull.persistence.repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Read access to the bytes of a stored build log, whether it is a plain
+ * file or an archive.
+ */
+interface LogContent extends AutoCloseable {
+
+    long length();
+
+    /**
+     * Read bytes at a position of the log into the buffer
+     *
+     * @return the number of bytes read, or -1 at the end of the log
+     */
+    int read(ByteBuffer target, long position) throws IOException;
+
+    /**
+     * Up to size bytes starting at a position, for sequential scans
+     */
+    default ByteBuffer chunk(long position, int size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) Math.max(0, Math.min(size, length() - position)));
+        while (buffer.hasRemaining()) {
+            if (read(buffer, position + buffer.position()) < 0) {
+                break;
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    void close() throws IOException;
+
+    /**
+     * A plain log file, read up to the length it had when it was opened
+     */
+    record Plain(FileChannel channel, long length) implements LogContent {
+
+        private static final int MAP_THRESHOLD_BYTES = 1024 * 1024;
+
+        @Override
+        public int read(ByteBuffer target, long position) throws IOException {
+            if (position >= length) {
+                return -1;
+            }
+            if (target.remaining() <= length - position) {
+                return channel.read(target, position);
+            }
+            // Bytes appended after opening are not part of this content
+            ByteBuffer window = target.slice().limit((int) (length - position));
+            int read = channel.read(window, position);
+            if (read > 0) {
+                target.position(target.position() + read);
+            }
+            return read;
+        }
+
+        @Override
+        public ByteBuffer chunk(long position, int size) throws IOException {
+            long bytes = Math.max(0, Math.min(size, length - position));
+            if (bytes < MAP_THRESHOLD_BYTES) {
+                return LogContent.super.chunk(position, size);
+            }
+            // Large scans read the page cache directly instead of copying into the heap
+            return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,522 @@
+package org.knullci.knull.persistence.repository;
+
+import lombok.SneakyThrows;
+import org.knullci.knull.domain.model.LogSearchHit;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.knullci.knull.domain.repository.LogIndexRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.PreDestroy;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from the words of log lines to the builds and lines they
+ * appear in, stored as immutable segments under storage/log-index.
+ * <p>
+ * Indexing a build streams its log once and writes the postings of that
+ * build as a new segment; postings are only buffered in memory up to a
+ * limit, after which a segment is written mid-build. Once there are more
+ * segments than configured, the smallest ones are merged into one, so the
+ * number of files a query reads stays bounded while older segments are
+ * rarely rewritten. A build may end up in several segments; its postings
+ * are combined when merging and when querying.
+ * <p>
+ * Removed builds are recorded in a file of build ids. Queries skip their
+ * postings and merges leave them out, so they disappear from the segments
+ * as these get merged.
+ */
+@Repository
+public class LogIndexRepositoryImpl implements LogIndexRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(LogIndexRepositoryImpl.class);
+
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 64;
+    private static final String REMOVED_BUILDS_FILE = "removed-builds";
+
+    private final BuildLogRepository buildLogRepository;
+    private final Path directory;
+    private final int maxBufferedPostings;
+    private final int maxSegments;
+    private final List<LogIndexSegment> segments = new ArrayList<>();
+    private final Set<Long> removedBuilds = ConcurrentHashMap.newKeySet();
+    // Queries hold the read lock, so merged segments are only closed once no query uses them
+    private final ReentrantReadWriteLock segmentsLock = new ReentrantReadWriteLock();
+    private long nextGeneration = 1;
+
+    @SneakyThrows
+    public LogIndexRepositoryImpl(BuildLogRepository buildLogRepository,
+            @Value("${knull.log-index.directory:storage/log-index}") String directory,
+            @Value("${knull.log-index.max-buffered-postings:1000000}") int maxBufferedPostings,
+            @Value("${knull.log-index.max-segments:10}") int maxSegments) {
+        this.buildLogRepository = buildLogRepository;
+        this.directory = Paths.get(directory);
+        this.maxBufferedPostings = maxBufferedPostings;
+        this.maxSegments = Math.max(2, maxSegments);
+        Files.createDirectories(this.directory);
+        openSegments();
+        loadRemovedBuilds();
+    }
+
+    @Override
+    @SneakyThrows
+    public synchronized void index(Long buildId) {
+        Map<String, LineList> buffer = new HashMap<>();
+        int buffered = 0;
+        long lineNumber = 0;
+        try (InputStream in = buildLogRepository.openStream(buildId)) {
+            // Lines end at '\n' only, so line numbers agree with the build log's line index
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            byte[] chunk = new byte[64 * 1024];
+            int read;
+            while ((read = in.read(chunk)) > 0) {
+                int start = 0;
+                for (int i = 0; i < read; i++) {
+                    if (chunk[i] != '\n') {
+                        continue;
+                    }
+                    line.write(chunk, start, i - start);
+                    buffered += addLine(buffer, line.toString(StandardCharsets.UTF_8), lineNumber++);
+                    line.reset();
+                    start = i + 1;
+                    if (buffered >= maxBufferedPostings) {
+                        writeSegment(buildId, buffer);
+                        buffered = 0;
+                    }
+                }
+                line.write(chunk, start, read - start);
+            }
+            if (line.size() > 0) {
+                addLine(buffer, line.toString(StandardCharsets.UTF_8), lineNumber);
+            }
+        }
+        writeSegment(buildId, buffer);
+        mergeIfNeeded();
+        logger.debug("Indexed log of build {}", buildId);
+    }
+
+    @Override
+    @SneakyThrows
+    public synchronized void remove(Long buildId) {
+        if (!removedBuilds.add(buildId)) {
+            return;
+        }
+        ByteBuffer entry = ByteBuffer.allocate(Long.BYTES).putLong(buildId).flip();
+        try (FileChannel channel = FileChannel.open(directory.resolve(REMOVED_BUILDS_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (entry.hasRemaining()) {
+                channel.write(entry);
+            }
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public List<LogSearchHit> search(String query, int maxBuilds, int maxLinesPerBuild) {
+        Set<String> tokens = tokenize(query);
+        if (tokens.isEmpty()) {
+            return List.of();
+        }
+
+        segmentsLock.readLock().lock();
+        try {
+            List<TokenPostings> located = new ArrayList<>();
+            for (String token : tokens) {
+                TokenPostings postings = locate(token);
+                if (postings.postings().isEmpty()) {
+                    return List.of();
+                }
+                located.add(postings);
+            }
+            // Start with the rarest word so that every later list is only checked against few candidates
+            located.sort(Comparator.comparingLong(TokenPostings::bytes));
+            Map<Long, LineList> candidates = null;
+            for (TokenPostings postings : located) {
+                candidates = collect(postings, candidates);
+                if (candidates.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            // Build ids increase over time, so the most recent builds come first
+            List<Long> buildIds = new ArrayList<>(candidates.keySet());
+            buildIds.sort(Comparator.reverseOrder());
+            List<LogSearchHit> hits = new ArrayList<>();
+            for (Long buildId : buildIds.subList(0, Math.min(maxBuilds, buildIds.size()))) {
+                LineList lines = candidates.get(buildId);
+                hits.add(new LogSearchHit(buildId, lines.size(), lines.head(maxLinesPerBuild)));
+            }
+            return hits;
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        segmentsLock.writeLock().lock();
+        try {
+            for (LogIndexSegment segment : segments) {
+                try {
+                    segment.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close index segment {}", segment.file(), e);
+                }
+            }
+            segments.clear();
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Split text into lower-case words of letters and digits. Very short and
+     * very long words are left out; they are rarely what anyone searches for.
+     */
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                int length = i - start;
+                if (length >= MIN_TOKEN_LENGTH && length <= MAX_TOKEN_LENGTH) {
+                    tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static int addLine(Map<String, LineList> buffer, String line, long lineNumber) {
+        Set<String> tokens = tokenize(line);
+        for (String token : tokens) {
+            buffer.computeIfAbsent(token, key -> new LineList()).add(lineNumber);
+        }
+        return tokens.size();
+    }
+
+    private void writeSegment(Long buildId, Map<String, LineList> buffer) throws IOException {
+        if (buffer.isEmpty()) {
+            return;
+        }
+        Path file = nextSegmentFile();
+        try (LogIndexSegment.Writer writer = new LogIndexSegment.Writer(file)) {
+            for (Map.Entry<String, LineList> entry : new TreeMap<>(buffer).entrySet()) {
+                writer.startTerm(entry.getKey());
+                writer.addGroup(buildId, entry.getValue().values(), entry.getValue().size());
+                writer.endTerm();
+            }
+            writer.finish();
+        }
+        buffer.clear();
+        addSegment(LogIndexSegment.open(file));
+    }
+
+    private void mergeIfNeeded() throws IOException {
+        List<LogIndexSegment> current;
+        segmentsLock.readLock().lock();
+        try {
+            if (segments.size() <= maxSegments) {
+                return;
+            }
+            current = new ArrayList<>(segments);
+        } finally {
+            segmentsLock.readLock().unlock();
+        }
+
+        // Merging the smallest segments keeps large, old segments from being rewritten on every merge
+        List<SizedSegment> sized = new ArrayList<>();
+        for (LogIndexSegment segment : current) {
+            sized.add(new SizedSegment(segment, segment.size()));
+        }
+        sized.sort(Comparator.comparingLong(SizedSegment::size));
+        List<LogIndexSegment> sources = sized.subList(0, Math.max(2, maxSegments / 2)).stream()
+                .map(SizedSegment::segment)
+                .toList();
+        merge(sources);
+    }
+
+    private void merge(List<LogIndexSegment> sources) throws IOException {
+        Path file = nextSegmentFile();
+        try (LogIndexSegment.Writer writer = new LogIndexSegment.Writer(file)) {
+            PriorityQueue<LogIndexSegment.TermCursor> cursors =
+                    new PriorityQueue<>((a, b) -> a.term().compareTo(b.term()));
+            for (LogIndexSegment source : sources) {
+                LogIndexSegment.TermCursor cursor = source.terms();
+                if (cursor.next()) {
+                    cursors.add(cursor);
+                }
+            }
+            List<LogIndexSegment.TermCursor> sameTerm = new ArrayList<>();
+            while (!cursors.isEmpty()) {
+                String term = cursors.peek().term();
+                sameTerm.clear();
+                while (!cursors.isEmpty() && cursors.peek().term().equals(term)) {
+                    sameTerm.add(cursors.poll());
+                }
+                writer.startTerm(term);
+                mergeGroups(writer, sameTerm);
+                writer.endTerm();
+                for (LogIndexSegment.TermCursor cursor : sameTerm) {
+                    if (cursor.next()) {
+                        cursors.add(cursor);
+                    }
+                }
+            }
+            writer.finish();
+        }
+        LogIndexSegment merged = LogIndexSegment.open(file);
+
+        segmentsLock.writeLock().lock();
+        try {
+            segments.removeAll(sources);
+            segments.add(merged);
+            for (LogIndexSegment source : sources) {
+                source.close();
+                // A crash before this delete leaves postings in two segments, which queries combine
+                Files.deleteIfExists(source.file());
+            }
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+        logger.info("Merged {} log index segments into {}", sources.size(), file.getFileName());
+    }
+
+    /**
+     * Write the groups of one term from several segments in descending
+     * build id order, combining the lines of a build found in more than one
+     */
+    private void mergeGroups(LogIndexSegment.Writer writer, List<LogIndexSegment.TermCursor> cursors)
+            throws IOException {
+        PriorityQueue<LogIndexSegment.GroupReader> readers =
+                new PriorityQueue<>((a, b) -> Long.compare(b.buildId(), a.buildId()));
+        for (LogIndexSegment.TermCursor cursor : cursors) {
+            LogIndexSegment.GroupReader reader = cursor.segment().groups(cursor.postings());
+            if (reader.next()) {
+                readers.add(reader);
+            }
+        }
+        LineList lines = new LineList();
+        while (!readers.isEmpty()) {
+            long buildId = readers.peek().buildId();
+            lines.clear();
+            while (!readers.isEmpty() && readers.peek().buildId() == buildId) {
+                LogIndexSegment.GroupReader reader = readers.poll();
+                lines.addAll(reader.lines(), reader.lineCount());
+                if (reader.next()) {
+                    readers.add(reader);
+                }
+            }
+            if (removedBuilds.contains(buildId)) {
+                continue;
+            }
+            lines.sortDistinct();
+            writer.addGroup(buildId, lines.values(), lines.size());
+        }
+    }
+
+    private TokenPostings locate(String token) throws IOException {
+        List<SegmentPostings> postings = new ArrayList<>();
+        long bytes = 0;
+        for (LogIndexSegment segment : segments) {
+            LogIndexSegment.Postings found = segment.find(token);
+            if (found != null) {
+                postings.add(new SegmentPostings(segment, found));
+                bytes += found.length();
+            }
+        }
+        return new TokenPostings(postings, bytes);
+    }
+
+    /**
+     * Lines of every build containing the token, restricted to the
+     * candidate lines found for the previous tokens, if any
+     */
+    private Map<Long, LineList> collect(TokenPostings token, Map<Long, LineList> candidates)
+            throws IOException {
+        Map<Long, LineList> found = new HashMap<>();
+        for (SegmentPostings postings : token.postings()) {
+            LogIndexSegment.GroupReader reader = postings.segment().groups(postings.postings());
+            while (reader.next()) {
+                if (candidates != null ? !candidates.containsKey(reader.buildId())
+                        : removedBuilds.contains(reader.buildId())) {
+                    continue;
+                }
+                found.computeIfAbsent(reader.buildId(), key -> new LineList())
+                        .addAll(reader.lines(), reader.lineCount());
+            }
+        }
+
+        Iterator<Map.Entry<Long, LineList>> entries = found.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Long, LineList> entry = entries.next();
+            LineList lines = entry.getValue();
+            lines.sortDistinct();
+            if (candidates != null) {
+                lines.retainAll(candidates.get(entry.getKey()));
+            }
+            if (lines.size() == 0) {
+                entries.remove();
+            }
+        }
+        return found;
+    }
+
+    private void addSegment(LogIndexSegment segment) {
+        segmentsLock.writeLock().lock();
+        try {
+            segments.add(segment);
+        } finally {
+            segmentsLock.writeLock().unlock();
+        }
+    }
+
+    private Path nextSegmentFile() {
+        return directory.resolve(String.format("%020d%s", nextGeneration++, LogIndexSegment.SUFFIX));
+    }
+
+    private void openSegments() throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LogIndexSegment.TEMP_SUFFIX)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + LogIndexSegment.SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                nextGeneration = Math.max(nextGeneration,
+                        Long.parseLong(name.substring(0, name.length() - LogIndexSegment.SUFFIX.length())) + 1);
+                try {
+                    segments.add(LogIndexSegment.open(file));
+                } catch (IOException e) {
+                    logger.error("Skipping unreadable log index segment {}", file, e);
+                }
+            }
+        }
+        logger.info("Opened {} log index segments", segments.size());
+    }
+
+    private void loadRemovedBuilds() throws IOException {
+        Path file = directory.resolve(REMOVED_BUILDS_FILE);
+        if (!Files.exists(file)) {
+            return;
+        }
+        // A torn last entry from a crash is ignored; the build still exists in the segments
+        ByteBuffer entries = ByteBuffer.wrap(Files.readAllBytes(file));
+        while (entries.remaining() >= Long.BYTES) {
+            removedBuilds.add(entries.getLong());
+        }
+    }
+
+    private record SegmentPostings(LogIndexSegment segment, LogIndexSegment.Postings postings) {
+    }
+
+    private record TokenPostings(List<SegmentPostings> postings, long bytes) {
+    }
+
+    private record SizedSegment(LogIndexSegment segment, long size) {
+    }
+
+    /**
+     * Growable list of line numbers
+     */
+    private static final class LineList {
+
+        private long[] values = new long[4];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(long[] source, int count) {
+            if (size + count > values.length) {
+                values = Arrays.copyOf(values, Math.max(size + count, size * 2));
+            }
+            System.arraycopy(source, 0, values, size, count);
+            size += count;
+        }
+
+        void sortDistinct() {
+            Arrays.sort(values, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || values[i] != values[distinct - 1]) {
+                    values[distinct++] = values[i];
+                }
+            }
+            size = distinct;
+        }
+
+        /**
+         * Keep only the values also in other; both lists must be sorted
+         */
+        void retainAll(LineList other) {
+            int kept = 0;
+            int j = 0;
+            for (int i = 0; i < size; i++) {
+                while (j < other.size && other.values[j] < values[i]) {
+                    j++;
+                }
+                if (j < other.size && other.values[j] == values[i]) {
+                    values[kept++] = values[i];
+                }
+            }
+            size = kept;
+        }
+
+        List<Long> head(int count) {
+            List<Long> head = new ArrayList<>();
+            for (int i = 0; i < Math.min(count, size); i++) {
+                head.add(values[i]);
+            }
+            return head;
+        }
+
+        long[] values() {
+            return values;
+        }
+
+        int size() {
+            return size;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package org.knullci.knull.persistence.repository;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable on-disk segment of the cross-build log index.
+ * <p>
+ * A segment holds the posting lists of all its terms, then the term
+ * dictionary in term order, then a block index and a footer. A posting list
+ * is a sequence of groups, one per build in descending build id order, each
+ * holding the build id, the number of lines and the ascending line numbers
+ * as deltas. A dictionary entry holds the term and the offset and length of
+ * its posting list. Only the first term of every block of dictionary
+ * entries is kept in memory; a lookup reads the single block that can hold
+ * the term. All numbers are unsigned varints.
+ */
+class LogIndexSegment implements AutoCloseable {
+
+    static final String SUFFIX = ".seg";
+    static final String TEMP_SUFFIX = ".tmp";
+
+    private static final long MAGIC = 0x4b4e554c4c494458L;
+    private static final int FOOTER_BYTES = 3 * Long.BYTES;
+    private static final int TERMS_PER_BLOCK = 32;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final long termsOffset;
+    private final long blocksOffset;
+    private final String[] blockTerms;
+    private final long[] blockOffsets;
+
+    private LogIndexSegment(Path file, FileChannel channel, long termsOffset, long blocksOffset,
+            String[] blockTerms, long[] blockOffsets) {
+        this.file = file;
+        this.channel = channel;
+        this.termsOffset = termsOffset;
+        this.blocksOffset = blocksOffset;
+        this.blockTerms = blockTerms;
+        this.blockOffsets = blockOffsets;
+    }
+
+    static LogIndexSegment open(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < FOOTER_BYTES) {
+                throw new IOException("Index segment " + file + " is truncated");
+            }
+            ByteBuffer footer = ByteBuffer.allocate(FOOTER_BYTES);
+            readFully(channel, footer, size - FOOTER_BYTES);
+            long termsOffset = footer.getLong(0);
+            long blocksOffset = footer.getLong(Long.BYTES);
+            if (footer.getLong(2 * Long.BYTES) != MAGIC) {
+                throw new IOException("Index segment " + file + " has no valid footer");
+            }
+
+            List<String> terms = new ArrayList<>();
+            List<Long> offsets = new ArrayList<>();
+            ChannelInput blocks = new ChannelInput(channel, blocksOffset, size - FOOTER_BYTES);
+            while (blocks.hasRemaining()) {
+                terms.add(blocks.readString());
+                offsets.add(blocks.readVarLong());
+            }
+            return new LogIndexSegment(file, channel, termsOffset, blocksOffset, terms.toArray(String[]::new),
+                    offsets.stream().mapToLong(Long::longValue).toArray());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    Path file() {
+        return file;
+    }
+
+    long size() throws IOException {
+        return channel.size();
+    }
+
+    /**
+     * Location of a term's posting list, or null if the segment does not contain the term
+     */
+    Postings find(String term) throws IOException {
+        int block = Arrays.binarySearch(blockTerms, term);
+        if (block < 0) {
+            // Block whose first term is the greatest one before the term
+            block = -block - 2;
+            if (block < 0) {
+                return null;
+            }
+        }
+        long end = block + 1 < blockOffsets.length ? blockOffsets[block + 1] : blocksOffset;
+        TermCursor cursor = new TermCursor(new ChannelInput(channel, blockOffsets[block], end));
+        while (cursor.next()) {
+            int comparison = cursor.term().compareTo(term);
+            if (comparison == 0) {
+                return cursor.postings();
+            }
+            if (comparison > 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    GroupReader groups(Postings postings) {
+        return new GroupReader(new ChannelInput(channel, postings.offset(), postings.offset() + postings.length()));
+    }
+
+    /**
+     * All terms of the segment in term order
+     */
+    TermCursor terms() {
+        return new TermCursor(new ChannelInput(channel, termsOffset, blocksOffset));
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    record Postings(long offset, long length) {
+    }
+
+    final class TermCursor {
+
+        private final ChannelInput input;
+        private String term;
+        private Postings postings;
+
+        private TermCursor(ChannelInput input) {
+            this.input = input;
+        }
+
+        boolean next() throws IOException {
+            if (!input.hasRemaining()) {
+                return false;
+            }
+            term = input.readString();
+            postings = new Postings(input.readVarLong(), input.readVarLong());
+            return true;
+        }
+
+        String term() {
+            return term;
+        }
+
+        Postings postings() {
+            return postings;
+        }
+
+        LogIndexSegment segment() {
+            return LogIndexSegment.this;
+        }
+    }
+
+    /**
+     * Reads the build groups of one posting list
+     */
+    static final class GroupReader {
+
+        private final ChannelInput input;
+        private long buildId;
+        private long[] lines = new long[16];
+        private int lineCount;
+
+        private GroupReader(ChannelInput input) {
+            this.input = input;
+        }
+
+        boolean next() throws IOException {
+            if (!input.hasRemaining()) {
+                return false;
+            }
+            buildId = input.readVarLong();
+            lineCount = Math.toIntExact(input.readVarLong());
+            if (lines.length < lineCount) {
+                lines = new long[Math.max(lineCount, lines.length * 2)];
+            }
+            long line = 0;
+            for (int i = 0; i < lineCount; i++) {
+                line += input.readVarLong();
+                lines[i] = line;
+            }
+            return true;
+        }
+
+        long buildId() {
+            return buildId;
+        }
+
+        /**
+         * Line numbers of the current group; only the first lineCount entries are valid
+         */
+        long[] lines() {
+            return lines;
+        }
+
+        int lineCount() {
+            return lineCount;
+        }
+    }
+
+    /**
+     * Writes a new segment. Terms must be added in ascending order and the
+     * groups of a term in descending build id order. The segment only
+     * appears under its final name once it is complete and synced.
+     */
+    static final class Writer implements AutoCloseable {
+
+        private final Path target;
+        private final Path temp;
+        private final Path dictionaryTemp;
+        private final CountingOutputStream postings;
+        private final CountingOutputStream dictionary;
+        private final List<String> blockTerms = new ArrayList<>();
+        private final List<Long> blockOffsets = new ArrayList<>();
+        private long termCount;
+        private String term;
+        private long termStart;
+        private boolean finished;
+
+        Writer(Path target) throws IOException {
+            this.target = target;
+            this.temp = target.resolveSibling(target.getFileName() + TEMP_SUFFIX);
+            this.dictionaryTemp = target.resolveSibling(target.getFileName() + ".dict" + TEMP_SUFFIX);
+            this.postings = new CountingOutputStream(Files.newOutputStream(temp));
+            this.dictionary = new CountingOutputStream(Files.newOutputStream(dictionaryTemp));
+        }
+
+        void startTerm(String term) {
+            if (termCount % TERMS_PER_BLOCK == 0) {
+                blockTerms.add(term);
+                blockOffsets.add(dictionary.count());
+            }
+            this.term = term;
+            this.termStart = postings.count();
+        }
+
+        void addGroup(long buildId, long[] lines, int lineCount) throws IOException {
+            writeVarLong(postings, buildId);
+            writeVarLong(postings, lineCount);
+            long previous = 0;
+            for (int i = 0; i < lineCount; i++) {
+                writeVarLong(postings, lines[i] - previous);
+                previous = lines[i];
+            }
+        }
+
+        void endTerm() throws IOException {
+            writeString(dictionary, term);
+            writeVarLong(dictionary, termStart);
+            writeVarLong(dictionary, postings.count() - termStart);
+            termCount++;
+        }
+
+        long termCount() {
+            return termCount;
+        }
+
+        /**
+         * Complete the segment and move it into place
+         */
+        void finish() throws IOException {
+            dictionary.close();
+            long termsOffset = postings.count();
+            Files.copy(dictionaryTemp, postings);
+            long blocksOffset = postings.count();
+            for (int i = 0; i < blockTerms.size(); i++) {
+                writeString(postings, blockTerms.get(i));
+                writeVarLong(postings, termsOffset + blockOffsets.get(i));
+            }
+            DataOutputStream footer = new DataOutputStream(postings);
+            footer.writeLong(termsOffset);
+            footer.writeLong(blocksOffset);
+            footer.writeLong(MAGIC);
+            postings.close();
+
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target);
+            }
+            Files.deleteIfExists(dictionaryTemp);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (finished) {
+                return;
+            }
+            postings.close();
+            dictionary.close();
+            Files.deleteIfExists(temp);
+            Files.deleteIfExists(dictionaryTemp);
+        }
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException();
+            }
+        }
+    }
+
+    private static void writeVarLong(OutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static void writeString(OutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Buffered reader of a byte range of a channel using positional reads,
+     * so any number of readers can share the channel
+     */
+    private static final class ChannelInput {
+
+        private final FileChannel channel;
+        private final long end;
+        private final ByteBuffer buffer = ByteBuffer.allocate(8192).limit(0);
+        private long position;
+
+        private ChannelInput(FileChannel channel, long start, long end) {
+            this.channel = channel;
+            this.position = start;
+            this.end = end;
+        }
+
+        boolean hasRemaining() {
+            return buffer.hasRemaining() || position < end;
+        }
+
+        byte readByte() throws IOException {
+            if (!buffer.hasRemaining()) {
+                fill();
+            }
+            return buffer.get();
+        }
+
+        long readVarLong() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                byte b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint in index segment");
+        }
+
+        String readString() throws IOException {
+            byte[] bytes = new byte[Math.toIntExact(readVarLong())];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = readByte();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private void fill() throws IOException {
+            if (position >= end) {
+                throw new EOFException();
+            }
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), end - position));
+            readFully(channel, buffer, position);
+            position += buffer.limit();
+            buffer.flip();
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        private CountingOutputStream(OutputStream out) {
+            super(new BufferedOutputStream(out, 64 * 1024));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long count() {
+            return count;
+        }
+    }
+}
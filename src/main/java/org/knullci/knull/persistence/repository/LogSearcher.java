@@ -0,0 +1,135 @@
+package org.knullci.knull.persistence.repository;
+
+import org.knullci.knull.domain.model.LogMatch;
+import org.knullci.knull.domain.model.LogSearchResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Line-by-line search of a build log. The log is read a chunk at a time,
+ * plain logs through read-only mappings and archived ones a frame at a time,
+ * so memory use depends on the chunk size rather than the log size. The
+ * scan stops as soon as the match limit is reached, or once the time limit
+ * passed, including in the middle of a match that backtracks.
+ */
+class LogSearcher {
+
+    private static final int CHUNK_BYTES = 16 * 1024 * 1024;
+
+    private final Pattern pattern;
+    private final int contextLines;
+    private final int maxMatches;
+    private final long deadlineNanos;
+    private final Deque<String> before = new ArrayDeque<>();
+    private final List<LogMatch> matches = new ArrayList<>();
+    private final List<LogMatch> awaitingContext = new ArrayList<>();
+    private long lineNumber;
+
+    LogSearcher(Pattern pattern, int contextLines, int maxMatches, long timeoutMs) {
+        this.pattern = pattern;
+        this.contextLines = contextLines;
+        this.maxMatches = maxMatches;
+        this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+    }
+
+    /**
+     * Search a log up to the length it had when it was opened
+     */
+    LogSearchResult search(LogContent log) throws IOException {
+        long logLength = log.length();
+        try {
+            scan(log, logLength);
+        } catch (DeadlineCharSequence.DeadlineExceededException e) {
+            return new LogSearchResult(matches, matches.size() >= maxMatches, logLength, true);
+        }
+        return new LogSearchResult(matches, matches.size() >= maxMatches, logLength, false);
+    }
+
+    private void scan(LogContent log, long logLength) throws IOException {
+        // Bytes of a line that started in an earlier chunk
+        ByteArrayOutputStream partial = new ByteArrayOutputStream();
+        long position = 0;
+        while (position < logLength && !isDone()) {
+            ByteBuffer chunk = log.chunk(position, CHUNK_BYTES);
+            int size = chunk.remaining();
+            if (size == 0) {
+                break;
+            }
+            int lineStart = 0;
+            for (int i = 0; i < size && !isDone(); i++) {
+                if (chunk.get(i) == '\n') {
+                    accept(decode(partial, chunk, lineStart, i));
+                    lineStart = i + 1;
+                }
+            }
+            if (!isDone() && lineStart < size) {
+                byte[] rest = new byte[size - lineStart];
+                chunk.get(lineStart, rest);
+                partial.writeBytes(rest);
+            }
+            position += size;
+        }
+        if (!isDone() && partial.size() > 0) {
+            // Last line without a newline, e.g. output of a running step
+            accept(partial.toString(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void accept(String line) {
+        DeadlineCharSequence.checkDeadline(deadlineNanos);
+        for (int i = awaitingContext.size() - 1; i >= 0; i--) {
+            List<String> after = awaitingContext.get(i).getAfter();
+            after.add(line);
+            if (after.size() >= contextLines) {
+                awaitingContext.remove(i);
+            }
+        }
+
+        if (matches.size() < maxMatches && pattern.matcher(new DeadlineCharSequence(line, deadlineNanos)).find()) {
+            LogMatch match = new LogMatch(lineNumber, line, new ArrayList<>(before), new ArrayList<>());
+            matches.add(match);
+            if (contextLines > 0) {
+                awaitingContext.add(match);
+            }
+        }
+
+        if (contextLines > 0) {
+            if (before.size() == contextLines) {
+                before.removeFirst();
+            }
+            before.addLast(line);
+        }
+        lineNumber++;
+    }
+
+    /**
+     * The match limit is reached and every match has its trailing context
+     */
+    private boolean isDone() {
+        return matches.size() >= maxMatches && awaitingContext.isEmpty();
+    }
+
+    private static String decode(ByteArrayOutputStream partial, ByteBuffer chunk, int from, int to) {
+        byte[] bytes = new byte[to - from];
+        chunk.get(from, bytes);
+        if (partial.size() > 0) {
+            partial.writeBytes(bytes);
+            bytes = partial.toByteArray();
+            partial.reset();
+        }
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+}
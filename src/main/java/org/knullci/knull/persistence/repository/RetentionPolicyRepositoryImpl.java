@@ -0,0 +1,61 @@
+package org.knullci.knull.persistence.repository;
+
+import org.knullci.knull.domain.model.RetentionPolicy;
+import org.knullci.knull.domain.repository.RetentionPolicyRepository;
+import org.knullci.knull.persistence.mapper.RetentionPolicyMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Per-job retention overrides, stored one document per job under the job id.
+ */
+@Repository
+public class RetentionPolicyRepositoryImpl implements RetentionPolicyRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(RetentionPolicyRepositoryImpl.class);
+
+    private final KnullRepository<org.knullci.knull.persistence.entity.RetentionPolicy> knullRepository;
+    private static final String RETENTION_POLICY_STORAGE_LOCATION = "storage/retention-policies";
+
+    public RetentionPolicyRepositoryImpl(KnullRepositoryFactory repositoryFactory) {
+        this.knullRepository = repositoryFactory.create(
+                RETENTION_POLICY_STORAGE_LOCATION,
+                org.knullci.knull.persistence.entity.RetentionPolicy.class);
+    }
+
+    @Override
+    public List<RetentionPolicy> findAll() {
+        try (var policies = this.knullRepository.stream()) {
+            return policies.map(RetentionPolicyMapper::fromEntity)
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Override
+    public Optional<RetentionPolicy> findByJobId(Long jobId) {
+        return Optional.ofNullable(this.knullRepository.getByFileName(jobId.toString() + ".json"))
+                .map(RetentionPolicyMapper::fromEntity);
+    }
+
+    @Override
+    public RetentionPolicy save(RetentionPolicy policy) {
+        var _policy = RetentionPolicyMapper.toEntity(policy);
+        this.knullRepository.save(_policy.getJobId().toString(), _policy);
+        logger.info("Saved retention policy for job id: {}", _policy.getJobId());
+        return RetentionPolicyMapper.fromEntity(_policy);
+    }
+
+    @Override
+    public void deleteByJobId(Long jobId) {
+        if (this.knullRepository.getByFileName(jobId.toString() + ".json") == null) {
+            return;
+        }
+        this.knullRepository.deleteByFileName(jobId.toString());
+        logger.info("Deleted retention policy for job id: {}", jobId);
+    }
+}
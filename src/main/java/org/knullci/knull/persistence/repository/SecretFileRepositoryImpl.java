@@ -16,10 +16,10 @@ public class SecretFileRepositoryImpl implements SecretFileRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(SecretFileRepositoryImpl.class);
 
-    private final JsonKnullRepository<org.knullci.knull.persistence.entity.SecretFile> knullRepository;
+    private final KnullRepository<org.knullci.knull.persistence.entity.SecretFile> knullRepository;
 
-    public SecretFileRepositoryImpl() {
-        this.knullRepository = new JsonKnullRepository<>(
+    public SecretFileRepositoryImpl(KnullRepositoryFactory repositoryFactory) {
+        this.knullRepository = repositoryFactory.create(
                 "storage/secret-files",
                 org.knullci.knull.persistence.entity.SecretFile.class);
     }
@@ -48,17 +48,21 @@ public class SecretFileRepositoryImpl implements SecretFileRepository {
     @Override
     public Optional<SecretFile> findByName(String name) {
         logger.info("Finding secret file by name: {}", name);
-        return findAll().stream()
-                .filter(sf -> sf.getName().equals(name))
-                .findFirst();
+        // Compare on the stored entity so that only the match is mapped
+        try (var secretFiles = knullRepository.stream()) {
+            return secretFiles.filter(sf -> name.equals(sf.getName()))
+                    .findFirst()
+                    .map(SecretFileMapper::fromEntity);
+        }
     }
 
     @Override
     public List<SecretFile> findAll() {
         logger.info("Fetching all secret files");
-        return knullRepository.getAll().stream()
-                .map(SecretFileMapper::fromEntity)
-                .collect(Collectors.toList());
+        try (var secretFiles = knullRepository.stream()) {
+            return secretFiles.map(SecretFileMapper::fromEntity)
+                    .collect(Collectors.toList());
+        }
     }
 
     @Override
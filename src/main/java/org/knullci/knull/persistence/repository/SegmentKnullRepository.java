@@ -0,0 +1,611 @@
+package org.knullci.knull.persistence.repository;
+
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * KnullRepository backed by append-only segment files instead of one JSON
+ * file per entity.
+ * <p>
+ * Every save or delete appends a record to the active segment. A record is
+ * {@code [payload length][CRC32 of payload][payload]}, where the payload is
+ * the operation, the key and the JSON value. An in-memory index maps each key
+ * to the location of its latest record, so reads are a single positional read
+ * and listings never touch the directory. On startup the
+ * segments are replayed in order; a torn record at the end of the last segment
+ * is truncated. Compaction rewrites the live records into fresh segments once
+ * more than half of the stored bytes are superseded.
+ * <p>
+ * A save or delete returns once its record is synced. Without a group commit
+ * interval every record is synced on its own; with one, writers wait and a
+ * committer thread syncs the active segment once per interval for all of
+ * them. Segments are synced when they are sealed, and compaction syncs the
+ * new segments and the directory before it deletes any old segment.
+ */
+public class SegmentKnullRepository<T> implements KnullRepository<T>, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentKnullRepository.class);
+
+    public static final long DEFAULT_MAX_SEGMENT_BYTES = 64L * 1024 * 1024;
+
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String LOCK_FILE = "segments.lock";
+    private static final String SEQUENCE_FILE = "id.sequence";
+    private static final int HEADER_BYTES = 8;
+    private static final byte OP_PUT = 1;
+    private static final byte OP_DELETE = 2;
+    private static final double COMPACTION_GARBAGE_RATIO = 0.5;
+    private static final long COMPACTION_MIN_GARBAGE_BYTES = 1024 * 1024;
+
+    private final Path directory;
+    private final Class<T> type;
+    private final ObjectMapper mapper;
+    private final long maxSegmentBytes;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, RecordLocation> index = new HashMap<>();
+    private final NavigableMap<Long, FileChannel> segments = new TreeMap<>();
+    private final FileChannel lockChannel;
+    private final FileLock fileLock;
+    private final ScheduledExecutorService compactor;
+    private final ScheduledExecutorService committer;
+    private final LinkedBlockingQueue<CompletableFuture<Void>> pendingSyncs = new LinkedBlockingQueue<>();
+    private final SequenceAllocator idSequence;
+
+    private long activeSegmentId;
+    private long totalBytes;
+    private long liveBytes;
+    private long maxNumericKey;
+
+    public SegmentKnullRepository(String directory, Class<T> type) {
+        this(directory, type, DEFAULT_MAX_SEGMENT_BYTES, 0);
+    }
+
+    public SegmentKnullRepository(String directory, Class<T> type, long maxSegmentBytes, long compactionIntervalMs) {
+        this(directory, type, maxSegmentBytes, compactionIntervalMs, 0);
+    }
+
+    /**
+     * @param maxSegmentBytes       size after which a new segment is started
+     * @param compactionIntervalMs  how often to check whether compaction is due,
+     *                              or 0 to compact only when {@link #compact()} is called
+     * @param groupCommitIntervalMs interval at which appended records are synced
+     *                              together, or 0 to sync every record on its own
+     */
+    @SneakyThrows
+    public SegmentKnullRepository(String directory, Class<T> type, long maxSegmentBytes, long compactionIntervalMs,
+            long groupCommitIntervalMs) {
+        this.directory = Paths.get(directory);
+        this.type = type;
+        this.mapper = new ObjectMapper();
+        this.maxSegmentBytes = maxSegmentBytes;
+
+        Files.createDirectories(this.directory);
+        this.lockChannel = FileChannel.open(this.directory.resolve(LOCK_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        this.fileLock = lockChannel.tryLock();
+        if (fileLock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Segment store is in use by another process: " + directory);
+        }
+
+        recover();
+        this.idSequence = new SequenceAllocator(this.directory.resolve(SEQUENCE_FILE), maxNumericKey,
+                SequenceAllocator.DEFAULT_BLOCK_SIZE);
+
+        if (compactionIntervalMs > 0) {
+            this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "segment-compactor-" + this.directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.compactor.scheduleWithFixedDelay(this::compactIfNeeded,
+                    compactionIntervalMs, compactionIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.compactor = null;
+        }
+
+        if (groupCommitIntervalMs > 0) {
+            this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "segment-group-commit-" + this.directory.getFileName());
+                thread.setDaemon(true);
+                return thread;
+            });
+            this.committer.scheduleWithFixedDelay(this::syncPending,
+                    groupCommitIntervalMs, groupCommitIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            this.committer = null;
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public void save(String fileName, T object) {
+        saveRaw(fileName, mapper.writeValueAsBytes(object));
+    }
+
+    /**
+     * Store an already serialized JSON value. Used by the offline migration,
+     * which copies documents without knowing their type.
+     */
+    @SneakyThrows
+    void saveRaw(String key, byte[] json) {
+        CompletableFuture<Void> synced;
+        lock.writeLock().lock();
+        try {
+            RecordLocation location = append(encode(OP_PUT, key, json));
+            replaceLocation(key, location);
+            trackNumericKey(key);
+            synced = syncAppended();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitSync(synced);
+    }
+
+    @Override
+    @SneakyThrows
+    public T getByFileName(String fileName) {
+        lock.readLock().lock();
+        try {
+            RecordLocation location = index.get(toKey(fileName));
+            if (location == null) {
+                return null;
+            }
+            return mapper.readValue(readValue(location), type);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Takes a snapshot of the keys and reads each record only when the
+     * stream reaches it, looking it up again so that records moved by a
+     * compaction in the meantime are still found.
+     */
+    @Override
+    public Stream<T> stream() {
+        List<String> keys;
+        lock.readLock().lock();
+        try {
+            keys = new ArrayList<>(index.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+        return keys.stream()
+                .map(this::readOrSkip)
+                .filter(Objects::nonNull);
+    }
+
+    @Override
+    public long count() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public void deleteByFileName(String fileName) {
+        String key = toKey(fileName);
+        CompletableFuture<Void> synced;
+        lock.writeLock().lock();
+        try {
+            if (!index.containsKey(key)) {
+                throw new RuntimeException("Failed to delete file: " + fileName);
+            }
+            // The tombstone is never live: compaction drops it together with the old record
+            append(encode(OP_DELETE, key, new byte[0]));
+            replaceLocation(key, null);
+            synced = syncAppended();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        awaitSync(synced);
+    }
+
+    @Override
+    public Long getNextFileId() {
+        return idSequence.next();
+    }
+
+    private T readOrSkip(String key) {
+        lock.readLock().lock();
+        try {
+            RecordLocation location = index.get(key);
+            // Deleted since the keys were taken
+            return location != null ? mapper.readValue(readValue(location), type) : null;
+        } catch (Exception e) {
+            logger.error("Skipping unreadable record {} in {}", key, directory, e);
+            return null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rewrite all live records into new segments and delete the old ones.
+     */
+    @SneakyThrows
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            List<Long> oldSegmentIds = new ArrayList<>(segments.keySet());
+            long before = totalBytes;
+
+            openSegment(activeSegmentId + 1);
+            totalBytes = 0;
+            liveBytes = 0;
+            Map<String, RecordLocation> compacted = new HashMap<>();
+            for (Map.Entry<String, RecordLocation> entry : index.entrySet()) {
+                RecordLocation location = append(readRecord(entry.getValue()));
+                compacted.put(entry.getKey(), location);
+                liveBytes += location.recordLength();
+            }
+            index.clear();
+            index.putAll(compacted);
+
+            // The compacted records must be on disk before the only other copy goes away
+            segments.get(activeSegmentId).force(true);
+            syncDirectory(directory);
+
+            // Oldest first, each deletion synced: dropping a put before its later tombstone
+            // can never resurrect a key
+            for (Long segmentId : oldSegmentIds) {
+                segments.remove(segmentId).close();
+                Files.deleteIfExists(segmentPath(segmentId));
+                syncDirectory(directory);
+            }
+            logger.info("Compacted segment store {} from {} to {} bytes", directory, before, totalBytes);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Compact if enough of the stored bytes belong to superseded or deleted records.
+     */
+    public void compactIfNeeded() {
+        try {
+            long garbage;
+            lock.readLock().lock();
+            try {
+                garbage = totalBytes - liveBytes;
+            } finally {
+                lock.readLock().unlock();
+            }
+            if (garbage >= COMPACTION_MIN_GARBAGE_BYTES && garbage > totalBytes * COMPACTION_GARBAGE_RATIO) {
+                compact();
+            }
+        } catch (Exception e) {
+            logger.error("Failed to compact segment store {}", directory, e);
+        }
+    }
+
+    public int segmentCount() {
+        lock.readLock().lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sync the active segment and release every writer waiting for its record.
+     */
+    public void syncPending() {
+        List<CompletableFuture<Void>> batch = new ArrayList<>();
+        // Writers enqueue under the write lock, so every drained record is in the active
+        // segment or in one that was synced when it was sealed
+        lock.readLock().lock();
+        try {
+            pendingSyncs.drainTo(batch);
+            if (batch.isEmpty()) {
+                return;
+            }
+            segments.get(activeSegmentId).force(true);
+            batch.forEach(synced -> synced.complete(null));
+        } catch (Exception e) {
+            logger.error("Failed to sync {} pending records in {}", batch.size(), directory, e);
+            batch.forEach(synced -> synced.completeExceptionally(e));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    @SneakyThrows
+    public void close() {
+        if (compactor != null) {
+            compactor.shutdownNow();
+        }
+        if (committer != null) {
+            committer.shutdown();
+            try {
+                committer.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            syncPending();
+        }
+        lock.writeLock().lock();
+        try {
+            if (!lockChannel.isOpen()) {
+                return;
+            }
+            for (FileChannel channel : segments.values()) {
+                channel.force(true);
+                channel.close();
+            }
+            segments.clear();
+            fileLock.release();
+            lockChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        List<Long> segmentIds = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                segmentIds.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(),
+                        name.length() - SEGMENT_SUFFIX.length())));
+            }
+        }
+        segmentIds.sort(null);
+
+        for (int i = 0; i < segmentIds.size(); i++) {
+            long segmentId = segmentIds.get(i);
+            FileChannel channel = FileChannel.open(segmentPath(segmentId),
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            segments.put(segmentId, channel);
+            replay(segmentId, channel, i == segmentIds.size() - 1);
+        }
+
+        if (segments.isEmpty()) {
+            openSegment(1);
+        } else {
+            activeSegmentId = segments.lastKey();
+        }
+        logger.info("Opened segment store {} with {} records in {} segments", directory, index.size(), segments.size());
+    }
+
+    private void replay(long segmentId, FileChannel channel, boolean isLastSegment) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (position < size) {
+            header.clear();
+            if (readFully(channel, header, position) < HEADER_BYTES) {
+                break;
+            }
+            header.flip();
+            int payloadLength = header.getInt();
+            int checksum = header.getInt();
+            if (payloadLength <= 0 || position + HEADER_BYTES + payloadLength > size) {
+                break;
+            }
+            ByteBuffer payload = ByteBuffer.allocate(payloadLength);
+            readFully(channel, payload, position + HEADER_BYTES);
+            if (crc(payload.array()) != checksum) {
+                break;
+            }
+
+            payload.flip();
+            byte op = payload.get();
+            byte[] keyBytes = new byte[payload.getShort()];
+            payload.get(keyBytes);
+            String key = new String(keyBytes, StandardCharsets.UTF_8);
+            RecordLocation location = new RecordLocation(segmentId, position, payloadLength,
+                    1 + 2 + keyBytes.length);
+
+            totalBytes += location.recordLength();
+            trackNumericKey(key);
+            replaceLocation(key, op == OP_PUT ? location : null);
+            position += location.recordLength();
+        }
+
+        if (position < size) {
+            if (isLastSegment) {
+                logger.warn("Truncating torn record at offset {} of segment {} in {}", position, segmentId, directory);
+                channel.truncate(position);
+            } else {
+                logger.error("Corrupt record at offset {} of sealed segment {} in {}; ignoring the rest of the segment",
+                        position, segmentId, directory);
+            }
+        }
+    }
+
+    private RecordLocation append(ByteBuffer record) throws IOException {
+        FileChannel active = segments.get(activeSegmentId);
+        if (active.size() > 0 && active.size() + record.remaining() > maxSegmentBytes) {
+            // Group commit only syncs the active segment
+            active.force(true);
+            openSegment(activeSegmentId + 1);
+            active = segments.get(activeSegmentId);
+        }
+        long position = active.size();
+        int recordLength = record.remaining();
+        record.mark();
+        int payloadLength = record.getInt();
+        record.getInt();
+        record.get();
+        int keyLength = record.getShort();
+        record.reset();
+        while (record.hasRemaining()) {
+            active.write(record, position + (recordLength - record.remaining()));
+        }
+        totalBytes += recordLength;
+        return new RecordLocation(activeSegmentId, position, payloadLength, 1 + 2 + keyLength);
+    }
+
+    private void openSegment(long segmentId) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(segmentId),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        segments.put(segmentId, channel);
+        activeSegmentId = segmentId;
+        syncDirectory(directory);
+    }
+
+    /**
+     * Called under the write lock after an append. Syncs the record right away,
+     * or queues the caller for the next group commit.
+     */
+    private CompletableFuture<Void> syncAppended() throws IOException {
+        if (committer == null) {
+            segments.get(activeSegmentId).force(true);
+            return null;
+        }
+        CompletableFuture<Void> synced = new CompletableFuture<>();
+        pendingSyncs.add(synced);
+        return synced;
+    }
+
+    private void awaitSync(CompletableFuture<Void> synced) throws Throwable {
+        if (synced == null) {
+            return;
+        }
+        if (committer.isShutdown()) {
+            syncPending();
+        }
+        try {
+            synced.get();
+        } catch (ExecutionException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Make a new or deleted segment file durable. Not every platform can open
+     * a directory for syncing; there it is left to the file system.
+     */
+    private static void syncDirectory(Path dir) {
+        try (FileChannel channel = FileChannel.open(dir, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            logger.debug("Directory sync not supported for {}", dir);
+        }
+    }
+
+    private void replaceLocation(String key, RecordLocation location) {
+        RecordLocation previous = location != null ? index.put(key, location) : index.remove(key);
+        if (previous != null) {
+            liveBytes -= previous.recordLength();
+        }
+        if (location != null) {
+            liveBytes += location.recordLength();
+        }
+    }
+
+    private byte[] readValue(RecordLocation location) throws IOException {
+        ByteBuffer value = ByteBuffer.allocate(location.payloadLength() - location.valueOffset());
+        readFully(segments.get(location.segmentId()), value,
+                location.position() + HEADER_BYTES + location.valueOffset());
+        return value.array();
+    }
+
+    private ByteBuffer readRecord(RecordLocation location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.recordLength());
+        readFully(segments.get(location.segmentId()), record, location.position());
+        record.flip();
+        return record;
+    }
+
+    private static ByteBuffer encode(byte op, String key, byte[] value) {
+        byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+        if (keyBytes.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Key too long: " + key);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(1 + 2 + keyBytes.length + value.length);
+        payload.put(op).putShort((short) keyBytes.length).put(keyBytes).put(value);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.capacity());
+        record.putInt(payload.capacity()).putInt(crc(payload.array())).put(payload.array());
+        record.flip();
+        return record;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int total = 0;
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + total);
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    private static int crc(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Highest numeric key ever written, used to seed the id sequence of
+     * stores written before it existed
+     */
+    private void trackNumericKey(String key) {
+        try {
+            maxNumericKey = Math.max(maxNumericKey, Long.parseLong(key));
+        } catch (NumberFormatException ignored) {
+            // Only numeric keys take part in id allocation
+        }
+    }
+
+    private Path segmentPath(long segmentId) {
+        return directory.resolve(String.format("%s%08d%s", SEGMENT_PREFIX, segmentId, SEGMENT_SUFFIX));
+    }
+
+    /**
+     * Callers pass the JSON file name for reads and the bare key for writes,
+     * as with the file based repository.
+     */
+    private static String toKey(String fileName) {
+        return fileName.endsWith(".json") ? fileName.substring(0, fileName.length() - ".json".length()) : fileName;
+    }
+
+    private record RecordLocation(long segmentId, long position, int payloadLength, int valueOffset) {
+
+        int recordLength() {
+            return HEADER_BYTES + payloadLength;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.knullci.knull.persistence.repository;
+
+import lombok.SneakyThrows;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Offline migration of JSON storage directories into segment stores.
+ * <p>
+ * Run it while Knull is stopped, then set {@code knull.storage.backend=segment}
+ * (or the per-directory property). Every {@code <id>.json} file is copied into
+ * segments in the same directory and then moved to {@code json-backup}, so a
+ * second run only picks up files it has not migrated yet. To roll back, move
+ * the files out of {@code json-backup} and switch the backend back to json.
+ * <pre>
+ * java -cp knull.jar -Dloader.main=org.knullci.knull.persistence.repository.SegmentStoreMigration \
+ *     org.springframework.boot.loader.launch.PropertiesLauncher storage/builds storage/jobs
+ * </pre>
+ */
+public class SegmentStoreMigration {
+
+    private static final Logger logger = LoggerFactory.getLogger(SegmentStoreMigration.class);
+
+    static final String BACKUP_DIRECTORY = "json-backup";
+
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            logger.error("Usage: SegmentStoreMigration <storage directory>...");
+            System.exit(1);
+        }
+        for (String directory : args) {
+            migrate(directory);
+        }
+    }
+
+    /**
+     * Copy the JSON files of a directory into its segment store
+     *
+     * @return number of migrated files
+     */
+    @SneakyThrows
+    public static int migrate(String directory) {
+        Path source = Paths.get(directory);
+        Path backup = source.resolve(BACKUP_DIRECTORY);
+        Files.createDirectories(backup);
+
+        int migrated = 0;
+        // Values are copied as raw JSON, so the entity type is irrelevant here
+        try (SegmentKnullRepository<Object> store = new SegmentKnullRepository<>(directory, Object.class);
+                DirectoryStream<Path> files = Files.newDirectoryStream(source, "*.json")) {
+            for (Path file : files) {
+                if (!Files.isRegularFile(file)) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                store.saveRaw(name.substring(0, name.length() - ".json".length()), Files.readAllBytes(file));
+                migrated++;
+            }
+            // Only move the originals once every record is durable in the segments
+            store.close();
+            moveToBackup(source, backup);
+        }
+
+        logger.info("Migrated {} JSON files in {} to segment storage", migrated, directory);
+        return migrated;
+    }
+
+    private static void moveToBackup(Path source, Path backup) throws IOException {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(source, "*.json")) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)) {
+                    Files.move(file, backup.resolve(file.getFileName()), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+        }
+    }
+}
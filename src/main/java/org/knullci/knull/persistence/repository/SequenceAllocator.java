@@ -0,0 +1,88 @@
+package org.knullci.knull.persistence.repository;
+
+import lombok.SneakyThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Monotonic id sequence of a repository.
+ * <p>
+ * Ids come from an AtomicLong seeded once at startup. Before an id is handed
+ * out, the block it belongs to is reserved by persisting a high-water mark,
+ * so after a crash the sequence continues above every id that may have been
+ * used. Ids of a reserved but unused block are skipped, never reused. Only
+ * the allocation that crosses a block boundary touches the disk.
+ */
+public class SequenceAllocator {
+
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    private final Path highWaterMarkFile;
+    private final int blockSize;
+    private final AtomicLong lastId;
+    private volatile long reservedUpTo;
+
+    /**
+     * @param highWaterMarkFile file holding the highest reserved id
+     * @param existingMaxId     highest id already in use, for stores that predate the file
+     */
+    @SneakyThrows
+    public SequenceAllocator(Path highWaterMarkFile, long existingMaxId, int blockSize) {
+        this.highWaterMarkFile = highWaterMarkFile;
+        this.blockSize = blockSize;
+        long start = Math.max(existingMaxId, readHighWaterMark());
+        this.lastId = new AtomicLong(start);
+        this.reservedUpTo = start;
+    }
+
+    public long next() {
+        long id = lastId.incrementAndGet();
+        if (id > reservedUpTo) {
+            reserveThrough(id);
+        }
+        return id;
+    }
+
+    private synchronized void reserveThrough(long id) {
+        while (id > reservedUpTo) {
+            long limit = reservedUpTo + blockSize;
+            writeHighWaterMark(limit);
+            reservedUpTo = limit;
+        }
+    }
+
+    private long readHighWaterMark() throws IOException {
+        if (!Files.exists(highWaterMarkFile)) {
+            return 0;
+        }
+        String content = Files.readString(highWaterMarkFile, StandardCharsets.UTF_8).trim();
+        return content.isEmpty() ? 0 : Long.parseLong(content);
+    }
+
+    @SneakyThrows
+    private void writeHighWaterMark(long value) {
+        Path temp = highWaterMarkFile.resolveSibling(highWaterMarkFile.getFileName() + ".tmp");
+        ByteBuffer buffer = ByteBuffer.wrap(Long.toString(value).getBytes(StandardCharsets.UTF_8));
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(true);
+        }
+        try {
+            Files.move(temp, highWaterMarkFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, highWaterMarkFile, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -18,8 +18,8 @@ public class SettingsRepositoryImpl implements SettingsRepository {
     private static final String SETTINGS_STORAGE_LOCATION = "storage/settings";
     private static final String SETTINGS_FILE_NAME = "settings";
 
-    public SettingsRepositoryImpl() {
-        this.knullRepository = new JsonKnullRepository<>(
+    public SettingsRepositoryImpl(KnullRepositoryFactory repositoryFactory) {
+        this.knullRepository = repositoryFactory.create(
                 SETTINGS_STORAGE_LOCATION,
                 org.knullci.knull.persistence.entity.Settings.class);
     }
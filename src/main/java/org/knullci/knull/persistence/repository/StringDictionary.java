@@ -0,0 +1,53 @@
+package org.knullci.knull.persistence.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Dictionary encoding for low-cardinality string columns such as branch or
+ * repository names. Each distinct value is stored once and referenced by an
+ * int code. Not thread-safe; callers guard access.
+ */
+public class StringDictionary {
+
+    public static final int NULL_CODE = -1;
+    public static final int UNKNOWN_CODE = -2;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final List<String> values = new ArrayList<>();
+
+    /**
+     * Get the code of a value, adding it to the dictionary if it is new
+     */
+    public int encode(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        return codes.computeIfAbsent(value, v -> {
+            values.add(v);
+            return values.size() - 1;
+        });
+    }
+
+    /**
+     * Get the code of a value without adding it
+     *
+     * @return the code, or UNKNOWN_CODE if the value is not in the dictionary
+     */
+    public int lookup(String value) {
+        if (value == null) {
+            return NULL_CODE;
+        }
+        return codes.getOrDefault(value, UNKNOWN_CODE);
+    }
+
+    public String decode(int code) {
+        return code == NULL_CODE ? null : values.get(code);
+    }
+
+    public int size() {
+        return values.size();
+    }
+}
@@ -0,0 +1,76 @@
+package org.knullci.knull.persistence.repository;
+
+import org.knullci.knull.domain.model.User;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory copy of all users with username and email indexes, so that the
+ * per-request lookups done by login and the setup check do not read the user
+ * files. Domain users are immutable, so cached instances are handed out as is.
+ * Writers must go through {@link #put} and {@link #remove} after the user file
+ * has been written or deleted.
+ */
+public class UserDirectory {
+
+    private final Map<Long, User> usersById = new ConcurrentHashMap<>();
+    private final Map<String, Long> idByUsername = new ConcurrentHashMap<>();
+    private final Map<String, Long> idByEmail = new ConcurrentHashMap<>();
+
+    /**
+     * Add a user, or replace it and its index entries if already present
+     */
+    public synchronized void put(User user) {
+        remove(user.getId());
+        usersById.put(user.getId(), user);
+        if (user.getUsername() != null) {
+            idByUsername.put(user.getUsername(), user.getId());
+        }
+        if (user.getEmail() != null) {
+            idByEmail.put(user.getEmail(), user.getId());
+        }
+    }
+
+    public synchronized void remove(Long id) {
+        User previous = usersById.remove(id);
+        if (previous == null) {
+            return;
+        }
+        if (previous.getUsername() != null) {
+            idByUsername.remove(previous.getUsername(), id);
+        }
+        if (previous.getEmail() != null) {
+            idByEmail.remove(previous.getEmail(), id);
+        }
+    }
+
+    public Optional<User> findById(Long id) {
+        return Optional.ofNullable(usersById.get(id));
+    }
+
+    public Optional<User> findByUsername(String username) {
+        return username == null ? Optional.empty() : Optional.ofNullable(idByUsername.get(username)).map(usersById::get);
+    }
+
+    public Optional<User> findByEmail(String email) {
+        return email == null ? Optional.empty() : Optional.ofNullable(idByEmail.get(email)).map(usersById::get);
+    }
+
+    /**
+     * All users ordered by id
+     */
+    public List<User> findAll() {
+        List<User> users = new ArrayList<>(usersById.values());
+        users.sort(Comparator.comparing(User::getId));
+        return users;
+    }
+
+    public int size() {
+        return usersById.size();
+    }
+}
@@ -9,9 +9,7 @@ import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.Objects;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 @Repository
 public class UserRepositoryImpl implements UserRepository {
@@ -20,55 +18,46 @@ public class UserRepositoryImpl implements UserRepository {
 
     private final KnullRepository<org.knullci.knull.persistence.entity.User> knullRepository;
 
+    private final UserDirectory directory = new UserDirectory();
+
     private static final String USER_STORAGE_LOCATION = "storage/users";
 
-    public UserRepositoryImpl() {
-        this.knullRepository = new JsonKnullRepository<>(
+    public UserRepositoryImpl(KnullRepositoryFactory repositoryFactory) {
+        this.knullRepository = repositoryFactory.create(
                 USER_STORAGE_LOCATION,
                 org.knullci.knull.persistence.entity.User.class);
+        loadDirectory();
+    }
+
+    private void loadDirectory() {
+        try (var users = knullRepository.load()) {
+            users.map(UserMapper::fromEntity).forEach(directory::put);
+        }
+        logger.info("Loaded {} users into the user directory", directory.size());
     }
 
     @Override
     public Optional<User> findByUsername(String username) {
-        logger.info("Finding user by username: {}", username);
-
-        return knullRepository.getAll()
-                .stream()
-                .filter(user -> Objects.equals(user.getUsername(), username))
-                .map(UserMapper::fromEntity)
-                .findFirst();
+        logger.debug("Finding user by username: {}", username);
+        return directory.findByUsername(username);
     }
 
     @Override
     public Optional<User> findById(Long id) {
-        logger.info("Finding user by ID: {}", id);
-
-        return knullRepository.getAll()
-                .stream()
-                .filter(user -> Objects.equals(user.getId(), id))
-                .map(UserMapper::fromEntity)
-                .findFirst();
+        logger.debug("Finding user by ID: {}", id);
+        return directory.findById(id);
     }
 
     @Override
     public Optional<User> findByEmail(String email) {
-        logger.info("Finding user by email: {}", email);
-
-        return knullRepository.getAll()
-                .stream()
-                .filter(user -> Objects.equals(user.getEmail(), email))
-                .map(UserMapper::fromEntity)
-                .findFirst();
+        logger.debug("Finding user by email: {}", email);
+        return directory.findByEmail(email);
     }
 
     @Override
     public List<User> findAll() {
         logger.info("Finding all users");
-
-        return knullRepository.getAll()
-                .stream()
-                .map(UserMapper::fromEntity)
-                .collect(Collectors.toList());
+        return directory.findAll();
     }
 
     @Override
@@ -87,38 +76,38 @@ public class UserRepositoryImpl implements UserRepository {
         knullRepository.save(entity.getId().toString(), entity);
         logger.info("User saved with ID: {}", entity.getId());
 
-        return UserMapper.fromEntity(entity);
+        User saved = UserMapper.fromEntity(entity);
+        directory.put(saved);
+        return saved;
     }
 
     @Override
     public void deleteById(Long id) {
         logger.info("Deleting user with ID: {}", id);
         knullRepository.deleteByFileName(id.toString());
+        directory.remove(id);
     }
 
     @Override
     public long count() {
-        return knullRepository.getAll().size();
+        return directory.size();
     }
 
     @Override
     public boolean existsByUsername(String username) {
-        return knullRepository.getAll()
-                .stream()
-                .anyMatch(user -> Objects.equals(user.getUsername(), username));
+        return directory.findByUsername(username).isPresent();
     }
 
     @Override
     public void updateLastLoginTime(Long userId) {
         logger.info("Updating last login time for user ID: {}", userId);
 
-        knullRepository.getAll()
-                .stream()
-                .filter(user -> Objects.equals(user.getId(), userId))
-                .findFirst()
+        directory.findById(userId)
+                .map(UserMapper::toEntity)
                 .ifPresent(entity -> {
                     entity.setLastLoginAt(LocalDateTime.now());
                     knullRepository.save(entity.getId().toString(), entity);
+                    directory.put(UserMapper.fromEntity(entity));
                 });
     }
 }
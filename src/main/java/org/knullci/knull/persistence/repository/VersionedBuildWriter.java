@@ -0,0 +1,63 @@
+package org.knullci.knull.persistence.repository;
+
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.repository.BuildRepository;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Version checked writes of builds, serialized by a lock per build id.
+ * Shared by the build repository and its write-behind decorator, so both
+ * take the same locks. Reads and writes go through the repository passed in,
+ * which lets the decorator serve its pending updates.
+ */
+@Component
+public class VersionedBuildWriter {
+
+    private final StripedLock buildLocks = new StripedLock(64);
+
+    public ReentrantLock lockFor(Long id) {
+        return buildLocks.get(id);
+    }
+
+    public boolean compareAndSet(BuildRepository repository, Build build) {
+        ReentrantLock lock = lockFor(build.getId());
+        lock.lock();
+        try {
+            var current = repository.findById(build.getId());
+            if (current.isEmpty() || versionOf(current.get()) != versionOf(build)) {
+                return false;
+            }
+            build.setVersion(versionOf(build) + 1);
+            repository.updateBuild(build);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public Optional<Build> modifyBuild(BuildRepository repository, Long id, Consumer<Build> modification) {
+        ReentrantLock lock = lockFor(id);
+        lock.lock();
+        try {
+            var current = repository.findById(id);
+            if (current.isEmpty()) {
+                return Optional.empty();
+            }
+            Build build = current.get();
+            modification.accept(build);
+            build.setVersion(versionOf(build) + 1);
+            repository.updateBuild(build);
+            return Optional.of(build);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static long versionOf(Build build) {
+        return build.getVersion() != null ? build.getVersion() : 0L;
+    }
+}
@@ -0,0 +1,282 @@
+package org.knullci.knull.persistence.repository;
+
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.domain.model.BuildSummary;
+import org.knullci.knull.domain.model.Page;
+import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.persistence.mapper.BuildMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Repository;
+
+import jakarta.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind decorator for the build repository.
+ * Updates of a running build are coalesced per build id and written by a
+ * single writer thread once per flush window, so a build that changes many
+ * times per second is written to disk at most once per window. Builds
+ * reaching a terminal state are written immediately. Reads are served from
+ * the pending updates first, so callers always see the latest state.
+ * <p>
+ * Once a build was written in a terminal state or deleted, its id is
+ * remembered, and running updates arriving late for it are dropped.
+ * <p>
+ * A flush interval of zero or less turns write-behind off: every update is
+ * written when it is made, and no writer thread is started.
+ */
+@Primary
+@Repository
+public class WriteBehindBuildRepository implements BuildRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuildRepository.class);
+
+    private static final Set<BuildStatus> TERMINAL_STATUSES = EnumSet.of(
+            BuildStatus.SUCCESS, BuildStatus.FAILURE, BuildStatus.CANCELLED);
+
+    /** Late updates arrive within moments of the final write, so only recent ids are kept */
+    private static final int MAX_CLOSED_BUILDS = 10_000;
+
+    private final BuildRepository delegate;
+    private final Map<Long, Build> pendingUpdates = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private final Set<Long> closedBuilds = Collections.newSetFromMap(new LinkedHashMap<Long, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Boolean> eldest) {
+            return size() > MAX_CLOSED_BUILDS;
+        }
+    });
+    private final VersionedBuildWriter versionedWriter;
+    private final ScheduledExecutorService writer; // null when writing through
+
+    public WriteBehindBuildRepository(@Qualifier("buildRepositoryImpl") BuildRepository delegate,
+            VersionedBuildWriter versionedWriter,
+            @Value("${knull.builds.write-behind.flush-interval-ms:500}") long flushIntervalMs) {
+        this.delegate = delegate;
+        this.versionedWriter = versionedWriter;
+        if (flushIntervalMs <= 0) {
+            logger.info("Build write-behind disabled, updates are written immediately");
+            this.writer = null;
+            return;
+        }
+        this.writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "build-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.writer.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Build saveBuild(Build build) {
+        return delegate.saveBuild(build);
+    }
+
+    @Override
+    public Optional<Build> findById(Long id) {
+        Build pending = pendingUpdates.get(id);
+        if (pending != null) {
+            return Optional.of(copyOf(pending));
+        }
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Build> findByJobId(Long jobId) {
+        return withPendingUpdates(delegate.findByJobId(jobId));
+    }
+
+    @Override
+    public List<Build> findAll() {
+        return withPendingUpdates(delegate.findAll());
+    }
+
+    @Override
+    public List<Build> findAllPaginated(int page, int size) {
+        return withPendingUpdates(delegate.findAllPaginated(page, size));
+    }
+
+    @Override
+    public long countAll() {
+        return delegate.countAll();
+    }
+
+    @Override
+    public long countByStatus(BuildStatus... statuses) {
+        // Status changes into and out of the running states are never deferred
+        return delegate.countByStatus(statuses);
+    }
+
+    @Override
+    public Page<BuildSummary> findBuilds(BuildQuery query) {
+        // Filtering uses the catalog; pending updates only refresh the returned rows
+        var page = delegate.findBuilds(query);
+        if (pendingUpdates.isEmpty()) {
+            return page;
+        }
+        var items = page.getItems().stream()
+                .map(summary -> {
+                    Build pending = pendingUpdates.get(summary.getId());
+                    return pending != null ? BuildMapper.toSummary(pending) : summary;
+                })
+                .collect(Collectors.toList());
+        return new Page<>(items, page.getNextCursor());
+    }
+
+    @Override
+    public Map<Long, List<Long>> findIdsByJob(BuildStatus... statuses) {
+        // Finishing a build is written through, so the catalog already has every finished status
+        return delegate.findIdsByJob(statuses);
+    }
+
+    @Override
+    public void updateBuild(Build build) {
+        // Snapshot now: the caller keeps mutating its instance while the writer serializes ours
+        Build snapshot = copyOf(build);
+
+        if (snapshot.getStatus() != null && TERMINAL_STATUSES.contains(snapshot.getStatus())) {
+            synchronized (writeLock) {
+                close(snapshot.getId());
+                delegate.updateBuild(snapshot);
+            }
+            return;
+        }
+
+        if (writer == null) {
+            synchronized (writeLock) {
+                // close() runs under the write lock, so the build cannot be closed before the write
+                if (isClosed(snapshot.getId())) {
+                    logger.debug("Dropping late update of finished or deleted build {}", snapshot.getId());
+                    return;
+                }
+                delegate.updateBuild(snapshot);
+            }
+            return;
+        }
+
+        // Checked and queued atomically with close(), without waiting for a write in progress
+        synchronized (closedBuilds) {
+            if (closedBuilds.contains(snapshot.getId())) {
+                logger.debug("Dropping late update of finished or deleted build {}", snapshot.getId());
+                return;
+            }
+            pendingUpdates.put(snapshot.getId(), snapshot);
+        }
+    }
+
+    @Override
+    public boolean compareAndSet(Build build) {
+        // Through this repository, so that the pending state is compared
+        return versionedWriter.compareAndSet(this, build);
+    }
+
+    @Override
+    public Optional<Build> modifyBuild(Long id, Consumer<Build> modification) {
+        return versionedWriter.modifyBuild(this, id, modification);
+    }
+
+    @Override
+    public long deleteBuild(Long id) {
+        ReentrantLock lock = versionedWriter.lockFor(id);
+        lock.lock();
+        try {
+            synchronized (writeLock) {
+                // A pending update written after the delete would bring the build back
+                close(id);
+                return delegate.deleteBuild(id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write every pending update to the underlying repository.
+     */
+    public void flush() {
+        for (Map.Entry<Long, Build> entry : pendingUpdates.entrySet()) {
+            try {
+                synchronized (writeLock) {
+                    // Skip if a terminal update already wrote a newer state
+                    if (pendingUpdates.get(entry.getKey()) != entry.getValue()) {
+                        continue;
+                    }
+                    delegate.updateBuild(entry.getValue());
+                    pendingUpdates.remove(entry.getKey(), entry.getValue());
+                }
+            } catch (Exception e) {
+                logger.error("Failed to flush pending update for build {}", entry.getKey(), e);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (writer == null) {
+            return;
+        }
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(5, TimeUnit.SECONDS)) {
+                writer.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            writer.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        logger.info("Flushed pending build updates on shutdown");
+    }
+
+    /**
+     * Drop the pending update of a build and refuse further running updates.
+     * Called under the write lock, so a flush in progress has finished.
+     */
+    private void close(Long id) {
+        synchronized (closedBuilds) {
+            closedBuilds.add(id);
+            pendingUpdates.remove(id);
+        }
+    }
+
+    private boolean isClosed(Long id) {
+        synchronized (closedBuilds) {
+            return closedBuilds.contains(id);
+        }
+    }
+
+    private List<Build> withPendingUpdates(List<Build> builds) {
+        if (pendingUpdates.isEmpty()) {
+            return builds;
+        }
+        return builds.stream()
+                .map(build -> {
+                    Build pending = pendingUpdates.get(build.getId());
+                    return pending != null ? copyOf(pending) : build;
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static Build copyOf(Build build) {
+        return BuildMapper.fromEntity(BuildMapper.toEntity(build));
+    }
+}
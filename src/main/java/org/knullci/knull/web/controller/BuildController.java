@@ -3,49 +3,85 @@ package org.knullci.knull.web.controller;
 import org.knullci.knull.application.command.CancelBuildCommand;
 import org.knullci.knull.application.dto.CancelBuildResult;
 import org.knullci.knull.application.interfaces.CancelBuildCommandHandler;
-import org.knullci.knull.application.interfaces.GetBuildsByJobIdQueryHandler;
-import org.knullci.knull.application.query.GetBuildsByJobIdQuery;
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.domain.model.LogDownload;
+import org.knullci.knull.domain.model.LogLines;
+import org.knullci.knull.domain.model.LogSearchHit;
+import org.knullci.knull.domain.model.LogSearchResult;
+import org.knullci.knull.domain.repository.BuildLogRepository;
 import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.domain.repository.LogIndexRepository;
+import org.knullci.knull.infrastructure.dto.BuildEvent;
+import org.knullci.knull.infrastructure.service.BuildEventBus;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
 import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 @Controller
 @RequestMapping("/builds")
 public class BuildController {
 
+    private static final String LOG_OFFSET_HEADER = "X-Log-Offset";
+    private static final int MAX_LOG_LINES = 5000;
+    private static final int MAX_LOG_READ_BYTES = 1024 * 1024;
+    private static final int MAX_SEARCH_MATCHES = 1000;
+    private static final int MAX_SEARCH_CONTEXT = 20;
+    private static final int MAX_SEARCH_PATTERN_LENGTH = 500;
+    private static final long SEARCH_TIMEOUT_MS = 5_000;
+    private static final int MAX_SEARCH_BUILDS = 200;
+
     private final BuildRepository buildRepository;
-    private final GetBuildsByJobIdQueryHandler getBuildsByJobIdQueryHandler;
+    private final BuildLogRepository buildLogRepository;
     private final CancelBuildCommandHandler cancelBuildCommandHandler;
+    private final BuildEventBus buildEventBus;
+    private final LogIndexRepository logIndexRepository;
 
     public BuildController(BuildRepository buildRepository,
-            GetBuildsByJobIdQueryHandler getBuildsByJobIdQueryHandler,
-            CancelBuildCommandHandler cancelBuildCommandHandler) {
+            BuildLogRepository buildLogRepository,
+            CancelBuildCommandHandler cancelBuildCommandHandler,
+            BuildEventBus buildEventBus,
+            LogIndexRepository logIndexRepository) {
         this.buildRepository = buildRepository;
-        this.getBuildsByJobIdQueryHandler = getBuildsByJobIdQueryHandler;
+        this.buildLogRepository = buildLogRepository;
         this.cancelBuildCommandHandler = cancelBuildCommandHandler;
+        this.buildEventBus = buildEventBus;
+        this.logIndexRepository = logIndexRepository;
     }
 
     @GetMapping
-    public String getAllBuilds(@RequestParam(name = "page", defaultValue = "0") int page,
+    public String getAllBuilds(@RequestParam(name = "status", required = false) BuildStatus status,
+            @RequestParam(name = "branch", required = false) String branch,
+            @RequestParam(name = "owner", required = false) String owner,
+            @RequestParam(name = "repo", required = false) String repo,
+            @RequestParam(name = "triggeredBy", required = false) String triggeredBy,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "cursor", required = false) Long cursor,
             @RequestParam(name = "size", defaultValue = "10") int size,
             Model model) {
-        var builds = buildRepository.findAllPaginated(page, size);
-        var totalBuilds = buildRepository.countAll();
-        var totalPages = (int) Math.ceil((double) totalBuilds / size);
-
-        model.addAttribute("builds", builds);
-        model.addAttribute("currentPage", page);
-        model.addAttribute("totalPages", totalPages);
-        model.addAttribute("pageSize", size);
-        model.addAttribute("totalBuilds", totalBuilds);
-
-        return "builds/index";
+        var query = toBuildQuery(null, status, branch, owner, repo, triggeredBy, from, to, cursor, size);
+        return renderBuildList(query, model);
     }
 
     @GetMapping("/{id}")
@@ -70,11 +106,15 @@ public class BuildController {
 
     @GetMapping("/{id}/pipeline")
     public String getBuildPipeline(@PathVariable("id") Long id, Model model) {
+        // Taken before the build is read, so the page resumes from events it may already reflect
+        long lastEventId = buildEventBus.lastEventId(id);
         var build = buildRepository.findById(id);
         if (build.isEmpty()) {
             return "redirect:/builds";
         }
         model.addAttribute("build", build.get());
+        model.addAttribute("buildLogOffset", buildLogRepository.length(id));
+        model.addAttribute("lastEventId", lastEventId);
         return "builds/pipeline";
     }
 
@@ -86,6 +126,146 @@ public class BuildController {
                 .orElseGet(() -> ResponseEntity.notFound().build());
     }
 
+    /**
+     * Raw build log from the given byte offset, at most limit bytes at a time.
+     * The offset to resume from is returned in the X-Log-Offset header so
+     * clients can fetch only new output; a read shorter than the limit
+     * reached the current end of the log.
+     */
+    @GetMapping(value = "/{id}/log/raw", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> getRawBuildLog(@PathVariable("id") Long id,
+            @RequestParam(name = "offset", defaultValue = "0") long offset,
+            @RequestParam(name = "limit", defaultValue = "" + MAX_LOG_READ_BYTES) int limit) {
+        var log = buildLogRepository.read(id, offset, readLimit(limit));
+        return ResponseEntity.ok()
+                .header(LOG_OFFSET_HEADER, String.valueOf(log.getEndOffset()))
+                .body(log.getText());
+    }
+
+    /**
+     * Output of a single step, read from its range of the build log at most
+     * limit bytes at a time, starting at the given log offset or at the start
+     * of the step. A running step has no length yet and is read up to the
+     * current end of the log. The X-Log-Offset header holds the log offset
+     * just after the output read.
+     * Builds recorded before step ranges existed return the stored output.
+     */
+    @GetMapping(value = "/{id}/steps/{index}/log", produces = MediaType.TEXT_PLAIN_VALUE)
+    @ResponseBody
+    public ResponseEntity<String> getStepLog(@PathVariable("id") Long id, @PathVariable("index") int index,
+            @RequestParam(name = "offset", required = false) Long offset,
+            @RequestParam(name = "limit", defaultValue = "" + MAX_LOG_READ_BYTES) int limit) {
+        var build = buildRepository.findById(id);
+        if (build.isEmpty() || build.get().getSteps() == null
+                || index < 0 || index >= build.get().getSteps().size()) {
+            return ResponseEntity.notFound().build();
+        }
+        var step = build.get().getSteps().get(index);
+        if (step.getLogOffset() == null) {
+            return ResponseEntity.ok(step.getOutput() != null ? step.getOutput() : "");
+        }
+        long from = offset != null ? Math.max(offset, step.getLogOffset()) : step.getLogOffset();
+        long length = readLimit(limit);
+        if (step.getLogLength() != null) {
+            length = Math.max(0, Math.min(length, step.getLogOffset() + step.getLogLength() - from));
+        }
+        var log = buildLogRepository.read(id, from, length);
+        return ResponseEntity.ok()
+                .header(LOG_OFFSET_HEADER, String.valueOf(log.getEndOffset()))
+                .body(log.getText());
+    }
+
+    /**
+     * Complete build log as a file download. Archived logs are stored
+     * gzip-compressed and sent as stored to clients accepting gzip, copied
+     * with FileChannel.transferTo instead of being inflated and re-read.
+     */
+    @GetMapping("/{id}/log/download")
+    public void downloadBuildLog(@PathVariable("id") Long id,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            HttpServletResponse response) throws IOException {
+        Optional<LogDownload> download = buildLogRepository.openDownload(id, acceptsGzip(acceptEncoding));
+        if (download.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        try (LogDownload log = download.get()) {
+            response.setContentType("text/plain;charset=UTF-8");
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"build-" + id + ".log\"");
+            response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (log.isGzip()) {
+                response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            response.setContentLengthLong(log.getLength());
+            log.transferTo(Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    /**
+     * A window of log lines, so that viewers can page through large logs
+     * instead of loading them whole. A negative fromLine counts from the end,
+     * e.g. fromLine=-500 returns the last 500 lines.
+     */
+    @GetMapping(value = "/{id}/log", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public LogLines getBuildLogLines(@PathVariable("id") Long id,
+            @RequestParam(name = "fromLine", defaultValue = "0") long fromLine,
+            @RequestParam(name = "count", defaultValue = "500") int count) {
+        return buildLogRepository.readLines(id, fromLine, Math.max(1, Math.min(count, MAX_LOG_LINES)));
+    }
+
+    /**
+     * Search a build log on the server, e.g. for "BUILD FAILURE" or a test
+     * name, instead of loading the log into the browser. The query is a
+     * literal unless regex=true. Works on running builds as well. A search
+     * stops after a few seconds and returns what it found, marked timedOut,
+     * so that a pattern that backtracks cannot hold a request thread.
+     */
+    @GetMapping(value = "/{id}/log/search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> searchBuildLog(@PathVariable("id") Long id,
+            @RequestParam("q") String query,
+            @RequestParam(name = "regex", defaultValue = "false") boolean regex,
+            @RequestParam(name = "ignoreCase", defaultValue = "false") boolean ignoreCase,
+            @RequestParam(name = "context", defaultValue = "2") int context,
+            @RequestParam(name = "max", defaultValue = "100") int max) {
+        if (query.isEmpty()) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", "Search query must not be empty"));
+        }
+        if (regex && query.length() > MAX_SEARCH_PATTERN_LENGTH) {
+            return ResponseEntity.badRequest().body(Map.of("success", false,
+                    "message", "Pattern must not be longer than " + MAX_SEARCH_PATTERN_LENGTH + " characters"));
+        }
+        Pattern pattern;
+        try {
+            pattern = Pattern.compile(regex ? query : Pattern.quote(query),
+                    ignoreCase ? Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE : 0);
+        } catch (PatternSyntaxException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "message", "Invalid pattern: " + e.getDescription()));
+        }
+        LogSearchResult result = buildLogRepository.search(id, pattern,
+                Math.max(0, Math.min(context, MAX_SEARCH_CONTEXT)),
+                Math.max(1, Math.min(max, MAX_SEARCH_MATCHES)), SEARCH_TIMEOUT_MS);
+        return ResponseEntity.ok(result);
+    }
+
+    /**
+     * Find the finished builds whose logs contain a line with every word of
+     * the query, e.g. the message of a flaky test's exception. Most recent
+     * builds come first; lines can be opened with /{id}/log?fromLine=.
+     */
+    @GetMapping(value = "/log-search", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public List<LogSearchHit> searchAllBuildLogs(@RequestParam("q") String query,
+            @RequestParam(name = "limit", defaultValue = "50") int limit,
+            @RequestParam(name = "lines", defaultValue = "10") int lines) {
+        return logIndexRepository.search(query, Math.max(1, Math.min(limit, MAX_SEARCH_BUILDS)),
+                Math.max(1, Math.min(lines, MAX_SEARCH_MATCHES)));
+    }
+
     @PostMapping(value = "/{id}/cancel", produces = MediaType.APPLICATION_JSON_VALUE)
     @ResponseBody
     public ResponseEntity<?> cancelBuild(@PathVariable("id") Long id) {
@@ -99,55 +279,164 @@ public class BuildController {
         }
     }
 
+    /**
+     * Live updates of a build as typed delta events. A viewer that sends the
+     * id of the last event it received, as Last-Event-ID header on reconnects
+     * or as lastEventId parameter on the first connect, only receives what it
+     * missed. Otherwise, or if those events are gone, it first gets a snapshot
+     * of the build.
+     */
     @GetMapping(value = "/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public SseEmitter streamBuildEvents(@PathVariable("id") Long id) {
+    public SseEmitter streamBuildEvents(@PathVariable("id") Long id,
+            @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventIdHeader,
+            @RequestParam(name = "lastEventId", required = false) Long lastEventIdParam) throws IOException {
         SseEmitter emitter = new SseEmitter(0L); // no timeout
 
-        new Thread(() -> {
-            try {
-                while (true) {
-                    var buildOpt = buildRepository.findById(id);
-                    if (buildOpt.isEmpty()) {
-                        emitter.complete();
-                        return;
-                    }
-
-                    // Send build data as JSON
-                    emitter.send(buildOpt.get(), MediaType.APPLICATION_JSON);
-
-                    var status = buildOpt.get().getStatus();
-                    if (status != null && status.name().matches("SUCCESS|FAILURE|CANCELLED")) {
-                        emitter.complete();
-                        return;
-                    }
-
-                    Thread.sleep(1000);
+        Long resumeFrom = lastEventIdHeader != null ? lastEventIdHeader : lastEventIdParam;
+        long position;
+        if (resumeFrom != null && buildEventBus.canResume(id, resumeFrom)) {
+            position = resumeFrom;
+        } else {
+            // Events published from here on are newer than the snapshot
+            position = buildEventBus.lastEventId(id);
+            var buildOpt = buildRepository.findById(id);
+            if (buildOpt.isEmpty()) {
+                emitter.complete();
+                return emitter;
+            }
+            sendSnapshot(emitter, position, buildOpt.get());
+
+            var status = buildOpt.get().getStatus();
+            if (status == BuildStatus.SUCCESS || status == BuildStatus.FAILURE || status == BuildStatus.CANCELLED) {
+                emitter.complete();
+                return emitter;
+            }
+        }
+
+        BuildEventBus.Listener listener = new BuildEventBus.Listener() {
+            @Override
+            public void onEvent(BuildEvent event) throws IOException {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(event.id()))
+                        .name(event.type())
+                        .data(event.data(), MediaType.APPLICATION_JSON));
+            }
+
+            @Override
+            public void onComplete() {
+                emitter.complete();
+            }
+
+            @Override
+            public void onEventsDropped() throws IOException {
+                // The viewer fell too far behind; resynchronize it with the stored state
+                var build = buildRepository.findById(id);
+                if (build.isPresent()) {
+                    sendSnapshot(emitter, buildEventBus.lastEventId(id), build.get());
                 }
-            } catch (Exception ex) {
-                emitter.completeWithError(ex);
             }
-        }).start();
+        };
+        emitter.onCompletion(() -> buildEventBus.unsubscribe(id, listener));
+        emitter.onError(ex -> buildEventBus.unsubscribe(id, listener));
+        buildEventBus.subscribe(id, position, listener);
 
         return emitter;
     }
 
+    private static void sendSnapshot(SseEmitter emitter, long eventId, Build build) throws IOException {
+        emitter.send(SseEmitter.event()
+                .id(String.valueOf(eventId))
+                .name(BuildEvent.SNAPSHOT)
+                .data(build, MediaType.APPLICATION_JSON));
+    }
+
     @GetMapping("/job/{jobId}")
-    public String getBuildsByJobId(@PathVariable("jobId") Long jobId, Model model) {
-        var builds = getBuildsByJobIdQueryHandler.handle(new GetBuildsByJobIdQuery(jobId));
-        model.addAttribute("builds", builds);
+    public String getBuildsByJobId(@PathVariable("jobId") Long jobId,
+            @RequestParam(name = "status", required = false) BuildStatus status,
+            @RequestParam(name = "branch", required = false) String branch,
+            @RequestParam(name = "owner", required = false) String owner,
+            @RequestParam(name = "repo", required = false) String repo,
+            @RequestParam(name = "triggeredBy", required = false) String triggeredBy,
+            @RequestParam(name = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(name = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(name = "cursor", required = false) Long cursor,
+            @RequestParam(name = "size", defaultValue = "10") int size,
+            Model model) {
+        var query = toBuildQuery(jobId, status, branch, owner, repo, triggeredBy, from, to, cursor, size);
         model.addAttribute("jobId", jobId);
+        return renderBuildList(query, model);
+    }
+
+    private String renderBuildList(BuildQuery query, Model model) {
+        var page = buildRepository.findBuilds(query);
+
+        model.addAttribute("builds", page.getItems());
+        model.addAttribute("query", query);
+        model.addAttribute("pageSize", query.getLimit());
+        model.addAttribute("firstPageUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                .replaceQueryParam("cursor")
+                .toUriString());
+        if (page.hasNext()) {
+            model.addAttribute("nextPageUrl", ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.getNextCursor())
+                    .toUriString());
+        }
         return "builds/index";
     }
 
+    private static BuildQuery toBuildQuery(Long jobId, BuildStatus status, String branch, String owner,
+            String repo, String triggeredBy, LocalDate from, LocalDate to, Long cursor, int size) {
+        var zone = ZoneId.systemDefault();
+        return new BuildQuery(
+                jobId,
+                status,
+                emptyToNull(branch),
+                emptyToNull(owner),
+                emptyToNull(repo),
+                emptyToNull(triggeredBy),
+                from != null ? Date.from(from.atStartOfDay(zone).toInstant()) : null,
+                // The "to" date is inclusive, so the range ends just before the next day starts
+                to != null ? Date.from(to.plusDays(1).atStartOfDay(zone).toInstant().minusMillis(1)) : null,
+                cursor,
+                Math.max(1, Math.min(size, 100)));
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
     private String renderBuildSection(Long id, String section, Model model) {
+        // Taken before the build is read, so the page resumes from events it may already reflect
+        long lastEventId = buildEventBus.lastEventId(id);
         var build = buildRepository.findById(id);
         if (build.isEmpty()) {
             model.addAttribute("errorMessage", "Build not found with ID: " + id);
             return "redirect:/builds";
         }
 
+        // The log itself is loaded by the page in windows of lines
         model.addAttribute("build", build.get());
+        model.addAttribute("buildLogOffset", buildLogRepository.length(id));
+        model.addAttribute("lastEventId", lastEventId);
         model.addAttribute("activeSection", section);
         return "builds/view";
     }
+
+    private static int readLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LOG_READ_BYTES));
+    }
+
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        for (String coding : acceptEncoding.toLowerCase(Locale.ROOT).split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equals("gzip")) {
+                // "gzip;q=0" explicitly refuses gzip
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
 }
@@ -1,6 +1,7 @@
 package org.knullci.knull.web.controller;
 
 import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.BuildQuery;
 import org.knullci.knull.domain.repository.BuildRepository;
 import org.knullci.knull.domain.repository.CredentialRepository;
 import org.knullci.knull.domain.repository.JobRepository;
@@ -31,13 +32,12 @@ public class HomeController {
         var totalCredentials = credentialRepository.findAll().size();
 
         // Count active builds (IN_PROGRESS or PENDING)
-        var activeBuilds = buildRepository.findAll().stream()
-                .filter(build -> build.getStatus() == BuildStatus.IN_PROGRESS ||
-                        build.getStatus() == BuildStatus.PENDING)
-                .count();
+        var activeBuilds = buildRepository.countByStatus(BuildStatus.IN_PROGRESS, BuildStatus.PENDING);
 
-        // Get recent builds (last 10)
-        var recentBuilds = buildRepository.findAllPaginated(0, 10);
+        // Get recent builds (last 10), read from the summary records only
+        var recentQuery = new BuildQuery();
+        recentQuery.setLimit(10);
+        var recentBuilds = buildRepository.findBuilds(recentQuery).getItems();
 
         model.addAttribute("totalJobs", totalJobs);
         model.addAttribute("totalBuilds", totalBuilds);
@@ -17,7 +17,11 @@ import org.knullci.knull.application.query.GetAllJobQuery;
 import org.knullci.knull.application.query.GetBuildsByJobIdQuery;
 import org.knullci.knull.application.query.GetJobByIdQuery;
 import org.knullci.knull.domain.enums.JobType;
+import org.knullci.knull.domain.model.RetentionPolicy;
+import org.knullci.knull.domain.repository.RetentionPolicyRepository;
 import org.knullci.knull.web.dto.JobForm;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -25,6 +29,8 @@ import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.util.Map;
+
 @Controller
 @RequestMapping("/jobs")
 public class JobController {
@@ -37,6 +43,7 @@ public class JobController {
     private final TriggerBuildCommandHandler triggerBuildCommandHandler;
     private final UpdateJobCommandHandler updateJobCommandHandler;
     private final GetBuildsByJobIdQueryHandler getBuildsByJobIdQueryHandler;
+    private final RetentionPolicyRepository retentionPolicyRepository;
 
     public JobController(CreateJobCommandHandler createJobCommandHandler,
             GetAllQueryHandler getAllQueryHandler,
@@ -45,7 +52,8 @@ public class JobController {
             DeleteJobCommandHandler deleteJobCommandHandler,
             TriggerBuildCommandHandler triggerBuildCommandHandler,
             UpdateJobCommandHandler updateJobCommandHandler,
-            GetBuildsByJobIdQueryHandler getBuildsByJobIdQueryHandler) {
+            GetBuildsByJobIdQueryHandler getBuildsByJobIdQueryHandler,
+            RetentionPolicyRepository retentionPolicyRepository) {
         this.createJobCommandHandler = createJobCommandHandler;
         this.getAllQueryHandler = getAllQueryHandler;
         this.getAllCredentialsQueryHandler = getAllCredentialsQueryHandler;
@@ -54,6 +62,7 @@ public class JobController {
         this.triggerBuildCommandHandler = triggerBuildCommandHandler;
         this.updateJobCommandHandler = updateJobCommandHandler;
         this.getBuildsByJobIdQueryHandler = getBuildsByJobIdQueryHandler;
+        this.retentionPolicyRepository = retentionPolicyRepository;
     }
 
     @GetMapping("/create")
@@ -181,9 +190,40 @@ public class JobController {
     @PostMapping("/{id}/delete")
     public String deleteJob(@PathVariable("id") Long id) {
         deleteJobCommandHandler.handle(new DeleteJobCommand(id));
+        retentionPolicyRepository.deleteByJobId(id);
         return "redirect:/jobs";
     }
 
+    /**
+     * Retention override of a job; fields left null use the global settings
+     */
+    @GetMapping(value = "/{id}/retention", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> getRetentionPolicy(@PathVariable("id") Long id) {
+        return retentionPolicyRepository.findByJobId(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.ok(new RetentionPolicy(id, null, null, null)));
+    }
+
+    @PutMapping(value = "/{id}/retention", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> saveRetentionPolicy(@PathVariable("id") Long id, @RequestBody RetentionPolicy policy) {
+        if (isNegative(policy.getKeepLast()) || isNegative(policy.getKeepDays())
+                || isNegative(policy.getKeepFailuresDays())) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("success", false, "error", "Retention values must not be negative"));
+        }
+        policy.setJobId(id);
+        return ResponseEntity.ok(retentionPolicyRepository.save(policy));
+    }
+
+    @DeleteMapping(value = "/{id}/retention", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> deleteRetentionPolicy(@PathVariable("id") Long id) {
+        retentionPolicyRepository.deleteByJobId(id);
+        return ResponseEntity.ok(Map.of("success", true));
+    }
+
     @PostMapping("/{id}/trigger")
     public String triggerBuild(@PathVariable("id") Long id, Authentication authentication,
             RedirectAttributes redirectAttributes) {
@@ -197,4 +237,8 @@ public class JobController {
         return "redirect:/builds";
     }
 
+    private static boolean isNegative(Integer value) {
+        return value != null && value < 0;
+    }
+
 }
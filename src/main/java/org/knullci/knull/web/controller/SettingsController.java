@@ -6,6 +6,9 @@ import org.knullci.knull.application.interfaces.GetSettingsQueryHandler;
 import org.knullci.knull.application.interfaces.SaveSettingsCommandHandler;
 import org.knullci.knull.application.query.GetAllCredentialsQuery;
 import org.knullci.knull.application.query.GetSettingsQuery;
+import org.knullci.knull.infrastructure.service.BuildRetentionService;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -22,13 +25,16 @@ public class SettingsController {
     private final GetSettingsQueryHandler getSettingsQueryHandler;
     private final SaveSettingsCommandHandler saveSettingsCommandHandler;
     private final GetAllCredentialsQueryHandler getAllCredentialsQueryHandler;
+    private final BuildRetentionService buildRetentionService;
 
     public SettingsController(GetSettingsQueryHandler getSettingsQueryHandler,
             SaveSettingsCommandHandler saveSettingsCommandHandler,
-            GetAllCredentialsQueryHandler getAllCredentialsQueryHandler) {
+            GetAllCredentialsQueryHandler getAllCredentialsQueryHandler,
+            BuildRetentionService buildRetentionService) {
         this.getSettingsQueryHandler = getSettingsQueryHandler;
         this.saveSettingsCommandHandler = saveSettingsCommandHandler;
         this.getAllCredentialsQueryHandler = getAllCredentialsQueryHandler;
+        this.buildRetentionService = buildRetentionService;
     }
 
     @GetMapping
@@ -110,4 +116,22 @@ public class SettingsController {
         redirectAttributes.addFlashAttribute("success", "Settings saved successfully");
         return "redirect:/settings/general";
     }
+
+    /**
+     * Outcome of the last retention run, or 204 if none ran since startup
+     */
+    @GetMapping(value = "/retention", produces = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<?> getRetentionReport() {
+        return buildRetentionService.getLastReport()
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.noContent().build());
+    }
+
+    @PostMapping("/retention/run")
+    public String runRetention(RedirectAttributes redirectAttributes) {
+        buildRetentionService.trigger();
+        redirectAttributes.addFlashAttribute("success", "Build cleanup started");
+        return "redirect:/settings/general";
+    }
 }
@@ -0,0 +1,99 @@
+package org.knullci.knull.application.handler;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.knullci.knull.application.command.CancelBuildCommand;
+import org.knullci.knull.application.dto.CancelBuildResult;
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.infrastructure.service.BuildEventBus;
+import org.knullci.knull.infrastructure.service.NecroswordExecutor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CancelBuildCommandHandlerImplTest {
+
+    @Mock
+    private BuildRepository buildRepository;
+
+    @Mock
+    private BuildLogRepository buildLogRepository;
+
+    @Mock
+    private NecroswordExecutor necroswordExecutor;
+
+    @Mock
+    private BuildEventBus buildEventBus;
+
+    @InjectMocks
+    private CancelBuildCommandHandlerImpl handler;
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandle_WhenBuildRunning_ShouldCancelPipelineOutsideBuildLock() {
+        // Arrange
+        Build build = createRunningBuild();
+        when(buildRepository.findById(1L)).thenReturn(Optional.of(build));
+        when(buildRepository.modifyBuild(eq(1L), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(build);
+            // The executor must not be called while the build is locked
+            verify(necroswordExecutor, never()).cancelPipeline(1L);
+            return Optional.of(build);
+        });
+        when(necroswordExecutor.markCancelled(1L)).thenReturn(true);
+
+        // Act
+        CancelBuildResult result = handler.handle(new CancelBuildCommand(1L));
+
+        // Assert
+        assertTrue(result.isSuccess());
+        assertEquals(BuildStatus.CANCELLED, build.getStatus());
+        InOrder inOrder = inOrder(buildRepository, necroswordExecutor);
+        inOrder.verify(buildRepository).modifyBuild(eq(1L), any());
+        inOrder.verify(necroswordExecutor).cancelPipeline(1L);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHandle_WhenBuildNotRunningInExecutor_ShouldNotCallExecutor() {
+        // Arrange
+        Build build = createRunningBuild();
+        when(buildRepository.findById(1L)).thenReturn(Optional.of(build));
+        when(buildRepository.modifyBuild(eq(1L), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(build);
+            return Optional.of(build);
+        });
+        when(necroswordExecutor.markCancelled(1L)).thenReturn(false);
+
+        // Act
+        CancelBuildResult result = handler.handle(new CancelBuildCommand(1L));
+
+        // Assert
+        assertFalse(result.isSuccess());
+        assertEquals(BuildStatus.IN_PROGRESS, build.getStatus());
+        verify(necroswordExecutor, never()).cancelPipeline(anyLong());
+    }
+
+    private Build createRunningBuild() {
+        Build build = new Build();
+        build.setId(1L);
+        build.setStatus(BuildStatus.IN_PROGRESS);
+        build.setStartedAt(new Date());
+        build.setSteps(new ArrayList<>());
+        return build;
+    }
+}
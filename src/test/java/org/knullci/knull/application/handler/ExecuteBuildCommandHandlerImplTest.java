@@ -14,15 +14,21 @@ import org.knullci.knull.domain.enums.JobType;
 import org.knullci.knull.domain.model.Build;
 import org.knullci.knull.domain.model.Job;
 import org.knullci.knull.domain.model.SimpleJobConfig;
+import org.knullci.knull.domain.repository.BuildLogRepository;
 import org.knullci.knull.domain.repository.BuildRepository;
 import org.knullci.knull.infrastructure.dto.UpdateCommitStatusDto;
 import org.knullci.knull.infrastructure.enums.GHCommitState;
+import org.knullci.knull.infrastructure.service.BuildEventBus;
+import org.knullci.knull.infrastructure.service.BuildLogArchiver;
 import org.knullci.knull.infrastructure.service.BuildExecutorService;
 import org.knullci.knull.infrastructure.service.GithubService;
 import org.knullci.knull.infrastructure.service.KnullExecutor;
+import org.knullci.knull.infrastructure.service.LogIndexService;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -34,6 +40,9 @@ class ExecuteBuildCommandHandlerImplTest {
     @Mock
     private BuildRepository buildRepository;
 
+    @Mock
+    private BuildLogRepository buildLogRepository;
+
     @Mock
     private GithubService githubService;
 
@@ -43,6 +52,15 @@ class ExecuteBuildCommandHandlerImplTest {
     @Mock
     private KnullExecutor knullExecutor;
 
+    @Mock
+    private BuildEventBus buildEventBus;
+
+    @Mock
+    private LogIndexService logIndexService;
+
+    @Mock
+    private BuildLogArchiver buildLogArchiver;
+
     @InjectMocks
     private ExecuteBuildCommandHandlerImpl handler;
 
@@ -82,7 +100,7 @@ class ExecuteBuildCommandHandlerImplTest {
         when(buildRepository.saveBuild(any(Build.class))).thenReturn(savedBuild);
         doNothing().when(githubService).updateCommitStatus(any(UpdateCommitStatusDto.class));
         doNothing().when(knullExecutor).executeBuild(any(Build.class), any(Job.class));
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
+        stubModifyBuild(savedBuild);
 
         // Act
         handler.handle(testCommand);
@@ -90,11 +108,13 @@ class ExecuteBuildCommandHandlerImplTest {
         // Assert
         verify(buildRepository).saveBuild(any(Build.class));
         verify(knullExecutor).executeBuild(any(Build.class), eq(testJob));
-        verify(buildRepository).updateBuild(buildCaptor.capture());
+        verify(buildRepository).modifyBuild(eq(1L), any());
+        verify(buildRepository, never()).updateBuild(any(Build.class));
+        verify(logIndexService).submit(1L);
+        verify(buildLogArchiver).submit(1L);
 
-        Build updatedBuild = buildCaptor.getValue();
-        assertEquals(BuildStatus.SUCCESS, updatedBuild.getStatus());
-        assertNotNull(updatedBuild.getCompletedAt());
+        assertEquals(BuildStatus.SUCCESS, savedBuild.getStatus());
+        assertNotNull(savedBuild.getCompletedAt());
     }
 
     @Test
@@ -106,18 +126,17 @@ class ExecuteBuildCommandHandlerImplTest {
         doNothing().when(githubService).updateCommitStatus(any(UpdateCommitStatusDto.class));
         doThrow(new RuntimeException("Build execution failed")).when(knullExecutor)
                 .executeBuild(any(Build.class), any(Job.class));
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
+        stubModifyBuild(savedBuild);
 
         // Act
         handler.handle(testCommand);
 
         // Assert
         verify(buildRepository).saveBuild(any(Build.class));
-        verify(buildRepository).updateBuild(buildCaptor.capture());
+        verify(buildRepository).modifyBuild(eq(1L), any());
 
-        Build updatedBuild = buildCaptor.getValue();
-        assertEquals(BuildStatus.FAILURE, updatedBuild.getStatus());
-        assertTrue(updatedBuild.getBuildLog().contains("Build failed"));
+        assertEquals(BuildStatus.FAILURE, savedBuild.getStatus());
+        verify(buildLogRepository).append(eq(1L), contains("Build failed"));
     }
 
     @Test
@@ -128,7 +147,7 @@ class ExecuteBuildCommandHandlerImplTest {
         when(buildRepository.saveBuild(buildCaptor.capture())).thenReturn(savedBuild);
         doNothing().when(githubService).updateCommitStatus(any(UpdateCommitStatusDto.class));
         doNothing().when(knullExecutor).executeBuild(any(Build.class), any(Job.class));
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
+        stubModifyBuild(savedBuild);
 
         // Act
         handler.handle(testCommand);
@@ -154,7 +173,7 @@ class ExecuteBuildCommandHandlerImplTest {
         when(buildRepository.saveBuild(any(Build.class))).thenReturn(savedBuild);
         doNothing().when(githubService).updateCommitStatus(statusCaptor.capture());
         doNothing().when(knullExecutor).executeBuild(any(Build.class), any(Job.class));
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
+        stubModifyBuild(savedBuild);
 
         // Act
         handler.handle(testCommand);
@@ -175,7 +194,7 @@ class ExecuteBuildCommandHandlerImplTest {
         when(buildRepository.saveBuild(any(Build.class))).thenReturn(savedBuild);
         doNothing().when(githubService).updateCommitStatus(statusCaptor.capture());
         doNothing().when(knullExecutor).executeBuild(any(Build.class), any(Job.class));
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
+        stubModifyBuild(savedBuild);
 
         // Act
         handler.handle(testCommand);
@@ -194,7 +213,7 @@ class ExecuteBuildCommandHandlerImplTest {
         doNothing().when(githubService).updateCommitStatus(statusCaptor.capture());
         doThrow(new RuntimeException("Build failed")).when(knullExecutor)
                 .executeBuild(any(Build.class), any(Job.class));
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
+        stubModifyBuild(savedBuild);
 
         // Act
         handler.handle(testCommand);
@@ -204,6 +223,36 @@ class ExecuteBuildCommandHandlerImplTest {
         assertEquals(GHCommitState.FAILURE, failureStatus.getCommitState());
     }
 
+    @Test
+    void testHandle_WhenCancelledDuringExecution_ShouldNotOverwriteStatus() {
+        // Arrange
+        Build savedBuild = createTestBuild();
+        Build storedBuild = createTestBuild();
+        storedBuild.setStatus(BuildStatus.CANCELLED);
+
+        when(buildRepository.saveBuild(any(Build.class))).thenReturn(savedBuild);
+        doNothing().when(githubService).updateCommitStatus(statusCaptor.capture());
+        doNothing().when(knullExecutor).executeBuild(any(Build.class), any(Job.class));
+        stubModifyBuild(storedBuild);
+
+        // Act
+        handler.handle(testCommand);
+
+        // Assert - Only the PENDING status is reported, and viewers are released
+        verify(buildEventBus).complete(1L);
+        assertEquals(BuildStatus.CANCELLED, storedBuild.getStatus());
+        assertEquals(1, statusCaptor.getAllValues().size());
+        verify(buildLogRepository, never()).append(eq(1L), contains("Build completed"));
+    }
+
+    private void stubModifyBuild(Build storedBuild) {
+        when(buildRepository.modifyBuild(eq(1L), any())).thenAnswer(invocation -> {
+            Consumer<Build> modification = invocation.getArgument(1);
+            modification.accept(storedBuild);
+            return Optional.of(storedBuild);
+        });
+    }
+
     private Build createTestBuild() {
         Build build = new Build();
         build.setId(1L);
@@ -216,7 +265,6 @@ class ExecuteBuildCommandHandlerImplTest {
         build.setRepositoryOwner("testowner");
         build.setRepositoryName("testrepo");
         build.setStatus(BuildStatus.IN_PROGRESS);
-        build.setBuildLog("Build started...\n");
         build.setSteps(new ArrayList<>());
         build.setStartedAt(new Date());
         build.setTriggeredBy("testuser");
@@ -137,7 +137,7 @@ class GetBuildsByJobIdQueryHandlerImplTest {
         build.setRepositoryOwner("testowner");
         build.setRepositoryName("testrepo");
         build.setStatus(status);
-        build.setBuildLog("Build log content");
+        build.setLogLength(17L);
         build.setStartedAt(new Date());
         build.setCompletedAt(new Date());
         build.setDuration(5000L);
@@ -18,7 +18,7 @@ import org.knullci.knull.domain.model.SimpleJobConfig;
 import org.knullci.knull.domain.repository.JobRepository;
 
 import java.util.Date;
-import java.util.Optional;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -77,7 +77,7 @@ class GithubWebhookCommandHandlerImplTest {
     @Test
     void testHandle_WhenJobExists_ShouldTriggerBuild() {
         // Arrange
-        when(jobRepository.getJobByRepoName("testrepo")).thenReturn(Optional.of(testJob));
+        when(jobRepository.findJobsForPush("https://github.com/testowner/testrepo", "main")).thenReturn(List.of(testJob));
         doNothing().when(executeBuildCommandHandler).handle(any(ExecuteBuildCommand.class));
 
         GithubWebhookCommand command = new GithubWebhookCommand(webhookRequest);
@@ -86,7 +86,7 @@ class GithubWebhookCommandHandlerImplTest {
         handler.handle(command);
 
         // Assert
-        verify(jobRepository).getJobByRepoName("testrepo");
+        verify(jobRepository).findJobsForPush("https://github.com/testowner/testrepo", "main");
         verify(executeBuildCommandHandler).handle(buildCommandCaptor.capture());
 
         ExecuteBuildCommand capturedCommand = buildCommandCaptor.getValue();
@@ -99,7 +99,7 @@ class GithubWebhookCommandHandlerImplTest {
     @Test
     void testHandle_WhenJobNotFound_ShouldNotTriggerBuild() {
         // Arrange
-        when(jobRepository.getJobByRepoName("testrepo")).thenReturn(Optional.empty());
+        when(jobRepository.findJobsForPush("https://github.com/testowner/testrepo", "main")).thenReturn(List.of());
 
         GithubWebhookCommand command = new GithubWebhookCommand(webhookRequest);
 
@@ -108,14 +108,14 @@ class GithubWebhookCommandHandlerImplTest {
 
         // Assert
         assertNull(result);
-        verify(jobRepository).getJobByRepoName("testrepo");
+        verify(jobRepository).findJobsForPush("https://github.com/testowner/testrepo", "main");
         verify(executeBuildCommandHandler, never()).handle(any(ExecuteBuildCommand.class));
     }
 
     @Test
     void testHandle_ShouldExtractBranchNameFromRef() {
         // Arrange
-        when(jobRepository.getJobByRepoName("testrepo")).thenReturn(Optional.of(testJob));
+        when(jobRepository.findJobsForPush("https://github.com/testowner/testrepo", "main")).thenReturn(List.of(testJob));
         doNothing().when(executeBuildCommandHandler).handle(buildCommandCaptor.capture());
 
         GithubWebhookCommand command = new GithubWebhookCommand(webhookRequest);
@@ -131,7 +131,7 @@ class GithubWebhookCommandHandlerImplTest {
     @Test
     void testHandle_ShouldPassCorrectRepositoryInfo() {
         // Arrange
-        when(jobRepository.getJobByRepoName("testrepo")).thenReturn(Optional.of(testJob));
+        when(jobRepository.findJobsForPush("https://github.com/testowner/testrepo", "main")).thenReturn(List.of(testJob));
         doNothing().when(executeBuildCommandHandler).handle(buildCommandCaptor.capture());
 
         GithubWebhookCommand command = new GithubWebhookCommand(webhookRequest);
@@ -149,7 +149,7 @@ class GithubWebhookCommandHandlerImplTest {
     @Test
     void testHandle_ShouldPassSenderAsTriggeredBy() {
         // Arrange
-        when(jobRepository.getJobByRepoName("testrepo")).thenReturn(Optional.of(testJob));
+        when(jobRepository.findJobsForPush("https://github.com/testowner/testrepo", "main")).thenReturn(List.of(testJob));
         doNothing().when(executeBuildCommandHandler).handle(buildCommandCaptor.capture());
 
         GithubWebhookCommand command = new GithubWebhookCommand(webhookRequest);
@@ -186,7 +186,7 @@ class GithubWebhookCommandHandlerImplTest {
         featureBranchWebhook.setHeadCommit(headCommit);
         featureBranchWebhook.setSender(sender);
 
-        when(jobRepository.getJobByRepoName("testrepo")).thenReturn(Optional.of(testJob));
+        when(jobRepository.findJobsForPush("https://github.com/testowner/testrepo", "feature/new-feature")).thenReturn(List.of(testJob));
         doNothing().when(executeBuildCommandHandler).handle(buildCommandCaptor.capture());
 
         GithubWebhookCommand command = new GithubWebhookCommand(featureBranchWebhook);
@@ -198,4 +198,25 @@ class GithubWebhookCommandHandlerImplTest {
         ExecuteBuildCommand capturedCommand = buildCommandCaptor.getValue();
         assertEquals("feature/new-feature", capturedCommand.getBranch());
     }
+
+    @Test
+    void testHandle_WhenSeveralJobsMatch_ShouldTriggerEachEvenIfOneFails() {
+        // Arrange
+        Job otherJob = new Job(
+                2L, "Other Job", "Description", JobType.SIMPLE, testJob.getJobConfig(),
+                false, true, null, new Date(), null, new Date());
+        when(jobRepository.findJobsForPush("https://github.com/testowner/testrepo", "main")).thenReturn(List.of(testJob, otherJob));
+        doThrow(new RuntimeException("queue full"))
+                .doNothing()
+                .when(executeBuildCommandHandler).handle(buildCommandCaptor.capture());
+
+        // Act
+        handler.handle(new GithubWebhookCommand(webhookRequest));
+
+        // Assert
+        List<ExecuteBuildCommand> commands = buildCommandCaptor.getAllValues();
+        assertEquals(2, commands.size());
+        assertEquals(testJob, commands.get(0).getJob());
+        assertEquals(otherJob, commands.get(1).getJob());
+    }
 }
@@ -0,0 +1,116 @@
+package org.knullci.knull.infrastructure.service;
+
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class BufferedStreamObserverTest {
+
+    @SuppressWarnings("unchecked")
+    private final StreamObserver<String> delegate = mock(StreamObserver.class);
+
+    @SuppressWarnings("unchecked")
+    private final ClientCallStreamObserver<String> call = mock(ClientCallStreamObserver.class);
+
+    @Test
+    void testBeforeStart_ShouldRequestOnlyCapacity() {
+        // Arrange
+        BufferedStreamObserver<String, String> observer = new BufferedStreamObserver<>(delegate, 4);
+
+        // Act
+        observer.beforeStart(call);
+
+        // Assert
+        verify(call).disableAutoRequestWithInitial(4);
+    }
+
+    @Test
+    void testOnNext_ShouldOnlyHandleMessagesWhenDrained() throws Exception {
+        // Arrange
+        BufferedStreamObserver<String, String> observer = new BufferedStreamObserver<>(delegate, 4);
+        observer.beforeStart(call);
+
+        // Act
+        observer.onNext("first");
+        observer.onNext("second");
+
+        // Assert
+        verifyNoInteractions(delegate);
+        assertFalse(observer.drain(0, TimeUnit.MILLISECONDS));
+        var order = inOrder(delegate, call);
+        order.verify(delegate).onNext("first");
+        order.verify(call).request(1);
+        order.verify(delegate).onNext("second");
+        order.verify(call).request(1);
+    }
+
+    @Test
+    void testDrain_WhenCompleted_ShouldReturnTrue() throws Exception {
+        // Arrange
+        BufferedStreamObserver<String, String> observer = new BufferedStreamObserver<>(delegate, 4);
+        observer.beforeStart(call);
+        observer.onNext("only");
+        observer.onCompleted();
+
+        // Act
+        boolean finished = observer.drain(0, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertTrue(finished);
+        verify(delegate).onNext("only");
+        verify(delegate).onCompleted();
+    }
+
+    @Test
+    void testOnNext_WhenServerIgnoresFlowControl_ShouldThrow() {
+        // Arrange
+        BufferedStreamObserver<String, String> observer = new BufferedStreamObserver<>(delegate, 1);
+        observer.beforeStart(call);
+        observer.onNext("requested");
+        observer.onNext("terminal slot");
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> observer.onNext("unrequested"));
+    }
+
+    @Test
+    void testDrain_ShouldReturnAfterOneBufferOfMessages() throws Exception {
+        // Arrange
+        BufferedStreamObserver<String, String> observer = new BufferedStreamObserver<>(delegate, 2);
+        observer.beforeStart(call);
+        observer.onNext("a");
+        observer.onNext("b");
+        observer.onError(new RuntimeException("stream failed"));
+
+        // Act
+        boolean firstDrain = observer.drain(0, TimeUnit.MILLISECONDS);
+        boolean secondDrain = observer.drain(0, TimeUnit.MILLISECONDS);
+
+        // Assert
+        assertFalse(firstDrain);
+        assertTrue(secondDrain);
+        verify(delegate).onError(any(RuntimeException.class));
+    }
+
+    @Test
+    void testCancel_ShouldCancelCallUntilFinished() throws Exception {
+        // Arrange
+        BufferedStreamObserver<String, String> observer = new BufferedStreamObserver<>(delegate, 2);
+        observer.beforeStart(call);
+
+        // Act
+        observer.cancel("Build cancelled by user");
+        observer.onCompleted();
+        observer.drain(0, TimeUnit.MILLISECONDS);
+        observer.cancel("again");
+
+        // Assert
+        verify(call, times(1)).cancel(eq("Build cancelled by user"), isNull());
+        verify(call, never()).cancel(eq("again"), any());
+    }
+}
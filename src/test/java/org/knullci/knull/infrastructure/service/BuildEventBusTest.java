@@ -0,0 +1,239 @@
+package org.knullci.knull.infrastructure.service;
+
+import com.google.protobuf.ByteString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knullci.knull.infrastructure.dto.BuildEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildEventBusTest {
+
+    private BuildEventBus buildEventBus;
+
+    @BeforeEach
+    void setUp() {
+        buildEventBus = new BuildEventBus(4, 2, 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        buildEventBus.shutdown();
+    }
+
+    @Test
+    void testSubscribe_ShouldReceiveEventsAfterLastEventIdAndComplete() throws Exception {
+        // Arrange
+        buildEventBus.publish(1L, "test", "first");
+        buildEventBus.publish(1L, "test", "second");
+        RecordingListener listener = new RecordingListener();
+
+        // Act
+        buildEventBus.subscribe(1L, 1L, listener);
+        buildEventBus.publish(1L, "test", "third");
+        buildEventBus.complete(1L);
+
+        // Assert
+        assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("second", "third"), listener.data());
+        assertEquals(List.of(2L, 3L), listener.events.stream().map(BuildEvent::id).toList());
+    }
+
+    @Test
+    void testSubscribe_WhenBehindRing_ShouldContinueFromOldestRetainedEvent() throws Exception {
+        // Arrange
+        for (int i = 1; i <= 10; i++) {
+            buildEventBus.publish(1L, "test", "event " + i);
+        }
+        RecordingListener listener = new RecordingListener();
+
+        // Act
+        buildEventBus.subscribe(1L, 0L, listener);
+        buildEventBus.complete(1L);
+
+        // Assert
+        assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("event 7", "event 8", "event 9", "event 10"), listener.data());
+    }
+
+    @Test
+    void testPublish_ShouldDeliverToEverySubscriberInOrder() throws Exception {
+        // Arrange
+        RecordingListener first = new RecordingListener();
+        RecordingListener second = new RecordingListener();
+        buildEventBus.subscribe(1L, 0L, first);
+        buildEventBus.subscribe(1L, 0L, second);
+
+        // Act
+        buildEventBus.publish(1L, "test", "a");
+        buildEventBus.publish(1L, "test", "b");
+        buildEventBus.publish(2L, "test", "other build");
+        buildEventBus.complete(1L);
+
+        // Assert
+        assertTrue(first.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(second.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b"), first.data());
+        assertEquals(List.of("a", "b"), second.data());
+    }
+
+    @Test
+    void testPublish_WhenListenerBlocks_ShouldStillDeliverToOtherSubscribers() throws Exception {
+        // Arrange
+        BuildEventBus singleDispatcher = new BuildEventBus(4, 1, 60_000L);
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            singleDispatcher.subscribe(1L, 0L, new BuildEventBus.Listener() {
+                @Override
+                public void onEvent(BuildEvent event) throws Exception {
+                    // A viewer whose socket write does not return
+                    blocked.countDown();
+                    release.await();
+                }
+
+                @Override
+                public void onComplete() {
+                }
+            });
+            RecordingListener other = new RecordingListener();
+            singleDispatcher.subscribe(2L, 0L, other);
+
+            // Act
+            singleDispatcher.publish(1L, "test", "stuck");
+            assertTrue(blocked.await(5, TimeUnit.SECONDS));
+            singleDispatcher.publish(2L, "test", "a");
+            singleDispatcher.complete(2L);
+
+            // Assert
+            assertTrue(other.completed.await(5, TimeUnit.SECONDS));
+            assertEquals(List.of("a"), other.data());
+        } finally {
+            release.countDown();
+            singleDispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void testPublishLog_ShouldCarryByteOffsetOfChunk() {
+        // Act
+        BuildEvent event = buildEventBus.publishLog(1L, 110L, "héllo\n", 2);
+
+        // Assert
+        BuildEvent.LogChunk chunk = (BuildEvent.LogChunk) event.data();
+        assertEquals(BuildEvent.LOG_CHUNK, event.type());
+        assertEquals(103L, chunk.offset());
+        assertEquals(7L, chunk.length());
+        assertEquals(2, chunk.stepIndex());
+        assertEquals(1L, buildEventBus.lastEventId(1L));
+    }
+
+    @Test
+    void testPublishLog_WithBytes_ShouldCarryLengthOfBytesAndDecodeTextOnlyWhenRead() {
+        // Act
+        BuildEvent event = buildEventBus.publishLog(1L, 10L,
+                ByteString.copyFrom(new byte[] { 'o', 'k', (byte) 0xff, '\n' }), null);
+
+        // Assert
+        BuildEvent.LogChunk chunk = (BuildEvent.LogChunk) event.data();
+        assertEquals(6L, chunk.offset());
+        // Not the length of the decoded text, which replaces the invalid byte
+        assertEquals(4L, chunk.length());
+        assertEquals("ok\ufffd\n", chunk.text().toString());
+    }
+
+    @Test
+    void testCanResume_ShouldRequireEveryLaterEventToBeRetained() {
+        // Arrange
+        for (int i = 1; i <= 10; i++) {
+            buildEventBus.publish(1L, "test", "event " + i);
+        }
+
+        // Act & Assert
+        assertTrue(buildEventBus.canResume(1L, 6L));
+        assertTrue(buildEventBus.canResume(1L, 10L));
+        assertFalse(buildEventBus.canResume(1L, 5L));
+        assertFalse(buildEventBus.canResume(1L, 11L));
+        assertFalse(buildEventBus.canResume(2L, 0L));
+    }
+
+    @Test
+    void testSubscribe_WhenEventsWereOverwritten_ShouldReportDrop() throws Exception {
+        // Arrange
+        for (int i = 1; i <= 10; i++) {
+            buildEventBus.publish(1L, "test", "event " + i);
+        }
+        CountDownLatch dropped = new CountDownLatch(1);
+        RecordingListener listener = new RecordingListener() {
+            @Override
+            public void onEventsDropped() {
+                dropped.countDown();
+            }
+        };
+
+        // Act
+        buildEventBus.subscribe(1L, 2L, listener);
+        buildEventBus.complete(1L);
+
+        // Assert
+        assertTrue(listener.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(0, dropped.getCount());
+    }
+
+    @Test
+    void testSubscriber_WhenListenerFails_ShouldBeDropped() throws Exception {
+        // Arrange
+        CountDownLatch failed = new CountDownLatch(1);
+        List<BuildEvent> received = new CopyOnWriteArrayList<>();
+        buildEventBus.subscribe(1L, 0L, new BuildEventBus.Listener() {
+            @Override
+            public void onEvent(BuildEvent event) throws Exception {
+                received.add(event);
+                failed.countDown();
+                throw new IllegalStateException("client gone");
+            }
+
+            @Override
+            public void onComplete() {
+            }
+        });
+
+        // Act
+        buildEventBus.publish(1L, "test", "a");
+        assertTrue(failed.await(5, TimeUnit.SECONDS));
+        buildEventBus.publish(1L, "test", "b");
+        RecordingListener other = new RecordingListener();
+        buildEventBus.subscribe(1L, 1L, other);
+        buildEventBus.complete(1L);
+
+        // Assert
+        assertTrue(other.completed.await(5, TimeUnit.SECONDS));
+        assertEquals(1, received.size());
+    }
+
+    private static class RecordingListener implements BuildEventBus.Listener {
+
+        private final List<BuildEvent> events = new CopyOnWriteArrayList<>();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public void onEvent(BuildEvent event) {
+            events.add(event);
+        }
+
+        @Override
+        public void onComplete() {
+            completed.countDown();
+        }
+
+        private List<Object> data() {
+            return events.stream().map(BuildEvent::data).toList();
+        }
+    }
+}
@@ -9,6 +9,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.knullci.knull.domain.enums.CredentialType;
 import org.knullci.knull.domain.enums.JobType;
 import org.knullci.knull.domain.model.*;
+import org.knullci.knull.domain.repository.BuildLogRepository;
 import org.knullci.knull.domain.repository.BuildRepository;
 import org.knullci.knull.domain.repository.CredentialRepository;
 import org.knullci.knull.infrastructure.dto.ProcessResult;
@@ -36,9 +37,15 @@ class BuildExecutorServiceTest {
     @Mock
     private BuildRepository buildRepository;
 
+    @Mock
+    private BuildLogRepository buildLogRepository;
+
     @Mock
     private EncryptionService encryptionService;
 
+    @Mock
+    private BuildEventBus buildEventBus;
+
     @Mock
     private ObjectMapper yamlObjectMapper;
 
@@ -50,7 +57,8 @@ class BuildExecutorServiceTest {
                 processRunner,
                 credentialRepository,
                 encryptionService,
-                buildRepository,
+                new BuildLogWriter(buildRepository, buildLogRepository, buildEventBus),
+                buildEventBus,
                 yamlObjectMapper);
     }
 
@@ -67,8 +75,6 @@ class BuildExecutorServiceTest {
         when(encryptionService.decrypt(anyString())).thenReturn("decrypted-token");
         when(processRunner.run(any(RunCommand.class))).thenReturn(cloneSuccess);
         when(processRunner.run(any(RunCommand.class), any(Path.class))).thenReturn(checkoutSuccess);
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
-
         // Act
         try {
             buildExecutorService.executeBuild(build, job);
@@ -78,7 +84,7 @@ class BuildExecutorServiceTest {
 
         // Assert
         assertFalse(build.getSteps().isEmpty());
-        verify(buildRepository, atLeastOnce()).updateBuild(build);
+        verify(buildRepository, atLeastOnce()).modifyBuild(eq(build.getId()), any());
     }
 
     @Test
@@ -92,8 +98,6 @@ class BuildExecutorServiceTest {
         when(credentialRepository.findById(anyLong())).thenReturn(Optional.of(createTestCredential()));
         when(encryptionService.decrypt(anyString())).thenReturn("decrypted-token");
         when(processRunner.run(any(RunCommand.class))).thenReturn(cloneFailure);
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
-
         // Act & Assert
         assertThrows(RuntimeException.class, () -> buildExecutorService.executeBuild(build, job));
     }
@@ -113,8 +117,6 @@ class BuildExecutorServiceTest {
                 1L, "Test Job", "Description", JobType.SIMPLE, config,
                 false, true, null, new Date(), null, new Date());
 
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
-
         // Act & Assert
         assertThrows(RuntimeException.class, () -> buildExecutorService.executeBuild(build, job));
     }
@@ -126,8 +128,6 @@ class BuildExecutorServiceTest {
         Job job = createTestJob();
 
         when(credentialRepository.findById(anyLong())).thenReturn(Optional.empty());
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
-
         // Act & Assert
         assertThrows(RuntimeException.class, () -> buildExecutorService.executeBuild(build, job));
     }
@@ -144,8 +144,6 @@ class BuildExecutorServiceTest {
         when(encryptionService.decrypt(anyString())).thenReturn("decrypted-token");
         when(processRunner.run(any(RunCommand.class))).thenReturn(cloneSuccess);
         when(processRunner.run(any(RunCommand.class), any(Path.class))).thenReturn(cloneSuccess);
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
-
         // Act
         try {
             buildExecutorService.executeBuild(build, job);
@@ -169,8 +167,6 @@ class BuildExecutorServiceTest {
         when(encryptionService.decrypt(anyString())).thenReturn("decrypted-token");
         when(processRunner.run(any(RunCommand.class))).thenReturn(cloneSuccess);
         when(processRunner.run(any(RunCommand.class), any(Path.class))).thenReturn(cloneSuccess);
-        doNothing().when(buildRepository).updateBuild(any(Build.class));
-
         // Act
         try {
             buildExecutorService.executeBuild(build, job);
@@ -179,7 +175,7 @@ class BuildExecutorServiceTest {
         }
 
         // Assert - Build repository should be called for updates
-        verify(buildRepository, atLeastOnce()).updateBuild(any(Build.class));
+        verify(buildRepository, atLeastOnce()).modifyBuild(eq(build.getId()), any());
     }
 
     private Build createTestBuild() {
@@ -194,7 +190,6 @@ class BuildExecutorServiceTest {
         build.setRepositoryOwner("testowner");
         build.setRepositoryName("testrepo");
         build.setStartedAt(new Date());
-        build.setBuildLog("");
         return build;
     }
 
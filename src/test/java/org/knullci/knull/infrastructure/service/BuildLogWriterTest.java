@@ -0,0 +1,82 @@
+package org.knullci.knull.infrastructure.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildStep;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.knullci.knull.domain.repository.BuildRepository;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BuildLogWriterTest {
+
+    @Mock
+    private BuildRepository buildRepository;
+
+    @Mock
+    private BuildLogRepository buildLogRepository;
+
+    @Mock
+    private BuildEventBus buildEventBus;
+
+    private BuildLogWriter buildLogWriter;
+
+    @BeforeEach
+    void setUp() {
+        buildLogWriter = new BuildLogWriter(buildRepository, buildLogRepository, buildEventBus);
+    }
+
+    @Test
+    void testAppend_ShouldRecordLogLengthAndPublishText() {
+        // Arrange
+        Build build = new Build();
+        build.setId(1L);
+        when(buildLogRepository.append(1L, "output\n")).thenReturn(42L);
+
+        // Act
+        buildLogWriter.append(build, "output\n", 0);
+
+        // Assert
+        assertEquals(42L, build.getLogLength());
+        verify(buildEventBus).publishLog(1L, 42L, "output\n", 0);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testPersistSteps_ShouldKeepStoredStatusAndLongerLogLength() {
+        // Arrange
+        Build build = new Build();
+        build.setId(1L);
+        build.setLogLength(10L);
+        build.setSteps(new ArrayList<>(List.of(new BuildStep())));
+        Build stored = new Build();
+        stored.setId(1L);
+        stored.setStatus(BuildStatus.CANCELLED);
+        stored.setLogLength(20L);
+        when(buildRepository.modifyBuild(eq(1L), any())).thenAnswer(invocation -> {
+            invocation.getArgument(1, Consumer.class).accept(stored);
+            return Optional.of(stored);
+        });
+
+        // Act
+        buildLogWriter.persistSteps(build);
+
+        // Assert
+        assertSame(build.getSteps(), stored.getSteps());
+        assertEquals(BuildStatus.CANCELLED, stored.getStatus());
+        assertEquals(20L, stored.getLogLength());
+    }
+}
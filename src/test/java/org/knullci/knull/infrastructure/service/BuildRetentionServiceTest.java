@@ -0,0 +1,283 @@
+package org.knullci.knull.infrastructure.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.domain.model.BuildSummary;
+import org.knullci.knull.domain.model.Page;
+import org.knullci.knull.domain.model.RetentionPolicy;
+import org.knullci.knull.domain.model.RetentionReport;
+import org.knullci.knull.domain.model.Settings;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.domain.repository.LogIndexRepository;
+import org.knullci.knull.domain.repository.RetentionPolicyRepository;
+import org.knullci.knull.domain.repository.SettingsRepository;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BuildRetentionServiceTest {
+
+    @Mock
+    private BuildRepository buildRepository;
+
+    @Mock
+    private BuildLogRepository buildLogRepository;
+
+    @Mock
+    private LogIndexRepository logIndexRepository;
+
+    @Mock
+    private SettingsRepository settingsRepository;
+
+    @Mock
+    private RetentionPolicyRepository retentionPolicyRepository;
+
+    @TempDir
+    Path workspaceDir;
+
+    private BuildRetentionService service;
+
+    @AfterEach
+    void tearDown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void testRun_ShouldDeleteExpiredBuildsBeyondKeepLast() {
+        // Arrange
+        service = createService(1, 0, 100);
+        givenSettings(30, false);
+        givenBuilds(
+                createSummary(5L, 1L, BuildStatus.SUCCESS, 60),
+                createSummary(4L, 1L, BuildStatus.SUCCESS, 60),
+                createSummary(3L, 1L, BuildStatus.CANCELLED, 45),
+                createSummary(2L, 1L, BuildStatus.SUCCESS, 5),
+                createSummary(1L, 1L, BuildStatus.IN_PROGRESS, 90));
+        when(buildRepository.deleteBuild(anyLong())).thenReturn(100L);
+
+        // Act
+        RetentionReport report = service.run();
+
+        // Assert - build 5 is the newest finished one, 2 is recent and 1 is still running
+        verify(buildRepository).deleteBuild(4L);
+        verify(buildRepository).deleteBuild(3L);
+        verify(buildRepository, never()).deleteBuild(5L);
+        verify(buildRepository, never()).deleteBuild(2L);
+        verify(buildRepository, never()).deleteBuild(1L);
+        verify(logIndexRepository).remove(4L);
+        assertEquals(4, report.getBuildsScanned());
+        assertEquals(2, report.getBuildsDeleted());
+        assertEquals(200L, report.getBytesReclaimed());
+        assertTrue(report.isComplete());
+        assertSame(report, service.getLastReport().orElseThrow());
+    }
+
+    @Test
+    void testRun_WhenJobOverridesRetention_ShouldUseOverride() {
+        // Arrange
+        service = createService(0, 0, 100);
+        givenSettings(30, false);
+        when(retentionPolicyRepository.findAll()).thenReturn(List.of(new RetentionPolicy(2L, null, 365, null)));
+        givenBuilds(
+                createSummary(2L, 2L, BuildStatus.SUCCESS, 60),
+                createSummary(1L, 1L, BuildStatus.SUCCESS, 60));
+
+        // Act
+        service.run();
+
+        // Assert
+        verify(buildRepository).deleteBuild(1L);
+        verify(buildRepository, never()).deleteBuild(2L);
+    }
+
+    @Test
+    void testRun_WhenFailureRetentionIsLonger_ShouldKeepFailures() {
+        // Arrange
+        service = createService(0, 90, 100);
+        givenSettings(30, false);
+        givenBuilds(
+                createSummary(2L, 1L, BuildStatus.FAILURE, 60),
+                createSummary(1L, 1L, BuildStatus.SUCCESS, 60));
+
+        // Act
+        service.run();
+
+        // Assert
+        verify(buildRepository).deleteBuild(1L);
+        verify(buildRepository, never()).deleteBuild(2L);
+    }
+
+    @Test
+    void testRun_WhenDeleteLimitReached_ShouldStopAndReportIncomplete() {
+        // Arrange
+        service = createService(0, 0, 1);
+        givenSettings(30, false);
+        givenBuilds(
+                createSummary(2L, 1L, BuildStatus.SUCCESS, 60),
+                createSummary(1L, 1L, BuildStatus.SUCCESS, 60));
+
+        // Act
+        RetentionReport report = service.run();
+
+        // Assert
+        verify(buildRepository).deleteBuild(2L);
+        verify(buildRepository, never()).deleteBuild(1L);
+        assertEquals(1, report.getBuildsDeleted());
+        assertFalse(report.isComplete());
+    }
+
+    @Test
+    void testRun_ShouldArchiveLogsOfKeptBuilds() {
+        // Arrange
+        service = createService(1, 0, 100);
+        givenSettings(30, false);
+        givenBuilds(createSummary(1L, 1L, BuildStatus.SUCCESS, 1));
+        when(buildLogRepository.archive(1L)).thenReturn(true);
+
+        // Act
+        RetentionReport report = service.run();
+
+        // Assert
+        assertEquals(1, report.getLogsArchived());
+        verify(buildRepository, never()).deleteBuild(anyLong());
+    }
+
+    @Test
+    void testRun_ShouldOnlyReadSummariesOfBuildsBeyondKeepLastStartedBeforeRetentionPeriod() {
+        // Arrange
+        service = createService(2, 0, 100);
+        givenSettings(30, false);
+        givenBuilds(
+                createSummary(4L, 1L, BuildStatus.SUCCESS, 60),
+                createSummary(3L, 1L, BuildStatus.SUCCESS, 60),
+                createSummary(2L, 2L, BuildStatus.SUCCESS, 60),
+                createSummary(1L, 1L, BuildStatus.SUCCESS, 60));
+
+        // Act
+        service.run();
+
+        // Assert - job 2 has no build beyond keepLast, so nothing of it is read
+        ArgumentCaptor<BuildQuery> query = ArgumentCaptor.forClass(BuildQuery.class);
+        verify(buildRepository).findBuilds(query.capture());
+        assertEquals(1L, query.getValue().getJobId());
+        assertEquals(3L, query.getValue().getCursor());
+        assertTrue(query.getValue().getStartedTo().getTime()
+                <= System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30));
+        verify(buildRepository).deleteBuild(1L);
+        verify(buildRepository, never()).deleteBuild(2L);
+    }
+
+    @Test
+    void testRun_WhenAutoCleanupEnabled_ShouldRemoveLeftoverWorkspacesOfFinishedBuilds() throws Exception {
+        // Arrange
+        service = createService(1, 0, 100);
+        givenSettings(30, true);
+        givenBuilds();
+        Path finished = createWorkspace("build-7", 2);
+        Path running = createWorkspace("build-8", 2);
+        Path recent = createWorkspace("build-9", 0);
+        when(buildRepository.findById(7L)).thenReturn(Optional.of(createBuild(7L, BuildStatus.FAILURE)));
+        when(buildRepository.findById(8L)).thenReturn(Optional.of(createBuild(8L, BuildStatus.IN_PROGRESS)));
+
+        // Act
+        RetentionReport report = service.run();
+
+        // Assert
+        assertFalse(Files.exists(finished));
+        assertTrue(Files.exists(running));
+        assertTrue(Files.exists(recent));
+        assertEquals(1, report.getWorkspacesDeleted());
+        assertEquals(5L, report.getBytesReclaimed());
+    }
+
+    private BuildRetentionService createService(int keepLast, int keepFailuresDays, int maxDeletesPerRun) {
+        return new BuildRetentionService(buildRepository, buildLogRepository, logIndexRepository,
+                settingsRepository, retentionPolicyRepository, workspaceDir.toString(), false, 60_000L,
+                keepLast, keepFailuresDays, 100, 0L, maxDeletesPerRun, 1L);
+    }
+
+    private void givenSettings(int retentionDays, boolean autoCleanupWorkspace) {
+        Settings settings = new Settings();
+        settings.setBuildRetentionDays(retentionDays);
+        settings.setAutoCleanupWorkspace(autoCleanupWorkspace);
+        when(settingsRepository.getSettings()).thenReturn(Optional.of(settings));
+    }
+
+    /**
+     * Serve the builds the way the catalog does: finished ids by job, and
+     * queries filtered by job, start time and cursor
+     */
+    private void givenBuilds(BuildSummary... builds) {
+        Map<Long, List<Long>> finishedByJob = new HashMap<>();
+        for (BuildSummary build : builds) {
+            if (build.getStatus() != BuildStatus.IN_PROGRESS) {
+                finishedByJob.computeIfAbsent(build.getJobId(), jobId -> new ArrayList<>()).add(build.getId());
+            }
+        }
+        when(buildRepository.findIdsByJob(any(BuildStatus[].class))).thenReturn(finishedByJob);
+        // Not every run needs to read summaries
+        lenient().when(buildRepository.findBuilds(any())).thenAnswer(invocation -> {
+            BuildQuery query = invocation.getArgument(0);
+            List<BuildSummary> items = Stream.of(builds)
+                    .filter(build -> query.getJobId() == null || query.getJobId().equals(build.getJobId()))
+                    .filter(build -> query.getCursor() == null || build.getId() < query.getCursor())
+                    .filter(build -> query.getStartedTo() == null
+                            || !build.getStartedAt().after(query.getStartedTo()))
+                    .toList();
+            return new Page<>(items, null);
+        });
+    }
+
+    private Path createWorkspace(String name, int ageDays) throws Exception {
+        Path workspace = workspaceDir.resolve(name);
+        Files.createDirectories(workspace.resolve("repo"));
+        Files.writeString(workspace.resolve("repo").resolve("file.txt"), "hello");
+        Files.setLastModifiedTime(workspace,
+                FileTime.fromMillis(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ageDays)));
+        return workspace;
+    }
+
+    private BuildSummary createSummary(Long id, Long jobId, BuildStatus status, int ageDays) {
+        BuildSummary summary = new BuildSummary();
+        summary.setId(id);
+        summary.setJobId(jobId);
+        summary.setStatus(status);
+        Date finishedAt = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(ageDays));
+        summary.setStartedAt(finishedAt);
+        summary.setCompletedAt(status == BuildStatus.IN_PROGRESS ? null : finishedAt);
+        return summary;
+    }
+
+    private Build createBuild(Long id, BuildStatus status) {
+        Build build = new Build();
+        build.setId(id);
+        build.setStatus(status);
+        return build;
+    }
+}
@@ -1,6 +1,7 @@
 package org.knullci.knull.infrastructure.service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.protobuf.ByteString;
 import io.grpc.ManagedChannel;
 import io.grpc.Status;
 import io.grpc.StatusRuntimeException;
@@ -12,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.knullci.knull.domain.enums.CredentialType;
 import org.knullci.knull.domain.enums.JobType;
 import org.knullci.knull.domain.model.*;
+import org.knullci.knull.domain.repository.BuildLogRepository;
 import org.knullci.knull.domain.repository.BuildRepository;
 import org.knullci.knull.domain.repository.CredentialRepository;
 import org.knullci.knull.domain.repository.SecretFileRepository;
@@ -20,7 +22,9 @@ import org.springframework.test.util.ReflectionTestUtils;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -35,12 +39,18 @@ class NecroswordExecutorTest {
     @Mock
     private BuildRepository buildRepository;
 
+    @Mock
+    private BuildLogRepository buildLogRepository;
+
     @Mock
     private SecretFileRepository secretFileRepository;
 
     @Mock
     private EncryptionService encryptionService;
 
+    @Mock
+    private BuildEventBus buildEventBus;
+
     @Mock
     private ObjectMapper yamlObjectMapper;
 
@@ -60,8 +70,9 @@ class NecroswordExecutorTest {
         necroswordExecutor = new NecroswordExecutor(
                 credentialRepository,
                 encryptionService,
-                buildRepository,
+                new BuildLogWriter(buildRepository, buildLogRepository, buildEventBus),
                 secretFileRepository,
+                buildEventBus,
                 yamlObjectMapper);
 
         // Set configuration values via reflection
@@ -291,6 +302,7 @@ class NecroswordExecutorTest {
 
         // Create a temporary directory that will be cleaned up
         java.nio.file.Path tempDir = java.nio.file.Files.createTempDirectory("test-cleanup");
+        when(buildLogRepository.append(eq(1L), anyString())).thenReturn(30L, 75L);
 
         // Act
         ReflectionTestUtils.invokeMethod(necroswordExecutor, "cleanupIfRequired",
@@ -299,38 +311,204 @@ class NecroswordExecutorTest {
         // Assert - Cleanup step should be added
         assertEquals(1, build.getSteps().size());
         assertEquals("Cleanup Workspace", build.getSteps().get(0).getName());
+        assertEquals(30L, build.getSteps().get(0).getLogOffset());
+        assertEquals(45L, build.getSteps().get(0).getLogLength());
     }
 
     // ==================== appendToBuildLog() Tests ====================
 
     @Test
-    void testAppendToBuildLog_WithExistingLog_ShouldAppend() {
+    void testAppendToBuildLog_ShouldAppendToLogStore() {
+        // Arrange
+        Build build = createTestBuild();
+        when(buildLogRepository.append(1L, "New line")).thenReturn(21L);
+
+        // Act
+        ReflectionTestUtils.invokeMethod(necroswordExecutor, "appendToBuildLog",
+                build, "New line", 0);
+
+        // Assert
+        verify(buildLogRepository).append(1L, "New line");
+        assertEquals(21L, build.getLogLength());
+        verify(buildEventBus).publishLog(1L, 21L, "New line", 0);
+    }
+
+    @Test
+    void testAppendToBuildLog_ShouldNotRewriteBuildDocument() {
         // Arrange
         Build build = createTestBuild();
-        build.setBuildLog("Existing log\n");
 
         // Act
         ReflectionTestUtils.invokeMethod(necroswordExecutor, "appendToBuildLog",
-                build, "New line");
+                build, "First line", 0);
 
         // Assert
-        assertEquals("Existing log\nNew line", build.getBuildLog());
-        verify(buildRepository).updateBuild(build);
+        verify(buildRepository, never()).updateBuild(any(Build.class));
     }
 
     @Test
-    void testAppendToBuildLog_WithNullLog_ShouldCreateNew() {
+    void testAppendToBuildLog_WhenBuildCancelled_ShouldSkip() {
         // Arrange
         Build build = createTestBuild();
-        build.setBuildLog(null);
+        @SuppressWarnings("unchecked")
+        Map<Long, AtomicBoolean> runningBuilds = (Map<Long, AtomicBoolean>) ReflectionTestUtils
+                .getField(necroswordExecutor, "runningBuilds");
+        runningBuilds.put(1L, new AtomicBoolean(true));
 
         // Act
         ReflectionTestUtils.invokeMethod(necroswordExecutor, "appendToBuildLog",
-                build, "First line");
+                build, "Ignored line", 0);
+
+        // Assert
+        verify(buildLogRepository, never()).append(anyLong(), anyString());
+        verifyNoInteractions(buildEventBus);
+    }
+
+    @Test
+    void testAppendToBuildLog_WithBytes_ShouldAppendBuffersWithoutDecoding() {
+        // Arrange
+        Build build = createTestBuild();
+        ByteString data = ByteString.copyFromUtf8("line 1\n").concat(ByteString.copyFromUtf8("line 2\n"));
+        when(buildLogRepository.append(eq(1L), anyList())).thenReturn(14L);
+
+        // Act
+        ReflectionTestUtils.invokeMethod(necroswordExecutor, "appendToBuildLog", build, data, 0);
+
+        // Assert
+        verify(buildLogRepository).append(1L, data.asReadOnlyByteBufferList());
+        verify(buildLogRepository, never()).append(anyLong(), anyString());
+        assertEquals(14L, build.getLogLength());
+        verify(buildEventBus).publishLog(1L, 14L, data, 0);
+    }
+
+    @Test
+    void testAppendToBuildLog_WithInvalidUtf8Bytes_ShouldAppendBytesUnchanged() {
+        // Arrange
+        Build build = createTestBuild();
+        ByteString data = ByteString.copyFrom(new byte[] { 'o', 'k', (byte) 0xff, '\n' });
+        when(buildLogRepository.append(eq(1L), anyList())).thenReturn(4L);
+
+        // Act
+        ReflectionTestUtils.invokeMethod(necroswordExecutor, "appendToBuildLog", build, data, 0);
+
+        // Assert
+        verify(buildLogRepository).append(1L, data.asReadOnlyByteBufferList());
+        verify(buildLogRepository, never()).append(anyLong(), anyString());
+        verify(buildEventBus).publishLog(1L, 4L, data, 0);
+    }
+
+    // ==================== executePipelineWithStreaming() Tests ====================
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExecutePipelineWithStreaming_WhenStreamDrops_ShouldResumeAfterLastEvent() {
+        // Arrange
+        Build build = createTestBuild();
+        ReflectionTestUtils.setField(necroswordExecutor, "streamBufferMessages", 16);
+        ReflectionTestUtils.setField(necroswordExecutor, "resumeTimeoutMs", 60_000L);
+        PipelineStreamResponse stepStarted = PipelineStreamResponse.newBuilder()
+                .setSequence(1)
+                .setStepStarted(StepStartedEvent.newBuilder().setStepName("compile").setTotalSteps(1))
+                .build();
+        PipelineStreamResponse completed = PipelineStreamResponse.newBuilder()
+                .setSequence(2)
+                .setPipelineCompleted(PipelineResponse.newBuilder().setSuccess(true))
+                .build();
+        doAnswer(invocation -> {
+            BufferedStreamObserver<PipelineRequest, PipelineStreamResponse> observer = invocation.getArgument(1);
+            observer.beforeStart(mock(io.grpc.stub.ClientCallStreamObserver.class));
+            observer.onNext(stepStarted);
+            observer.onError(Status.UNAVAILABLE.withDescription("connection reset").asRuntimeException());
+            return null;
+        }).when(asyncStub).executePipelineStream(any(PipelineRequest.class), any());
+        doAnswer(invocation -> {
+            BufferedStreamObserver<ResumePipelineRequest, PipelineStreamResponse> observer = invocation.getArgument(1);
+            observer.beforeStart(mock(io.grpc.stub.ClientCallStreamObserver.class));
+            observer.onNext(stepStarted);
+            observer.onNext(completed);
+            observer.onCompleted();
+            return null;
+        }).when(asyncStub).resumePipelineStream(any(ResumePipelineRequest.class), any());
+
+        // Act
+        ReflectionTestUtils.invokeMethod(necroswordExecutor, "executePipelineWithStreaming", build,
+                PipelineRequest.newBuilder().setId("build-1").build(), "Build", new AtomicBoolean());
+
+        // Assert
+        verify(asyncStub).resumePipelineStream(eq(ResumePipelineRequest.newBuilder()
+                .setPipelineId("build-1")
+                .setAfterSequence(1)
+                .setOutputOptions(OutputOptions.getDefaultInstance())
+                .build()), any());
+        assertEquals(1, build.getSteps().size());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExecutePipelineWithStreaming_WhenExecutorCannotResume_ShouldFail() {
+        // Arrange
+        Build build = createTestBuild();
+        ReflectionTestUtils.setField(necroswordExecutor, "streamBufferMessages", 16);
+        ReflectionTestUtils.setField(necroswordExecutor, "resumeTimeoutMs", 60_000L);
+        doAnswer(invocation -> {
+            BufferedStreamObserver<PipelineRequest, PipelineStreamResponse> observer = invocation.getArgument(1);
+            observer.beforeStart(mock(io.grpc.stub.ClientCallStreamObserver.class));
+            // Events without a sequence come from an executor that cannot resume
+            observer.onNext(PipelineStreamResponse.newBuilder()
+                    .setStepStarted(StepStartedEvent.newBuilder().setStepName("compile"))
+                    .build());
+            observer.onError(Status.UNAVAILABLE.asRuntimeException());
+            return null;
+        }).when(asyncStub).executePipelineStream(any(PipelineRequest.class), any());
+
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> ReflectionTestUtils.invokeMethod(necroswordExecutor,
+                "executePipelineWithStreaming", build, PipelineRequest.newBuilder().setId("build-1").build(),
+                "Build", new AtomicBoolean()));
+        verify(asyncStub, never()).resumePipelineStream(any(), any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testExecutePipelineWithStreaming_WhenCharacterSplitAcrossBatches_ShouldAppendAndPublishExactBytes() {
+        // Arrange
+        Build build = createTestBuild();
+        ReflectionTestUtils.setField(necroswordExecutor, "streamBufferMessages", 16);
+        // "café\n" with the two bytes of 'é' split between the batches
+        ByteString first = ByteString.copyFrom(new byte[] { 'c', 'a', 'f', (byte) 0xc3 });
+        ByteString second = ByteString.copyFrom(new byte[] { (byte) 0xa9, '\n' });
+        when(buildLogRepository.append(eq(1L), anyString())).thenReturn(10L);
+        when(buildLogRepository.append(eq(1L), anyList())).thenReturn(14L, 16L);
+        doAnswer(invocation -> {
+            BufferedStreamObserver<PipelineRequest, PipelineStreamResponse> observer = invocation.getArgument(1);
+            observer.beforeStart(mock(io.grpc.stub.ClientCallStreamObserver.class));
+            observer.onNext(PipelineStreamResponse.newBuilder()
+                    .setStepStarted(StepStartedEvent.newBuilder().setStepName("compile").setTotalSteps(1))
+                    .build());
+            observer.onNext(PipelineStreamResponse.newBuilder()
+                    .setStepOutputBatch(StepOutputBatch.newBuilder().setData(first))
+                    .build());
+            observer.onNext(PipelineStreamResponse.newBuilder()
+                    .setStepOutputBatch(StepOutputBatch.newBuilder().setData(second))
+                    .build());
+            observer.onNext(PipelineStreamResponse.newBuilder()
+                    .setPipelineCompleted(PipelineResponse.newBuilder().setSuccess(true))
+                    .build());
+            observer.onCompleted();
+            return null;
+        }).when(asyncStub).executePipelineStream(any(PipelineRequest.class), any());
+
+        // Act
+        ReflectionTestUtils.invokeMethod(necroswordExecutor, "executePipelineWithStreaming", build,
+                PipelineRequest.newBuilder().setId("build-1").build(), "Build", new AtomicBoolean());
 
         // Assert
-        assertEquals("First line", build.getBuildLog());
-        verify(buildRepository).updateBuild(build);
+        verify(buildLogRepository).append(1L, first.asReadOnlyByteBufferList());
+        verify(buildLogRepository).append(1L, second.asReadOnlyByteBufferList());
+        verify(buildLogRepository, times(2)).append(eq(1L), anyList());
+        verify(buildEventBus).publishLog(1L, 14L, first, 0);
+        verify(buildEventBus).publishLog(1L, 16L, second, 0);
+        assertEquals(16L, build.getLogLength());
     }
 
     // ==================== shutdown() Tests ====================
@@ -401,7 +579,6 @@ class NecroswordExecutorTest {
         build.setRepositoryUrl("https://github.com/testowner/testrepo");
         build.setRepositoryOwner("testowner");
         build.setRepositoryName("testrepo");
-        build.setBuildLog("");
         build.setSteps(new ArrayList<>());
         build.setStartedAt(new Date());
         return build;
@@ -0,0 +1,53 @@
+package org.knullci.knull.infrastructure.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReconnectBackoffTest {
+
+    private final AtomicLong now = new AtomicLong(1_000);
+
+    @Test
+    void testNextDelayMs_ShouldDoubleUpToMaximum() {
+        // Arrange
+        ReconnectBackoff backoff = new ReconnectBackoff(500, 2_000, 60_000, now::get);
+
+        // Act & Assert
+        assertEquals(500, backoff.nextDelayMs());
+        assertEquals(1_000, backoff.nextDelayMs());
+        assertEquals(2_000, backoff.nextDelayMs());
+        assertEquals(2_000, backoff.nextDelayMs());
+    }
+
+    @Test
+    void testNextDelayMs_WhenDownLongerThanTimeout_ShouldGiveUp() {
+        // Arrange
+        ReconnectBackoff backoff = new ReconnectBackoff(500, 2_000, 10_000, now::get);
+        backoff.nextDelayMs();
+
+        // Act
+        now.addAndGet(10_000);
+
+        // Assert
+        assertEquals(-1, backoff.nextDelayMs());
+    }
+
+    @Test
+    void testReset_ShouldRestartDelayAndTimeout() {
+        // Arrange
+        ReconnectBackoff backoff = new ReconnectBackoff(500, 2_000, 10_000, now::get);
+        backoff.nextDelayMs();
+        backoff.nextDelayMs();
+        now.addAndGet(9_000);
+
+        // Act
+        backoff.reset();
+        now.addAndGet(5_000);
+
+        // Assert
+        assertEquals(500, backoff.nextDelayMs());
+    }
+}
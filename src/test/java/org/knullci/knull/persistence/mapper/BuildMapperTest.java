@@ -0,0 +1,111 @@
+package org.knullci.knull.persistence.mapper;
+
+import org.junit.jupiter.api.Test;
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.enums.BuildStepStatus;
+import org.knullci.knull.persistence.entity.Build;
+import org.knullci.knull.persistence.entity.BuildDetail;
+import org.knullci.knull.persistence.entity.BuildStep;
+import org.knullci.knull.persistence.entity.BuildStepOutputs;
+import org.knullci.knull.persistence.entity.BuildSummary;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildMapperTest {
+
+    @Test
+    void testToDetailEntity_ShouldDropStepOutput() {
+        // Arrange
+        Build build = createBuild();
+
+        // Act
+        BuildDetail detail = BuildMapper.toDetailEntity(build);
+        BuildStepOutputs outputs = BuildMapper.toStepOutputsEntity(build);
+
+        // Assert
+        assertEquals(2, detail.getSteps().size());
+        assertNull(detail.getSteps().get(0).getOutput());
+        assertEquals("compile", detail.getSteps().get(0).getName());
+        assertEquals(List.of("compiled", "tested"), outputs.getOutputs());
+        assertEquals("compiled", build.getSteps().get(0).getOutput());
+    }
+
+    @Test
+    void testToStepOutputsEntity_WhenStepsOnlyHaveLogRanges_ShouldReturnNull() {
+        // Arrange
+        Build build = createBuild();
+        build.getSteps().forEach(step -> {
+            step.setOutput(null);
+            step.setLogOffset(10L);
+            step.setLogLength(20L);
+        });
+
+        // Act
+        BuildStepOutputs outputs = BuildMapper.toStepOutputsEntity(build);
+        BuildDetail detail = BuildMapper.toDetailEntity(build);
+
+        // Assert
+        assertNull(outputs);
+        assertEquals(10L, detail.getSteps().get(0).getLogOffset());
+        assertEquals(20L, detail.getSteps().get(0).getLogLength());
+    }
+
+    @Test
+    void testFromDocuments_ShouldRejoinSplitBuild() {
+        // Arrange
+        Build build = createBuild();
+        BuildSummary summary = BuildMapper.toSummaryEntity(build);
+
+        // Act
+        Build result = BuildMapper.fromDocuments(summary,
+                BuildMapper.toDetailEntity(build),
+                BuildMapper.toStepOutputsEntity(build));
+
+        // Assert
+        assertEquals(7L, result.getId());
+        assertEquals("main", result.getBranch());
+        assertEquals(BuildStatus.SUCCESS, result.getStatus());
+XX, result.getSteps().get(1).getOutput());
+    }
+
+    @Test
+    void testFromDocuments_WithoutDetail_ShouldReturnBuildWithoutSteps() {
+        // Arrange
+        BuildSummary summary = BuildMapper.toSummaryEntity(createBuild());
+
+        // Act
+        Build result = BuildMapper.fromDocuments(summary, null, null);
+
+        // Assert
+        assertNotNull(result);
+        assertTrue(result.getSteps().isEmpty());
+    }
+
+    @Test
+    void testToSummary_ShouldMapListingFields() {
+        // Arrange
+        BuildSummary summary = BuildMapper.toSummaryEntity(createBuild());
+
+        // Act
+        var result = BuildMapper.toSummary(summary);
+
+        // Assert
+        assertEquals(7L, result.getId());
+        assertEquals("acme", result.getRepositoryOwner());
+        assertEquals("api", result.getRepositoryName());
+        assertEquals("testuser", result.getTriggeredBy());
+    }
+
+    private Build createBuild() {
+        List<BuildStep> steps = new ArrayList<>();
+        steps.add(new BuildStep("compile", BuildStepStatus.SUCCESS, "compiled", new Date(), new Date(), 10L, null));
+        steps.add(new BuildStep("test", BuildStepStatus.SUCCESS, "tested", new Date(), new Date(), 20L, null));
+        return new Build(7L, 1L, "Test Job", "abc1234def", "Initial commit", "main",
+                "https://github.com/acme/api.git", "acme", "api", BuildStatus.SUCCESS,
+                "storage/build-logs/7.log", 0L, steps, new Date(), new Date(), 30L, "testuser", 3L);
+    }
+}
@@ -0,0 +1,258 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.BuildQuery;
+import org.knullci.knull.persistence.entity.BuildSummary;
+
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildCatalogTest {
+
+    private BuildCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        catalog = new BuildCatalog();
+    }
+
+    @Test
+    void testFindIdsDescending_ShouldPageNewestFirst() {
+        // Arrange
+        for (long id = 1; id <= 25; id++) {
+            catalog.upsert(createBuild(id, 1L, BuildStatus.SUCCESS));
+        }
+
+        // Act
+        List<Long> firstPage = catalog.findIdsDescending(0, 10);
+        List<Long> lastPage = catalog.findIdsDescending(20, 10);
+
+        // Assert
+        assertEquals(List.of(25L, 24L, 23L, 22L, 21L, 20L, 19L, 18L, 17L, 16L), firstPage);
+        assertEquals(List.of(5L, 4L, 3L, 2L, 1L), lastPage);
+        assertTrue(catalog.findIdsDescending(30, 10).isEmpty());
+    }
+
+    @Test
+    void testUpsert_OutOfOrderIds_ShouldKeepRowsSorted() {
+        // Act
+        catalog.upsert(createBuild(3L, 1L, BuildStatus.SUCCESS));
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.SUCCESS));
+        catalog.upsert(createBuild(2L, 1L, BuildStatus.SUCCESS));
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 3L), catalog.findAllIds());
+    }
+
+    @Test
+    void testUpsert_ExistingBuild_ShouldUpdateStatusCounts() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.IN_PROGRESS));
+        assertEquals(1, catalog.countByStatus(BuildStatus.IN_PROGRESS));
+
+        // Act
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.SUCCESS));
+
+        // Assert
+        assertEquals(1, catalog.size());
+        assertEquals(0, catalog.countByStatus(BuildStatus.IN_PROGRESS));
+        assertEquals(1, catalog.countByStatus(BuildStatus.SUCCESS));
+    }
+
+    @Test
+    void testFindIdsByJobId_ShouldReturnOnlyBuildsOfJob() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.SUCCESS));
+        catalog.upsert(createBuild(2L, 2L, BuildStatus.SUCCESS));
+        catalog.upsert(createBuild(3L, 1L, BuildStatus.FAILURE));
+
+        // Act & Assert
+        assertEquals(List.of(3L, 1L), catalog.findIdsByJobId(1L));
+        assertTrue(catalog.findIdsByJobId(99L).isEmpty());
+    }
+
+    @Test
+    void testFindIdsByJob_ShouldGroupBuildsInStatusesByJobNewestFirst() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.SUCCESS));
+        catalog.upsert(createBuild(2L, 2L, BuildStatus.FAILURE));
+        catalog.upsert(createBuild(3L, 1L, BuildStatus.IN_PROGRESS));
+        catalog.upsert(createBuild(4L, 1L, BuildStatus.CANCELLED));
+        catalog.upsert(createBuild(5L, null, BuildStatus.SUCCESS));
+        catalog.upsert(createBuild(6L, 3L, BuildStatus.PENDING));
+
+        // Act
+        Map<Long, List<Long>> result = catalog.findIdsByJob(
+                BuildStatus.SUCCESS, BuildStatus.FAILURE, BuildStatus.CANCELLED);
+
+        // Assert
+        assertEquals(Map.of(1L, List.of(4L, 1L), 2L, List.of(2L)), withoutNullKey(result));
+        assertEquals(List.of(5L), result.get(null));
+        assertFalse(result.containsKey(3L));
+    }
+
+    @Test
+    void testRemove_ShouldDropRowAndStatusCount() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.IN_PROGRESS));
+        catalog.upsert(createBuild(2L, 1L, BuildStatus.SUCCESS));
+
+        // Act
+        catalog.remove(1L);
+
+        // Assert
+        assertEquals(List.of(2L), catalog.findAllIds());
+        assertFalse(catalog.contains(1L));
+        assertEquals(0, catalog.countByStatus(BuildStatus.IN_PROGRESS, BuildStatus.PENDING));
+    }
+
+    @Test
+    void testUpsert_BeyondInitialCapacity_ShouldGrow() {
+        // Act
+        for (long id = 1; id <= 1000; id++) {
+            catalog.upsert(createBuild(id, id % 7, BuildStatus.SUCCESS));
+        }
+
+        // Assert
+        assertEquals(1000, catalog.size());
+        assertEquals(1000, catalog.countByStatus(BuildStatus.SUCCESS));
+        assertEquals(List.of(1000L), catalog.findIdsDescending(0, 1));
+    }
+
+    @Test
+    void testFindIds_WithCombinedFilters_ShouldReturnMatchingBuildsNewestFirst() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.FAILURE, "main", "acme", "api"));
+        catalog.upsert(createBuild(2L, 1L, BuildStatus.SUCCESS, "main", "acme", "api"));
+        catalog.upsert(createBuild(3L, 2L, BuildStatus.FAILURE, "main", "acme", "web"));
+        catalog.upsert(createBuild(4L, 1L, BuildStatus.FAILURE, "dev", "acme", "api"));
+        catalog.upsert(createBuild(5L, 1L, BuildStatus.FAILURE, "main", "acme", "api"));
+
+        BuildQuery query = new BuildQuery();
+        query.setStatus(BuildStatus.FAILURE);
+        query.setBranch("main");
+        query.setRepositoryOwner("acme");
+        query.setRepositoryName("api");
+
+        // Act & Assert
+        assertEquals(List.of(5L, 1L), catalog.findIds(query, 10));
+    }
+
+    @Test
+    void testFindIds_WithOnlyRepositoryOwnerOrName_ShouldMatchThatPart() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.SUCCESS, "main", "acme", "api"));
+        catalog.upsert(createBuild(2L, 1L, BuildStatus.SUCCESS, "main", "other", "api"));
+        catalog.upsert(createBuild(3L, 1L, BuildStatus.SUCCESS, "main", "acme", "web"));
+        catalog.upsert(createBuild(4L, 1L, BuildStatus.SUCCESS, "main", null, "api"));
+
+        BuildQuery byOwner = new BuildQuery();
+        byOwner.setRepositoryOwner("acme");
+        BuildQuery byName = new BuildQuery();
+        byName.setRepositoryName("api");
+        BuildQuery byNullOwner = new BuildQuery();
+        byNullOwner.setRepositoryOwner("null");
+
+        // Act & Assert
+        assertEquals(List.of(3L, 1L), catalog.findIds(byOwner, 10));
+        assertEquals(List.of(4L, 2L, 1L), catalog.findIds(byName, 10));
+        assertTrue(catalog.findIds(byNullOwner, 10).isEmpty());
+    }
+
+    @Test
+    void testFindIds_WithCursor_ShouldReturnOnlyOlderBuilds() {
+        // Arrange
+        for (long id = 1; id <= 10; id++) {
+            catalog.upsert(createBuild(id, 1L, BuildStatus.SUCCESS));
+        }
+        BuildQuery query = new BuildQuery();
+        query.setCursor(6L);
+
+        // Act
+        List<Long> unfiltered = catalog.findIds(query, 3);
+        query.setJobId(1L);
+        List<Long> byJob = catalog.findIds(query, 3);
+
+        // Assert
+        assertEquals(List.of(5L, 4L, 3L), unfiltered);
+        assertEquals(List.of(5L, 4L, 3L), byJob);
+    }
+
+    @Test
+    void testFindIds_AfterStatusUpdate_ShouldMaintainIndex() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.IN_PROGRESS));
+        BuildQuery query = new BuildQuery();
+        query.setStatus(BuildStatus.IN_PROGRESS);
+        assertEquals(List.of(1L), catalog.findIds(query, 10));
+
+        // Act
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.FAILURE));
+
+        // Assert
+        assertTrue(catalog.findIds(query, 10).isEmpty());
+        query.setStatus(BuildStatus.FAILURE);
+        assertEquals(List.of(1L), catalog.findIds(query, 10));
+    }
+
+    @Test
+    void testFindIds_WithUnknownBranch_ShouldReturnEmpty() {
+        // Arrange
+        catalog.upsert(createBuild(1L, 1L, BuildStatus.SUCCESS));
+        BuildQuery query = new BuildQuery();
+        query.setBranch("does-not-exist");
+
+        // Act & Assert
+        assertTrue(catalog.findIds(query, 10).isEmpty());
+    }
+
+    @Test
+    void testFindIds_WithStartedAtRange_ShouldFilterByTime() {
+        // Arrange
+        BuildSummary old = createBuild(1L, 1L, BuildStatus.SUCCESS);
+        old.setStartedAt(new Date(1_000L));
+        BuildSummary recent = createBuild(2L, 1L, BuildStatus.SUCCESS);
+        recent.setStartedAt(new Date(5_000L));
+        catalog.upsert(old);
+        catalog.upsert(recent);
+
+        BuildQuery query = new BuildQuery();
+        query.setStartedFrom(new Date(2_000L));
+
+        // Act & Assert
+        assertEquals(List.of(2L), catalog.findIds(query, 10));
+    }
+
+    private static Map<Long, List<Long>> withoutNullKey(Map<Long, List<Long>> byJob) {
+        Map<Long, List<Long>> result = new HashMap<>(byJob);
+        result.remove(null);
+        return result;
+    }
+
+    private BuildSummary createBuild(Long id, Long jobId, BuildStatus status, String branch, String owner, String name) {
+        BuildSummary build = createBuild(id, jobId, status);
+        build.setBranch(branch);
+        build.setRepositoryOwner(owner);
+        build.setRepositoryName(name);
+        return build;
+    }
+
+    private BuildSummary createBuild(Long id, Long jobId, BuildStatus status) {
+        BuildSummary build = new BuildSummary();
+        build.setId(id);
+        build.setJobId(jobId);
+        build.setBranch("main");
+        build.setRepositoryOwner("testowner");
+        build.setRepositoryName("testrepo");
+        build.setStatus(status);
+        build.setStartedAt(new Date());
+        build.setTriggeredBy("testuser");
+        return build;
+    }
+}
@@ -0,0 +1,401 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knullci.knull.domain.model.LogDownload;
+import org.knullci.knull.domain.model.LogLines;
+import org.knullci.knull.domain.model.LogMatch;
+import org.knullci.knull.domain.model.LogSearchResult;
+import org.knullci.knull.domain.model.LogSlice;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BuildLogRepositoryImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BuildLogRepositoryImpl buildLogRepository;
+
+    @BeforeEach
+    void setUp() {
+        buildLogRepository = new BuildLogRepositoryImpl(tempDir.toString());
+    }
+
+    @AfterEach
+    void tearDown() {
+        buildLogRepository.closeAll();
+    }
+
+    @Test
+    void testAppend_ShouldReturnLengthInBytes() {
+        // Act
+        long first = buildLogRepository.append(1L, "Build started...\n");
+        long second = buildLogRepository.append(1L, "héllo\n");
+
+        // Assert
+        assertEquals(17L, first);
+        assertEquals(24L, second);
+        assertEquals(24L, buildLogRepository.length(1L));
+    }
+
+    @Test
+    void testAppend_WithBuffers_ShouldWriteThemInOrderAndIndexLines() {
+        // Arrange
+        buildLogRepository.append(1L, "header\n");
+        ByteBuffer first = ByteBuffer.wrap("line 1\nline".getBytes(StandardCharsets.UTF_8));
+        ByteBuffer second = ByteBuffer.wrap(" 2\n".getBytes(StandardCharsets.UTF_8));
+
+        // Act
+        long length = buildLogRepository.append(1L, List.of(first, second));
+
+        // Assert
+        assertEquals(21L, length);
+        assertEquals("header\nline 1\nline 2\n", buildLogRepository.read(1L));
+        assertEquals(List.of("line 1", "line 2"), buildLogRepository.readLines(1L, 1, 10).getLines());
+        assertEquals(0, first.position());
+        assertEquals(0, second.position());
+    }
+
+    @Test
+    void testRead_ShouldReturnAppendedContentInOrder() {
+        // Arrange
+        buildLogRepository.append(1L, "line 1\n");
+        buildLogRepository.append(1L, "line 2\n");
+
+        // Act
+        String log = buildLogRepository.read(1L);
+
+        // Assert
+        assertEquals("line 1\nline 2\n", log);
+    }
+
+    @Test
+    void testRead_FromOffset_ShouldReturnOnlyNewContent() {
+        // Arrange
+        long offset = buildLogRepository.append(1L, "line 1\n");
+        buildLogRepository.append(1L, "line 2\n");
+
+        // Act & Assert
+        assertEquals("line 2\n", buildLogRepository.read(1L, offset));
+        assertEquals("", buildLogRepository.read(1L, 1000L));
+    }
+
+    @Test
+    void testRead_WithRange_ShouldReturnOnlyThatRange() {
+        // Arrange
+        long offset = buildLogRepository.append(1L, "=== step ===\n");
+        long end = buildLogRepository.append(1L, "step output\n");
+        buildLogRepository.append(1L, "later\n");
+
+        // Act & Assert
+        assertEquals("step output\n", buildLogRepository.read(1L, offset, end - offset).getText());
+        assertEquals("later\n", buildLogRepository.read(1L, end, 1000L).getText());
+    }
+
+    @Test
+    void testRead_WithRangeEndingInsideCharacter_ShouldReturnEndOffsetOfBytesRead() {
+        // Arrange
+        long offset = buildLogRepository.append(1L, "x\n");
+        buildLogRepository.append(1L, "caf\u00e9\n");
+
+        // Act
+        LogSlice slice = buildLogRepository.read(1L, offset, 4);
+
+        // Assert
+        assertEquals(offset + 4, slice.getEndOffset());
+        assertEquals("caf\ufffd", slice.getText());
+    }
+
+    @Test
+    void testRead_WhenNoLog_ShouldReturnEmptyString() {
+        assertEquals("", buildLogRepository.read(42L));
+        assertEquals(0L, buildLogRepository.length(42L));
+    }
+
+    @Test
+    void testAppend_AfterClose_ShouldReopenAndContinue() {
+        // Arrange
+        buildLogRepository.append(1L, "before\n");
+        buildLogRepository.close(1L);
+
+        // Act
+        buildLogRepository.append(1L, "after\n");
+
+        // Assert
+        assertEquals("before\nafter\n", buildLogRepository.read(1L));
+    }
+
+    @Test
+    void testDelete_ShouldRemoveLogFile() {
+        // Arrange
+        buildLogRepository.append(1L, "content\n");
+
+        // Act
+        long freed = buildLogRepository.delete(1L);
+
+        // Assert
+        assertFalse(Files.exists(Path.of(buildLogRepository.getLogPath(1L))));
+        assertEquals(8L, freed);
+    }
+
+    @Test
+    void testReadLines_ShouldReturnRequestedWindow() {
+        // Arrange
+        for (int i = 0; i < 10; i++) {
+            buildLogRepository.append(1L, "line " + i + "\n");
+        }
+
+        // Act
+        LogLines window = buildLogRepository.readLines(1L, 3, 2);
+
+        // Assert
+        assertEquals(3L, window.getFromLine());
+        assertEquals(10L, window.getTotalLines());
+        assertEquals(List.of("line 3", "line 4"), window.getLines());
+        assertEquals(35L, window.getEndOffset());
+    }
+
+    @Test
+    void testReadLines_WithNegativeFromLine_ShouldReturnTail() {
+        // Arrange
+        buildLogRepository.append(1L, "a\nb\n");
+        buildLogRepository.append(1L, "c\npartial");
+
+        // Act
+        LogLines window = buildLogRepository.readLines(1L, -2, 10);
+
+        // Assert
+        assertEquals(2L, window.getFromLine());
+        assertEquals(4L, window.getTotalLines());
+        assertEquals(List.of("c", "partial"), window.getLines());
+        assertEquals(buildLogRepository.length(1L), window.getEndOffset());
+    }
+
+    @Test
+    void testReadLines_AfterClose_ShouldUseStoredIndex() {
+        // Arrange
+        buildLogRepository.append(1L, "first\nsecond\n");
+        buildLogRepository.close(1L);
+
+        // Act
+        LogLines window = buildLogRepository.readLines(1L, 1, 5);
+
+        // Assert
+        assertEquals(List.of("second"), window.getLines());
+        assertEquals(2L, window.getTotalLines());
+    }
+
+    @Test
+    void testReadLines_WhenIndexMissing_ShouldIndexExistingLog() throws Exception {
+        // Arrange - a log written before line indexes existed
+        Files.writeString(tempDir.resolve("7.log"), "x\ny\nz\n");
+
+        // Act
+        LogLines window = buildLogRepository.readLines(7L, -1, 1);
+
+        // Assert
+        assertEquals(List.of("z"), window.getLines());
+        assertEquals(3L, window.getTotalLines());
+        assertTrue(Files.exists(tempDir.resolve("7.idx")));
+    }
+
+    @Test
+    void testReadLines_WhenNoLog_ShouldReturnEmptyWindow() {
+        // Act
+        LogLines window = buildLogRepository.readLines(42L, 0, 10);
+
+        // Assert
+        assertEquals(0L, window.getTotalLines());
+        assertTrue(window.getLines().isEmpty());
+    }
+
+    @Test
+    void testSearch_ShouldReturnMatchesWithContext() {
+        // Arrange
+        buildLogRepository.append(1L, "compile\ntest A\nBUILD FAILURE\ncleanup\n");
+
+        // Act
+        LogSearchResult result = buildLogRepository.search(1L, Pattern.compile(Pattern.quote("BUILD FAILURE")), 1, 10,
+                5_000);
+
+        // Assert
+        assertEquals(1, result.getMatches().size());
+        LogMatch match = result.getMatches().get(0);
+        assertEquals(2L, match.getLineNumber());
+        assertEquals("BUILD FAILURE", match.getLine());
+        assertEquals(List.of("test A"), match.getBefore());
+        assertEquals(List.of("cleanup"), match.getAfter());
+        assertFalse(result.isTruncated());
+    }
+
+    @Test
+    void testSearch_WhenMatchLimitReached_ShouldStopEarly() {
+        // Arrange
+        for (int i = 0; i < 50; i++) {
+            buildLogRepository.append(1L, "error " + i + "\n");
+        }
+
+        // Act
+        LogSearchResult result = buildLogRepository.search(1L, Pattern.compile("error \\d+"), 0, 3, 5_000);
+
+        // Assert
+        assertEquals(3, result.getMatches().size());
+        assertEquals(2L, result.getMatches().get(2).getLineNumber());
+        assertTrue(result.isTruncated());
+    }
+
+    @Test
+    void testSearch_WhileBuildIsRunning_ShouldIncludeUnterminatedLastLine() {
+        // Arrange
+        buildLogRepository.append(1L, "step 1\r\nrunning tests");
+
+        // Act
+        LogSearchResult result = buildLogRepository.search(1L, Pattern.compile("step|tests"), 0, 10, 5_000);
+
+        // Assert
+        assertEquals(List.of("step 1", "running tests"),
+                result.getMatches().stream().map(LogMatch::getLine).toList());
+        assertEquals(buildLogRepository.length(1L), result.getLogLength());
+    }
+
+    @Test
+    void testSearch_WhenPatternBacktracksPastTimeLimit_ShouldReturnPartialResult() {
+        // Arrange
+        buildLogRepository.append(1L, "x\n" + "a".repeat(30) + "!\nx\n");
+
+        // Act
+        LogSearchResult result = buildLogRepository.search(1L, Pattern.compile("x|(.*a){31}"), 0, 10, 100);
+
+        // Assert
+        assertTrue(result.isTimedOut());
+        assertEquals(List.of("x"), result.getMatches().stream().map(LogMatch::getLine).toList());
+    }
+
+    @Test
+    void testSearch_WhenNoLog_ShouldReturnNoMatches() {
+        // Act
+        LogSearchResult result = buildLogRepository.search(42L, Pattern.compile("x"), 2, 10, 5_000);
+
+        // Assert
+        assertTrue(result.getMatches().isEmpty());
+        assertEquals(0L, result.getLogLength());
+    }
+
+    @Test
+    void testArchive_ShouldReplaceLogAndKeepItReadable() {
+        // Arrange
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            log.append("output line ").append(i).append('\n');
+        }
+        buildLogRepository.append(1L, log.toString());
+
+        // Act
+        buildLogRepository.archive(1L);
+
+        // Assert
+        assertFalse(Files.exists(tempDir.resolve("1.log")));
+        assertTrue(Files.exists(tempDir.resolve("1.log.gz")));
+        assertEquals(log.length(), buildLogRepository.length(1L));
+        assertEquals(log.toString(), buildLogRepository.read(1L));
+        assertEquals("output line 19999\n", buildLogRepository.read(1L, log.length() - 18));
+        LogLines window = buildLogRepository.readLines(1L, 9999, 2);
+        assertEquals(List.of("output line 9999", "output line 10000"), window.getLines());
+        LogSearchResult result = buildLogRepository.search(1L, Pattern.compile("line 15000$"), 0, 10, 5_000);
+        assertEquals(15000L, result.getMatches().get(0).getLineNumber());
+    }
+
+    @Test
+    void testOpenDownload_WhenArchivedAndGzipAccepted_ShouldSendStoredBytes() throws Exception {
+        // Arrange
+        buildLogRepository.append(1L, "compressed log\n");
+        buildLogRepository.archive(1L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        try (LogDownload download = buildLogRepository.openDownload(1L, true).orElseThrow()) {
+            download.transferTo(Channels.newChannel(out));
+
+            // Assert
+            assertTrue(download.isGzip());
+            assertEquals(Files.size(tempDir.resolve("1.log.gz")), download.getLength());
+        }
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            assertEquals("compressed log\n", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    void testOpenDownload_WhenArchivedAndGzipNotAccepted_ShouldInflate() throws Exception {
+        // Arrange
+        buildLogRepository.append(1L, "plain log\n");
+        buildLogRepository.archive(1L);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        try (LogDownload download = buildLogRepository.openDownload(1L, false).orElseThrow()) {
+            download.transferTo(Channels.newChannel(out));
+
+            // Assert
+            assertFalse(download.isGzip());
+            assertEquals(10L, download.getLength());
+        }
+        assertEquals("plain log\n", out.toString(StandardCharsets.UTF_8));
+        assertTrue(buildLogRepository.openDownload(99L, true).isEmpty());
+    }
+
+    @Test
+    void testAppend_WhenLogIsArchived_ShouldRestoreAndAppend() {
+        // Arrange
+        buildLogRepository.append(1L, "before\n");
+        buildLogRepository.archive(1L);
+
+        // Act
+        long length = buildLogRepository.append(1L, "after\n");
+
+        // Assert
+        assertEquals(13L, length);
+        assertEquals("before\nafter\n", buildLogRepository.read(1L));
+        assertFalse(Files.exists(tempDir.resolve("1.log.gz")));
+    }
+
+    @Test
+    void testDelete_WhenArchived_ShouldRemoveArchive() {
+        // Arrange
+        buildLogRepository.append(1L, "line\n");
+        buildLogRepository.archive(1L);
+
+        // Act
+        buildLogRepository.delete(1L);
+
+        // Assert
+        assertFalse(Files.exists(tempDir.resolve("1.log.gz")));
+        assertFalse(Files.exists(tempDir.resolve("1.frames")));
+        assertEquals(0L, buildLogRepository.length(1L));
+    }
+
+    @Test
+    void testArchive_WhenAlreadyArchived_ShouldReturnFalse() {
+        // Arrange
+        buildLogRepository.append(1L, "line\n");
+
+        // Act & Assert
+        assertTrue(buildLogRepository.archive(1L));
+        assertFalse(buildLogRepository.archive(1L));
+        assertFalse(buildLogRepository.archive(2L));
+    }
+}
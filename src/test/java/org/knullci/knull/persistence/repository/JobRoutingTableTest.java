@@ -0,0 +1,137 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.Test;
+import org.knullci.knull.domain.enums.JobType;
+import org.knullci.knull.domain.model.Job;
+import org.knullci.knull.domain.model.JobConfig;
+import org.knullci.knull.domain.model.MultiBranchJobConfig;
+import org.knullci.knull.domain.model.SimpleJobConfig;
+
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobRoutingTableTest {
+
+    @Test
+    void testRepositoryKey_ShouldNormalizeUrlForms() {
+        assertEquals("github.com/owner/repo", JobRoutingTable.repositoryKey("https://github.com/Owner/repo.git"));
+        assertEquals("github.com/owner/repo", JobRoutingTable.repositoryKey("https://GitHub.com/owner/repo/"));
+        assertEquals("github.com/owner/repo", JobRoutingTable.repositoryKey("git@github.com:owner/repo.git"));
+        assertEquals("github.com/owner/repo", JobRoutingTable.repositoryKey(" ssh://git@github.com/owner/repo "));
+        assertEquals("ghe.example.com/owner/repo",
+                JobRoutingTable.repositoryKey("ssh://git@ghe.example.com:2222/owner/repo.git"));
+        assertNull(JobRoutingTable.repositoryKey("owner/repo"));
+        assertNull(JobRoutingTable.repositoryKey("file:///owner/repo"));
+        assertNull(JobRoutingTable.repositoryKey("repo"));
+        assertNull(JobRoutingTable.repositoryKey(null));
+    }
+
+    @Test
+    void testFind_WhenSimpleJob_ShouldMatchExactBranchOnly() {
+        // Arrange
+        JobRoutingTable table = new JobRoutingTable();
+        Job job = createJob(1L, new SimpleJobConfig(1L, "https://github.com/owner/repo", null, "main", "knull.yaml"));
+        table.put(job);
+
+        // Act & Assert
+        assertEquals(List.of(job), table.find("https://github.com/Owner/Repo", "main"));
+        assertTrue(table.find("https://github.com/owner/repo", "main-old").isEmpty());
+        assertTrue(table.find("https://github.com/owner/other", "main").isEmpty());
+    }
+
+    @Test
+    void testFind_WhenSimpleJob_ShouldNoLongerMatchBranchBySubstring() {
+        // Arrange - simple jobs used to match when their branch contained the pushed one
+        JobRoutingTable table = new JobRoutingTable();
+        table.put(createJob(1L, new SimpleJobConfig(1L, "https://github.com/owner/repo", null, "main,develop",
+                "knull.yaml")));
+        table.put(createJob(2L, new SimpleJobConfig(2L, "https://github.com/owner/repo", null, "release",
+                "knull.yaml")));
+
+        // Act & Assert
+        assertTrue(table.find("https://github.com/owner/repo", "develop").isEmpty());
+        assertTrue(table.find("https://github.com/owner/repo", "main").isEmpty());
+        assertTrue(table.find("https://github.com/owner/repo", "lease").isEmpty());
+        assertEquals(1, table.find("https://github.com/owner/repo", "main,develop").size());
+    }
+
+    @Test
+    void testFind_WhenSameRepositoryOnTwoHosts_ShouldRouteByHost() {
+        // Arrange
+        JobRoutingTable table = new JobRoutingTable();
+        Job github = createJob(1L, new SimpleJobConfig(1L, "https://github.com/owner/repo", null, "main",
+                "knull.yaml"));
+        Job enterprise = createJob(2L, new SimpleJobConfig(2L, "git@ghe.example.com:owner/repo.git", null, "main",
+                "knull.yaml"));
+        table.put(github);
+        table.put(enterprise);
+
+        // Act & Assert
+        assertEquals(List.of(github), table.find("https://github.com/owner/repo", "main"));
+        assertEquals(List.of(enterprise), table.find("https://ghe.example.com/owner/repo", "main"));
+        assertTrue(table.find("https://gitlab.com/owner/repo", "main").isEmpty());
+    }
+
+    @Test
+    void testFind_WhenMultiBranchJob_ShouldMatchAlternativesAndWildcards() {
+        // Arrange
+        JobRoutingTable table = new JobRoutingTable();
+        Job job = createJob(1L, new MultiBranchJobConfig(1L, "git@github.com:owner/repo.git", null,
+                "main | release/*", "knull.yaml"));
+        table.put(job);
+
+        // Act & Assert
+        assertEquals(1, table.find("https://github.com/owner/repo", "main").size());
+        assertEquals(1, table.find("https://github.com/owner/repo", "release/1.2").size());
+        assertTrue(table.find("https://github.com/owner/repo", "feature/release/1.2").isEmpty());
+        assertTrue(table.find("https://github.com/owner/repo", "main2").isEmpty());
+    }
+
+    @Test
+    void testFind_WhenPatternHasRegexCharacters_ShouldTreatThemLiterally() {
+        // Arrange
+        JobRoutingTable table = new JobRoutingTable();
+        table.put(createJob(1L, new MultiBranchJobConfig(1L, "https://github.com/owner/repo", null,
+                "v1.0", "knull.yaml")));
+
+        // Act & Assert
+        assertEquals(1, table.find("https://github.com/owner/repo", "v1.0").size());
+        assertTrue(table.find("https://github.com/owner/repo", "v1x0").isEmpty());
+    }
+
+    @Test
+    void testPut_WhenJobRepositoryChanges_ShouldMoveRoute() {
+        // Arrange
+        JobRoutingTable table = new JobRoutingTable();
+        table.put(createJob(1L, new SimpleJobConfig(1L, "https://github.com/owner/repo", null, "main", "knull.yaml")));
+
+        // Act
+        table.put(createJob(1L, new SimpleJobConfig(1L, "https://github.com/owner/moved", null, "main", "knull.yaml")));
+
+        // Assert
+        assertTrue(table.find("https://github.com/owner/repo", "main").isEmpty());
+        assertEquals(1, table.find("https://github.com/owner/moved", "main").size());
+    }
+
+    @Test
+    void testRemove_ShouldOnlyDropGivenJob() {
+        // Arrange
+        JobRoutingTable table = new JobRoutingTable();
+        table.put(createJob(1L, new SimpleJobConfig(1L, "https://github.com/owner/repo", null, "main", "knull.yaml")));
+        Job kept = createJob(2L, new MultiBranchJobConfig(2L, "https://github.com/owner/repo", null, "", "knull.yaml"));
+        table.put(kept);
+
+        // Act
+        table.remove(1L);
+
+        // Assert
+        assertEquals(List.of(kept), table.find("https://github.com/owner/repo", "main"));
+    }
+
+    private Job createJob(Long id, JobConfig config) {
+        JobType type = config instanceof SimpleJobConfig ? JobType.SIMPLE : JobType.MULTIBRANCH;
+        return new Job(id, "Job " + id, "Description", type, config, false, true, null, new Date(), null, new Date());
+    }
+}
@@ -0,0 +1,224 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knullci.knull.persistence.entity.BuildStepOutputs;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JsonKnullRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testSave_ShouldReplaceFileWithoutLeavingTempFiles() throws Exception {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+
+        // Act
+        repository.save("1", new BuildStepOutputs(1L, List.of("old")));
+        repository.save("1", new BuildStepOutputs(1L, List.of("new")));
+
+        // Assert
+        assertEquals(List.of("new"), repository.getByFileName("1.json").getOutputs());
+        assertEquals(List.of("1.json"), listFileNames());
+    }
+
+    @Test
+    void testConstructor_ShouldDeleteStaleTempFiles() throws Exception {
+        // Arrange
+        Files.writeString(tempDir.resolve("1.json.7.tmp"), "{\"id\":1,");
+
+        // Act
+        new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+
+        // Assert
+        assertTrue(listFileNames().isEmpty());
+    }
+
+    @Test
+    void testGetAll_WithTruncatedFile_ShouldSkipIt() throws Exception {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+        repository.save("1", new BuildStepOutputs(1L, List.of("ok")));
+        Files.writeString(tempDir.resolve("2.json"), "{\"id\":2,\"outp");
+
+        // Act
+        List<BuildStepOutputs> result = repository.getAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(1L, result.get(0).getId());
+    }
+
+    @Test
+    void testStream_ShouldSupportShortCircuitingAndParallelUse() {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+        for (long id = 1; id <= 20; id++) {
+            repository.save(String.valueOf(id), new BuildStepOutputs(id, List.of("output " + id)));
+        }
+
+        // Act
+        long parallelCount;
+        BuildStepOutputs match;
+        try (var outputs = repository.stream()) {
+            match = outputs.filter(output -> output.getId() == 7L).findFirst().orElseThrow();
+        }
+        try (var outputs = repository.stream()) {
+            parallelCount = outputs.parallel().filter(output -> output.getOutputs().size() == 1).count();
+        }
+
+        // Assert
+        assertEquals(List.of("output 7"), match.getOutputs());
+        assertEquals(20, parallelCount);
+    }
+
+    @Test
+    void testCount_ShouldCountDocumentsWithoutParsingThem() throws Exception {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+        repository.save("1", new BuildStepOutputs(1L, List.of("ok")));
+        Files.writeString(tempDir.resolve("2.json"), "not json");
+
+        // Act & Assert - the id sequence file is not a document
+        assertEquals(2, repository.count());
+    }
+
+    @Test
+    void testSave_WithGroupCommit_ShouldPersistAllConcurrentWrites() throws Exception {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class, 5);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            long buildId = id;
+            futures.add(writers.submit(() -> repository.save(String.valueOf(buildId),
+                    new BuildStepOutputs(buildId, List.of("output " + buildId)))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        writers.shutdown();
+        repository.close();
+
+        // Assert - every save returned only after its file was in place
+        assertEquals(40, repository.getAll().size());
+        assertEquals(List.of("output 17"), repository.getByFileName("17.json").getOutputs());
+        assertTrue(listFileNames().stream().noneMatch(name -> name.endsWith(".tmp")));
+    }
+
+    @Test
+    void testDeleteByFileName_WithGroupCommit_ShouldDeleteFile() {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class, 5);
+        repository.save("1", new BuildStepOutputs(1L, List.of("output")));
+
+        // Act
+        repository.deleteByFileName("1");
+        repository.close();
+
+        // Assert
+        assertNull(repository.getByFileName("1.json"));
+    }
+
+    @Test
+    void testLoad_WithCheckpoint_ShouldServeUnchangedDocumentsAndReadJournaledFiles() throws Exception {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+        repository.save("1", new BuildStepOutputs(1L, List.of("one")));
+        repository.save("2", new BuildStepOutputs(2L, List.of("two")));
+        repository.save("3", new BuildStepOutputs(3L, List.of("three")));
+        repository.load().close();
+        repository.writeCheckpoint();
+
+        // An edit made outside the repository is not journaled, so its file is never read
+        Files.writeString(tempDir.resolve("1.json"), "{\"id\":1,\"outputs\":[\"edited\"]}");
+        repository.save("2", new BuildStepOutputs(2L, List.of("two again")));
+        repository.deleteByFileName("3");
+        repository.save("4", new BuildStepOutputs(4L, List.of("four")));
+
+        // Act
+        Map<Long, List<String>> result;
+        try (var documents = new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class).load()) {
+            result = documents.collect(Collectors.toMap(BuildStepOutputs::getId, BuildStepOutputs::getOutputs));
+        }
+
+        // Assert
+        assertEquals(Map.of(
+                1L, List.of("one"),
+                2L, List.of("two again"),
+                4L, List.of("four")), result);
+    }
+
+    @Test
+    void testSave_BeforeLoad_ShouldDiscardCheckpoint() throws Exception {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+        repository.save("1", new BuildStepOutputs(1L, List.of("one")));
+        repository.load().close();
+        repository.close();
+
+        // Act - saves are not journaled until load() is used
+        JsonKnullRepository<BuildStepOutputs> reopened =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+        reopened.save("1", new BuildStepOutputs(1L, List.of("one again")));
+        List<BuildStepOutputs> result;
+        try (var documents = reopened.load()) {
+            result = documents.toList();
+        }
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(List.of("one again"), result.get(0).getOutputs());
+    }
+
+    @Test
+    void testLoad_WithCorruptCheckpoint_ShouldReadAllFilesAndRewriteItOnClose() throws Exception {
+        // Arrange
+        JsonKnullRepository<BuildStepOutputs> repository =
+                new JsonKnullRepository<>(tempDir.toString(), BuildStepOutputs.class);
+        repository.save("1", new BuildStepOutputs(1L, List.of("one")));
+        repository.save("2", new BuildStepOutputs(2L, List.of("two")));
+        Path checkpoint = tempDir.resolve("documents.checkpoint");
+        Files.write(checkpoint, new byte[]{0x1f, (byte) 0x8b, 8, 0, 1, 2, 3});
+
+        // Act
+        long loaded;
+        try (var documents = repository.load()) {
+            loaded = documents.count();
+        }
+        repository.close();
+
+        // Assert
+        assertEquals(2, loaded);
+        assertNotNull(DocumentCheckpoint.read(checkpoint));
+    }
+
+    private List<String> listFileNames() throws Exception {
+        try (var files = Files.list(tempDir)) {
+            return files.map(path -> path.getFileName().toString()).toList();
+        }
+    }
+}
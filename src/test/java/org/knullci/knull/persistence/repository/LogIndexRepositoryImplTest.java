@@ -0,0 +1,167 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knullci.knull.domain.model.LogSearchHit;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogIndexRepositoryImplTest {
+
+    @TempDir
+    Path tempDir;
+
+    private BuildLogRepositoryImpl buildLogRepository;
+    private LogIndexRepositoryImpl logIndexRepository;
+
+    @BeforeEach
+    void setUp() {
+        buildLogRepository = new BuildLogRepositoryImpl(tempDir.resolve("logs").toString());
+        logIndexRepository = new LogIndexRepositoryImpl(buildLogRepository, tempDir.resolve("index").toString(),
+                1000, 4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logIndexRepository.close();
+        buildLogRepository.closeAll();
+    }
+
+    @Test
+    void testSearch_ShouldReturnLinesContainingEveryWordMostRecentFirst() {
+        // Arrange
+        writeLog(1L, "compile\njava.lang.NullPointerException: at Foo.bar\ndone\n");
+        writeLog(2L, "compile\nok\n");
+        writeLog(3L, "start\nNullPointerException elsewhere\njava.lang.NullPointerException: at Foo.bar\n");
+
+        // Act
+        List<LogSearchHit> hits = logIndexRepository.search("java.lang.NullPointerException", 10, 10);
+
+        // Assert
+        assertEquals(List.of(3L, 1L), hits.stream().map(LogSearchHit::getBuildId).toList());
+        assertEquals(List.of(2L), hits.get(0).getLines());
+        assertEquals(List.of(1L), hits.get(1).getLines());
+    }
+
+    @Test
+    void testSearch_ShouldLimitBuildsAndLines() {
+        // Arrange
+        writeLog(1L, "flaky test\n");
+        writeLog(2L, "flaky test\nflaky test again\nflaky test once more\n");
+
+        // Act
+        List<LogSearchHit> hits = logIndexRepository.search("FLAKY", 1, 2);
+
+        // Assert
+        assertEquals(1, hits.size());
+        assertEquals(2L, hits.get(0).getBuildId());
+        assertEquals(3, hits.get(0).getMatchCount());
+        assertEquals(List.of(0L, 1L), hits.get(0).getLines());
+    }
+
+    @Test
+    void testSearch_WhenWordIsMissing_ShouldReturnNothing() {
+        // Arrange
+        writeLog(1L, "timeout waiting for server\n");
+
+        // Act & Assert
+        assertTrue(logIndexRepository.search("timeout database", 10, 10).isEmpty());
+        assertTrue(logIndexRepository.search("!!", 10, 10).isEmpty());
+    }
+
+    @Test
+    void testIndex_WhenSegmentsExceedLimit_ShouldMergeAndKeepResults() throws Exception {
+        // Arrange & Act
+        for (long id = 1; id <= 12; id++) {
+            writeLog(id, "build " + id + "\nconnection refused\n");
+        }
+
+        // Assert
+        long segmentCount;
+        try (var files = Files.list(tempDir.resolve("index"))) {
+            segmentCount = files.filter(file -> file.toString().endsWith(".seg")).count();
+        }
+        assertTrue(segmentCount <= 4);
+        List<LogSearchHit> hits = logIndexRepository.search("connection refused", 20, 10);
+        assertEquals(12, hits.size());
+        assertEquals(12L, hits.get(0).getBuildId());
+        assertEquals(List.of(1L), hits.get(11).getLines());
+    }
+
+    @Test
+    void testIndex_WhenBufferOverflows_ShouldCombineSegmentsOfOneBuild() {
+        // Arrange - more postings than the buffer holds, so the build spans several segments
+        StringBuilder log = new StringBuilder();
+        for (int i = 0; i < 600; i++) {
+            log.append("step output line ").append(i).append('\n');
+        }
+        log.append("assertion failed\n");
+
+        // Act
+        writeLog(1L, log.toString());
+
+        // Assert
+        List<LogSearchHit> hits = logIndexRepository.search("output line", 10, 1000);
+        assertEquals(1, hits.size());
+        assertEquals(600, hits.get(0).getMatchCount());
+        assertEquals(List.of(600L), logIndexRepository.search("assertion", 10, 10).get(0).getLines());
+    }
+
+    @Test
+    void testReopen_ShouldSearchExistingSegments() {
+        // Arrange
+        writeLog(1L, "OutOfMemoryError\n");
+        logIndexRepository.close();
+
+        // Act
+        logIndexRepository = new LogIndexRepositoryImpl(buildLogRepository, tempDir.resolve("index").toString(),
+                1000, 4);
+
+        // Assert
+        assertEquals(1, logIndexRepository.search("outofmemoryerror", 10, 10).size());
+    }
+
+    @Test
+    void testRemove_ShouldHideBuildAcrossMergesAndRestarts() {
+        // Arrange
+        for (long id = 1; id <= 6; id++) {
+            writeLog(id, "disk full\n");
+        }
+
+        // Act
+        logIndexRepository.remove(2L);
+        for (long id = 7; id <= 12; id++) {
+            writeLog(id, "disk full\n");
+        }
+        logIndexRepository.close();
+        logIndexRepository = new LogIndexRepositoryImpl(buildLogRepository, tempDir.resolve("index").toString(),
+                1000, 4);
+
+        // Assert
+        List<Long> buildIds = logIndexRepository.search("disk full", 20, 10).stream()
+                .map(LogSearchHit::getBuildId)
+                .toList();
+        assertEquals(11, buildIds.size());
+        assertFalse(buildIds.contains(2L));
+    }
+
+    @Test
+    void testTokenize_ShouldSplitOnNonWordCharactersAndLowerCase() {
+        // Act & Assert
+        assertEquals(Set.of("java", "lang", "illegalstateexception", "42"),
+                LogIndexRepositoryImpl.tokenize("java.lang.IllegalStateException: a 42"));
+    }
+
+    private void writeLog(Long buildId, String text) {
+        buildLogRepository.append(buildId, text);
+        buildLogRepository.close(buildId);
+        logIndexRepository.index(buildId);
+    }
+}
@@ -0,0 +1,209 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.knullci.knull.persistence.entity.BuildStepOutputs;
+
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SegmentKnullRepositoryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private SegmentKnullRepository<BuildStepOutputs> repository;
+
+    @BeforeEach
+    void setUp() {
+        repository = open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.close();
+    }
+
+    @Test
+    void testSave_ShouldBeReadableByFileName() {
+        // Act
+        repository.save("1", new BuildStepOutputs(1L, List.of("first")));
+
+        // Assert
+        BuildStepOutputs result = repository.getByFileName("1.json");
+        assertNotNull(result);
+        assertEquals(List.of("first"), result.getOutputs());
+        assertNull(repository.getByFileName("2.json"));
+    }
+
+    @Test
+    void testReopen_ShouldReplayLatestRecords() {
+        // Arrange
+        repository.save("1", new BuildStepOutputs(1L, List.of("old")));
+        repository.save("1", new BuildStepOutputs(1L, List.of("new")));
+        repository.save("2", new BuildStepOutputs(2L, List.of("other")));
+        repository.deleteByFileName("2");
+        repository.close();
+
+        // Act
+        repository = open();
+
+        // Assert
+        assertEquals(1, repository.getAll().size());
+        assertEquals(List.of("new"), repository.getByFileName("1.json").getOutputs());
+        assertEquals(3L, repository.getNextFileId());
+    }
+
+    @Test
+    void testStream_WhenRecordDeletedAfterStart_ShouldSkipIt() {
+        // Arrange
+        for (long id = 1; id <= 5; id++) {
+            repository.save(String.valueOf(id), new BuildStepOutputs(id, List.of("output " + id)));
+        }
+
+        // Act
+        List<Long> ids;
+        try (var outputs = repository.stream()) {
+            repository.deleteByFileName("3");
+            ids = outputs.map(BuildStepOutputs::getId).sorted().toList();
+        }
+
+        // Assert
+        assertEquals(List.of(1L, 2L, 4L, 5L), ids);
+        assertEquals(4, repository.count());
+    }
+
+    @Test
+    void testDeleteByFileName_WhenMissing_ShouldThrow() {
+        // Act & Assert
+        assertThrows(RuntimeException.class, () -> repository.deleteByFileName("42"));
+    }
+
+    @Test
+    void testReopen_WithTornTail_ShouldTruncateAndKeepEarlierRecords() throws Exception {
+        // Arrange
+        repository.save("1", new BuildStepOutputs(1L, List.of("kept")));
+        repository.save("2", new BuildStepOutputs(2L, List.of("torn")));
+        repository.close();
+        Path segment = tempDir.resolve("segment-00000001.seg");
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        // Act
+        repository = open();
+
+        // Assert
+        assertEquals(List.of("kept"), repository.getByFileName("1.json").getOutputs());
+        assertNull(repository.getByFileName("2.json"));
+
+        // New writes go after the truncated tail and survive another restart
+        repository.save("3", new BuildStepOutputs(3L, List.of("after")));
+        repository.close();
+        repository = open();
+        assertEquals(List.of("after"), repository.getByFileName("3.json").getOutputs());
+    }
+
+    @Test
+    void testCompact_ShouldDropSupersededRecords() throws Exception {
+        // Arrange
+        for (int i = 0; i < 50; i++) {
+            repository.save("1", new BuildStepOutputs(1L, List.of("version " + i)));
+        }
+        long sizeBefore = totalSegmentBytes();
+
+        // Act
+        repository.compact();
+
+        // Assert
+        assertTrue(totalSegmentBytes() < sizeBefore);
+        assertEquals(List.of("version 49"), repository.getByFileName("1.json").getOutputs());
+        repository.close();
+        repository = open();
+        assertEquals(List.of("version 49"), repository.getByFileName("1.json").getOutputs());
+    }
+
+    @Test
+    void testSave_BeyondSegmentSize_ShouldRollOverToNewSegment() {
+        // Act
+        for (long id = 1; id <= 20; id++) {
+            repository.save(String.valueOf(id), new BuildStepOutputs(id, List.of("output of build " + id)));
+        }
+
+        // Assert
+        assertTrue(repository.segmentCount() > 1);
+        assertEquals(20, repository.getAll().size());
+        assertEquals(21L, repository.getNextFileId());
+    }
+
+    @Test
+    void testSave_WithGroupCommit_ShouldPersistAllConcurrentWrites() throws Exception {
+        // Arrange
+        repository.close();
+        repository = new SegmentKnullRepository<>(tempDir.toString(), BuildStepOutputs.class, 256, 0, 5);
+        ExecutorService writers = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            long buildId = id;
+            futures.add(writers.submit(() -> repository.save(String.valueOf(buildId),
+                    new BuildStepOutputs(buildId, List.of("output " + buildId)))));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        writers.shutdown();
+        repository.deleteByFileName("40");
+        repository.close();
+
+        // Assert
+        repository = open();
+        assertEquals(39, repository.getAll().size());
+        assertEquals(List.of("output 17"), repository.getByFileName("17.json").getOutputs());
+        assertNull(repository.getByFileName("40.json"));
+    }
+
+    @Test
+    void testMigrate_ShouldCopyJsonFilesAndMoveThemToBackup() throws Exception {
+        // Arrange
+        repository.close();
+        Path jsonDir = Files.createDirectories(tempDir.resolve("json"));
+        Files.writeString(jsonDir.resolve("1.json"), "{\"id\":1,\"outputs\":[\"a\"]}");
+        Files.writeString(jsonDir.resolve("2.json"), "{\"id\":2,\"outputs\":[\"b\"]}");
+
+        // Act
+        int migrated = SegmentStoreMigration.migrate(jsonDir.toString());
+
+        // Assert
+        assertEquals(2, migrated);
+        assertFalse(Files.exists(jsonDir.resolve("1.json")));
+        assertTrue(Files.exists(jsonDir.resolve(SegmentStoreMigration.BACKUP_DIRECTORY).resolve("1.json")));
+        repository = new SegmentKnullRepository<>(jsonDir.toString(), BuildStepOutputs.class);
+        assertEquals(List.of("b"), repository.getByFileName("2.json").getOutputs());
+        assertEquals(3L, repository.getNextFileId());
+    }
+
+    private SegmentKnullRepository<BuildStepOutputs> open() {
+        return new SegmentKnullRepository<>(tempDir.toString(), BuildStepOutputs.class, 256, 0);
+    }
+
+    private long totalSegmentBytes() throws Exception {
+        try (var files = Files.list(tempDir)) {
+            return files.filter(path -> path.getFileName().toString().endsWith(".seg"))
+                    .mapToLong(path -> path.toFile().length())
+                    .sum();
+        }
+    }
+}
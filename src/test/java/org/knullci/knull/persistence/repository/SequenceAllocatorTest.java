@@ -0,0 +1,91 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SequenceAllocatorTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testNext_ShouldContinueAfterExistingMaxId() {
+        // Arrange
+        SequenceAllocator allocator = new SequenceAllocator(tempDir.resolve("id.sequence"), 41, 10);
+
+        // Act & Assert
+        assertEquals(42L, allocator.next());
+        assertEquals(43L, allocator.next());
+    }
+
+    @Test
+    void testNext_AfterRestart_ShouldNeverReuseIds() {
+        // Arrange
+        Path file = tempDir.resolve("id.sequence");
+        SequenceAllocator first = new SequenceAllocator(file, 0, 10);
+        for (int i = 0; i < 15; i++) {
+            first.next();
+        }
+
+        // Act - simulate a crash: ids 16 to 20 of the reserved block are skipped
+        SequenceAllocator restarted = new SequenceAllocator(file, 0, 10);
+
+        // Assert
+        assertEquals(21L, restarted.next());
+    }
+
+    @Test
+    void testNext_ShouldOnlyPersistOncePerBlock() throws Exception {
+        // Arrange
+        Path file = tempDir.resolve("id.sequence");
+        SequenceAllocator allocator = new SequenceAllocator(file, 0, 100);
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            allocator.next();
+        }
+
+        // Assert
+        assertEquals("100", Files.readString(file));
+        allocator.next();
+        assertEquals("200", Files.readString(file));
+    }
+
+    @Test
+    void testNext_ConcurrentCallers_ShouldGetUniqueIds() throws Exception {
+        // Arrange
+        SequenceAllocator allocator = new SequenceAllocator(tempDir.resolve("id.sequence"), 0, 7);
+        Set<Long> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        // Act
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 500; i++) {
+                    ids.add(allocator.next());
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(4000, ids.size());
+        assertEquals(4000L, ids.stream().mapToLong(Long::longValue).max().orElse(0));
+    }
+}
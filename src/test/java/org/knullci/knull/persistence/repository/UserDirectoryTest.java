@@ -0,0 +1,68 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.Test;
+import org.knullci.knull.domain.enums.Role;
+import org.knullci.knull.domain.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserDirectoryTest {
+
+    @Test
+    void testPut_ShouldIndexByIdUsernameAndEmail() {
+        // Arrange
+        UserDirectory directory = new UserDirectory();
+        User user = createUser(1L, "alice", "alice@example.com");
+
+        // Act
+        directory.put(user);
+
+        // Assert
+        assertSame(user, directory.findById(1L).orElseThrow());
+        assertSame(user, directory.findByUsername("alice").orElseThrow());
+        assertSame(user, directory.findByEmail("alice@example.com").orElseThrow());
+        assertTrue(directory.findByUsername(null).isEmpty());
+        assertEquals(1, directory.size());
+    }
+
+    @Test
+    void testPut_WhenUsernameChanges_ShouldDropOldIndexEntries() {
+        // Arrange
+        UserDirectory directory = new UserDirectory();
+        directory.put(createUser(1L, "alice", "alice@example.com"));
+
+        // Act
+        directory.put(createUser(1L, "alicia", null));
+
+        // Assert
+        assertTrue(directory.findByUsername("alice").isEmpty());
+        assertTrue(directory.findByEmail("alice@example.com").isEmpty());
+        assertEquals("alicia", directory.findById(1L).orElseThrow().getUsername());
+        assertEquals(1, directory.size());
+    }
+
+    @Test
+    void testRemove_ShouldKeepOtherUsers() {
+        // Arrange
+        UserDirectory directory = new UserDirectory();
+        directory.put(createUser(2L, "bob", null));
+        directory.put(createUser(1L, "alice", null));
+
+        // Act
+        directory.remove(2L);
+        directory.remove(3L);
+
+        // Assert
+        assertTrue(directory.findByUsername("bob").isEmpty());
+        assertEquals(List.of("alice"), directory.findAll().stream().map(User::getUsername).toList());
+    }
+
+    private User createUser(Long id, String username, String email) {
+        return new User(id, username, email, "password", username, Role.VIEWER, Set.of(),
+                true, false, LocalDateTime.now(), LocalDateTime.now(), null);
+    }
+}
@@ -0,0 +1,261 @@
+package org.knullci.knull.persistence.repository;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.knullci.knull.domain.enums.BuildStatus;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.repository.BuildRepository;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WriteBehindBuildRepositoryTest {
+
+    @Mock
+    private BuildRepository delegate;
+
+    private WriteBehindBuildRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        // Long flush interval so that only explicit flush() calls write
+        repository = new WriteBehindBuildRepository(delegate, new VersionedBuildWriter(), 60_000L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        repository.shutdown();
+    }
+
+    @Test
+    void testUpdateBuild_WhenRunning_ShouldDeferWrite() {
+        // Act
+        repository.updateBuild(createTestBuild(BuildStatus.IN_PROGRESS));
+
+        // Assert
+        verify(delegate, never()).updateBuild(any(Build.class));
+    }
+
+    @Test
+    void testUpdateBuild_WhenFlushIntervalIsZero_ShouldWriteThrough() {
+        // Arrange
+        WriteBehindBuildRepository writeThrough = new WriteBehindBuildRepository(delegate,
+                new VersionedBuildWriter(), 0L);
+        Build running = createTestBuild(BuildStatus.IN_PROGRESS);
+
+        // Act
+        writeThrough.updateBuild(running);
+        writeThrough.updateBuild(createTestBuild(BuildStatus.SUCCESS));
+        writeThrough.updateBuild(running);
+        writeThrough.shutdown();
+
+        // Assert
+        ArgumentCaptor<Build> captor = ArgumentCaptor.forClass(Build.class);
+        verify(delegate, times(2)).updateBuild(captor.capture());
+        assertEquals(List.of(BuildStatus.IN_PROGRESS, BuildStatus.SUCCESS),
+                captor.getAllValues().stream().map(Build::getStatus).toList());
+    }
+
+    @Test
+    void testUpdateBuild_MultipleUpdates_ShouldCoalesceIntoSingleWrite() {
+        // Arrange
+        Build build = createTestBuild(BuildStatus.IN_PROGRESS);
+
+        // Act
+        for (int i = 0; i < 100; i++) {
+            build.setLogLength((long) i);
+            repository.updateBuild(build);
+        }
+        repository.flush();
+
+        // Assert
+        ArgumentCaptor<Build> captor = ArgumentCaptor.forClass(Build.class);
+        verify(delegate, times(1)).updateBuild(captor.capture());
+        assertEquals(99L, captor.getValue().getLogLength());
+    }
+
+    @Test
+    void testUpdateBuild_WhenTerminal_ShouldWriteImmediately() {
+        // Arrange
+        Build build = createTestBuild(BuildStatus.IN_PROGRESS);
+        repository.updateBuild(build);
+
+        // Act
+        build.setStatus(BuildStatus.SUCCESS);
+        repository.updateBuild(build);
+        repository.flush();
+
+        // Assert - the pending IN_PROGRESS snapshot is superseded, not written afterwards
+        ArgumentCaptor<Build> captor = ArgumentCaptor.forClass(Build.class);
+        verify(delegate, times(1)).updateBuild(captor.capture());
+        assertEquals(BuildStatus.SUCCESS, captor.getValue().getStatus());
+    }
+
+    @Test
+    void testFindById_WithPendingUpdate_ShouldReturnLatestState() {
+        // Arrange
+        Build build = createTestBuild(BuildStatus.IN_PROGRESS);
+        build.setLogLength(42L);
+        repository.updateBuild(build);
+
+        // Act
+        Optional<Build> result = repository.findById(1L);
+
+        // Assert
+        assertTrue(result.isPresent());
+        assertEquals(42L, result.get().getLogLength());
+        verify(delegate, never()).findById(anyLong());
+    }
+
+    @Test
+    void testFindAll_ShouldOverlayPendingUpdates() {
+        // Arrange
+        Build stored = createTestBuild(BuildStatus.IN_PROGRESS);
+        Build pending = createTestBuild(BuildStatus.IN_PROGRESS);
+        pending.setLogLength(7L);
+        repository.updateBuild(pending);
+        when(delegate.findAll()).thenReturn(List.of(stored));
+
+        // Act
+        List<Build> result = repository.findAll();
+
+        // Assert
+        assertEquals(1, result.size());
+        assertEquals(7L, result.get(0).getLogLength());
+    }
+
+    @Test
+    void testUpdateBuild_WhenRunningAfterTerminal_ShouldDropLateUpdate() {
+        // Arrange
+        Build build = createTestBuild(BuildStatus.SUCCESS);
+        repository.updateBuild(build);
+
+        // Act
+        build.setStatus(BuildStatus.IN_PROGRESS);
+        repository.updateBuild(build);
+        repository.flush();
+
+        // Assert - only the terminal write reaches the delegate
+        ArgumentCaptor<Build> captor = ArgumentCaptor.forClass(Build.class);
+        verify(delegate, times(1)).updateBuild(captor.capture());
+        assertEquals(BuildStatus.SUCCESS, captor.getValue().getStatus());
+    }
+
+    @Test
+    void testCompareAndSet_WhenVersionIsStale_ShouldRejectWrite() {
+        // Arrange
+        Build stored = createTestBuild(BuildStatus.IN_PROGRESS);
+        stored.setVersion(2L);
+        when(delegate.findById(1L)).thenReturn(Optional.of(stored));
+        Build stale = createTestBuild(BuildStatus.SUCCESS);
+        stale.setVersion(1L);
+
+        // Act
+        boolean result = repository.compareAndSet(stale);
+
+        // Assert
+        assertFalse(result);
+        assertEquals(BuildStatus.IN_PROGRESS, repository.findById(1L).get().getStatus());
+    }
+
+    @Test
+    void testCompareAndSet_WhenVersionMatches_ShouldWriteAndIncrementVersion() {
+        // Arrange
+        Build stored = createTestBuild(BuildStatus.IN_PROGRESS);
+        stored.setVersion(2L);
+        when(delegate.findById(1L)).thenReturn(Optional.of(stored));
+        Build update = createTestBuild(BuildStatus.SUCCESS);
+        update.setVersion(2L);
+
+        // Act
+        boolean result = repository.compareAndSet(update);
+
+        // Assert
+        assertTrue(result);
+        ArgumentCaptor<Build> captor = ArgumentCaptor.forClass(Build.class);
+        verify(delegate).updateBuild(captor.capture());
+        assertEquals(BuildStatus.SUCCESS, captor.getValue().getStatus());
+        assertEquals(3L, captor.getValue().getVersion());
+    }
+
+    @Test
+    void testModifyBuild_ShouldApplyModificationToLatestState() {
+        // Arrange
+        Build pending = createTestBuild(BuildStatus.IN_PROGRESS);
+        pending.setLogLength(7L);
+        repository.updateBuild(pending);
+
+        // Act
+        Optional<Build> result = repository.modifyBuild(1L, build -> build.setDuration(5L));
+
+        // Assert
+        assertTrue(result.isPresent());
+        Build current = repository.findById(1L).get();
+        assertEquals(5L, current.getDuration());
+        assertEquals(7L, current.getLogLength());
+        assertEquals(1L, current.getVersion());
+    }
+
+    @Test
+    void testModifyBuild_WhenMissing_ShouldReturnEmpty() {
+        // Arrange
+        when(delegate.findById(2L)).thenReturn(Optional.empty());
+
+        // Act & Assert
+        assertTrue(repository.modifyBuild(2L, build -> fail("must not run")).isEmpty());
+    }
+
+    @Test
+    void testDeleteBuild_ShouldDropPendingUpdate() {
+        // Arrange
+        repository.updateBuild(createTestBuild(BuildStatus.IN_PROGRESS));
+        when(delegate.deleteBuild(1L)).thenReturn(42L);
+
+        // Act
+        long freed = repository.deleteBuild(1L);
+        repository.flush();
+
+        // Assert - the deferred update must not recreate the deleted build
+        assertEquals(42L, freed);
+        verify(delegate, never()).updateBuild(any(Build.class));
+    }
+
+    @Test
+    void testUpdateBuild_WhenRunningAfterDelete_ShouldNotRecreateBuild() {
+        // Arrange
+        repository.deleteBuild(1L);
+
+        // Act
+        repository.updateBuild(createTestBuild(BuildStatus.IN_PROGRESS));
+        repository.flush();
+
+        // Assert
+        verify(delegate, never()).updateBuild(any(Build.class));
+        when(delegate.findById(1L)).thenReturn(Optional.empty());
+        assertTrue(repository.findById(1L).isEmpty());
+    }
+
+    private Build createTestBuild(BuildStatus status) {
+        Build build = new Build();
+        build.setId(1L);
+        build.setJobId(1L);
+        build.setJobName("Test Job");
+        build.setBranch("main");
+        build.setStatus(status);
+        build.setSteps(new ArrayList<>());
+        build.setStartedAt(new Date());
+        return build;
+    }
+}
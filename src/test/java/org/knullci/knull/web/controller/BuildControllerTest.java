@@ -0,0 +1,124 @@
+package org.knullci.knull.web.controller;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.knullci.knull.application.interfaces.CancelBuildCommandHandler;
+import org.knullci.knull.domain.model.Build;
+import org.knullci.knull.domain.model.BuildStep;
+import org.knullci.knull.domain.model.LogSearchResult;
+import org.knullci.knull.domain.model.LogSlice;
+import org.knullci.knull.domain.repository.BuildLogRepository;
+import org.knullci.knull.domain.repository.BuildRepository;
+import org.knullci.knull.domain.repository.LogIndexRepository;
+import org.knullci.knull.infrastructure.service.BuildEventBus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BuildControllerTest {
+
+    private static final int MAX_LOG_READ_BYTES = 1024 * 1024;
+
+    @Mock
+    private BuildRepository buildRepository;
+
+    @Mock
+    private BuildLogRepository buildLogRepository;
+
+    @Mock
+    private CancelBuildCommandHandler cancelBuildCommandHandler;
+
+    @Mock
+    private BuildEventBus buildEventBus;
+
+    @Mock
+    private LogIndexRepository logIndexRepository;
+
+    @InjectMocks
+    private BuildController controller;
+
+    @Test
+    void testGetRawBuildLog_WithLimitAboveMaximum_ShouldReadAtMostMaximum() {
+        // Arrange
+        when(buildLogRepository.read(1L, 100L, MAX_LOG_READ_BYTES)).thenReturn(new LogSlice(200L, "output\n"));
+
+        // Act
+        ResponseEntity<String> response = controller.getRawBuildLog(1L, 100L, Integer.MAX_VALUE);
+
+        // Assert
+        assertEquals("output\n", response.getBody());
+        assertEquals("200", response.getHeaders().getFirst("X-Log-Offset"));
+    }
+
+    @Test
+    void testGetStepLog_WithOffsetInsideStep_ShouldReadOnlyUpToEndOfStep() {
+        // Arrange
+        BuildStep step = new BuildStep();
+        step.setLogOffset(1000L);
+        step.setLogLength(500L);
+        Build build = new Build();
+        build.setId(1L);
+        build.setSteps(List.of(step));
+        when(buildRepository.findById(1L)).thenReturn(Optional.of(build));
+        when(buildLogRepository.read(1L, 1400L, 100L)).thenReturn(new LogSlice(1500L, "tail\n"));
+
+        // Act
+        ResponseEntity<String> response = controller.getStepLog(1L, 0, 1400L, 4096);
+
+        // Assert
+        assertEquals("tail\n", response.getBody());
+        assertEquals("1500", response.getHeaders().getFirst("X-Log-Offset"));
+    }
+
+    @Test
+    void testGetStepLog_WhenStepRunning_ShouldReadAtMostLimitFromStart() {
+        // Arrange
+        BuildStep step = new BuildStep();
+        step.setLogOffset(1000L);
+        Build build = new Build();
+        build.setId(1L);
+        build.setSteps(List.of(step));
+        when(buildRepository.findById(1L)).thenReturn(Optional.of(build));
+        when(buildLogRepository.read(1L, 1000L, 64L)).thenReturn(new LogSlice(1064L, "partial"));
+
+        // Act
+        ResponseEntity<String> response = controller.getStepLog(1L, 0, null, 64);
+
+        // Assert
+        assertEquals("partial", response.getBody());
+        assertEquals("1064", response.getHeaders().getFirst("X-Log-Offset"));
+    }
+
+    @Test
+    void testSearchBuildLog_WithTooLongRegex_ShouldReturnBadRequest() {
+        // Act
+        ResponseEntity<?> response = controller.searchBuildLog(1L, "a".repeat(501), true, false, 2, 100);
+
+        // Assert
+        assertEquals(400, response.getStatusCode().value());
+        verifyNoInteractions(buildLogRepository);
+    }
+
+    @Test
+    void testSearchBuildLog_ShouldPassTimeLimitToSearch() {
+        // Arrange
+        LogSearchResult partial = new LogSearchResult(List.of(), false, 10L, true);
+        when(buildLogRepository.search(eq(1L), any(Pattern.class), eq(2), eq(100), anyLong())).thenReturn(partial);
+
+        // Act
+        ResponseEntity<?> response = controller.searchBuildLog(1L, "(.*a){31}", true, false, 2, 100);
+
+        // Assert
+        assertSame(partial, response.getBody());
+    }
+}